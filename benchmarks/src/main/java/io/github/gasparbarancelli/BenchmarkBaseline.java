@@ -0,0 +1,122 @@
+package io.github.gasparbarancelli;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Records the results of a run as a baseline, and compares later runs against it, so that a
+ * release can be checked against the previous one on the same machine.
+ *
+ * <p>Three metrics are kept for every benchmark and combination of parameters: its score, the
+ * 99th percentile of its latency for the sampling mode, and the bytes it allocates per operation
+ * when the GC profiler is enabled. A metric regresses when it is worse than the baseline by more
+ * than the tolerance, that is, lower for the throughput and higher for the others.</p>
+ *
+ * @see NativeQueryBenchmarks
+ */
+final class BenchmarkBaseline {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BenchmarkBaseline() {
+    }
+
+    /**
+     * Extracts the metrics of a run.
+     *
+     * @param results The results of the run.
+     * @return The metrics, by name.
+     */
+    static Map<String, Double> metrics(Collection<RunResult> results) {
+        Map<String, Double> metrics = new TreeMap<>();
+        for (RunResult result : results) {
+            String name = name(result.getParams());
+            Result<?> primary = result.getPrimaryResult();
+            metrics.put(name + ".score", primary.getScore());
+            if (result.getParams().getMode() == Mode.SampleTime) {
+                metrics.put(name + ".p99", primary.getStatistics().getPercentile(99.0));
+            }
+            Result<?> allocation = result.getSecondaryResults().get(ALLOCATION);
+            if (allocation != null) {
+                metrics.put(name + ".alloc", allocation.getScore());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Writes metrics to a baseline file.
+     *
+     * @param metrics The metrics of a run.
+     * @param file    The baseline file.
+     * @throws IOException If the file cannot be written.
+     */
+    static void save(Map<String, Double> metrics, Path file) throws IOException {
+        Properties properties = new Properties();
+        metrics.forEach((name, value) -> properties.setProperty(name, Double.toString(value)));
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, "spring-native-query benchmark baseline");
+        }
+    }
+
+    /**
+     * Compares metrics against a baseline file. Metrics absent from the baseline are ignored.
+     *
+     * @param metrics   The metrics of a run.
+     * @param file      The baseline file.
+     * @param tolerance The ratio by which a metric may be worse than the baseline, for example {@code 0.1}.
+     * @return The description of the regressions, empty if there are none.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<String> compare(Map<String, Double> metrics, Path file, double tolerance) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            baseline.load(reader);
+        }
+        List<String> regressions = new ArrayList<>();
+        metrics.forEach((name, value) -> {
+            String expected = baseline.getProperty(name);
+            if (expected == null) {
+                return;
+            }
+            double reference = Double.parseDouble(expected);
+            boolean higherIsBetter = name.endsWith(".score") && name.contains("[thrpt");
+            boolean regressed = higherIsBetter
+                    ? value < reference * (1 - tolerance)
+                    : value > reference * (1 + tolerance);
+            if (regressed) {
+                regressions.add(String.format("%s: %.3f, baseline %.3f", name, value, reference));
+            }
+        });
+        return regressions;
+    }
+
+    private static String name(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        String className = benchmark.substring(0, benchmark.lastIndexOf('.'));
+        StringJoiner joiner = new StringJoiner(",", "[", "]");
+        joiner.add(params.getMode().shortLabel());
+        joiner.add("t=" + params.getThreads());
+        for (String key : params.getParamsKeys()) {
+            joiner.add(key + "=" + params.getParam(key));
+        }
+        return className.substring(className.lastIndexOf('.') + 1)
+                + benchmark.substring(benchmark.lastIndexOf('.')) + joiner;
+    }
+
+}
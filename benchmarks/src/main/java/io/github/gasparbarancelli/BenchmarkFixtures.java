@@ -0,0 +1,143 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The interfaces, filters and invocations shared by the benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    static final String INLINE_SQL = """
+            select u.id as "id", u.name as "name", u.email as "email"
+              from user u
+             where 1 = 1
+            <#if name??>
+               and u.name like :name
+            </#if>
+            <#if email??>
+               and u.email = :email
+            </#if>
+            <#if ids??>
+               and u.id in (:ids)
+            </#if>
+            """;
+
+    private BenchmarkFixtures() {
+    }
+
+    interface UserNativeQuery extends NativeQuery {
+
+        List<UserDto> findUsers(@NativeQueryParam("name") String name, @NativeQueryParam("email") String email, @NativeQueryParam("ids") List<Integer> ids);
+
+        @NativeQuerySql(INLINE_SQL)
+        List<UserDto> findUsersInline(@NativeQueryParam("name") String name, @NativeQueryParam("email") String email, @NativeQueryParam("ids") List<Integer> ids);
+
+        @NativeQuerySql(INLINE_SQL)
+        List<UserDto> findUsersByFilter(@NativeQueryParam(value = "filter", addChildren = true) UserFilter filter);
+
+        @NativeQuerySql(INLINE_SQL)
+        List<UserDto> findUsersByNestedFilter(@NativeQueryParam(value = "filter", addChildren = true) NestedUserFilter filter);
+
+    }
+
+    public record UserDto(Integer id, String name, String email) {
+    }
+
+    public static class UserFilter {
+
+        private final String name;
+
+        private final String email;
+
+        private final List<Integer> ids;
+
+        public UserFilter(String name, String email, List<Integer> ids) {
+            this.name = name;
+            this.email = email;
+            this.ids = ids;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public List<Integer> getIds() {
+            return ids;
+        }
+
+    }
+
+    public static class NestedUserFilter {
+
+        private final UserFilter user;
+
+        private final Integer minimumAge;
+
+        public NestedUserFilter(UserFilter user, Integer minimumAge) {
+            this.user = user;
+            this.minimumAge = minimumAge;
+        }
+
+        @NativeQueryParam(value = "user", addChildren = true)
+        public UserFilter getUser() {
+            return user;
+        }
+
+        public Integer getMinimumAge() {
+            return minimumAge;
+        }
+
+    }
+
+    static void configureSqlDirectory() {
+        new NativeQueryAutoConfiguration().beanFactoryPostProcessor("io.github.gasparbarancelli", "nativeQuery", false, NativeQueryExecutors.DEFAULT_MAX_THREADS, Optional.empty());
+    }
+
+    static MethodInvocation invocation(String methodName, Object... arguments) {
+        Method method = Arrays.stream(UserNativeQuery.class.getMethods())
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return new FixedMethodInvocation(method, arguments);
+    }
+
+    private record FixedMethodInvocation(Method method, Object[] arguments) implements MethodInvocation {
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public Object proceed() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object getThis() {
+            return null;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NativeQueryInfo#getBoundParameters()}, the selection of the parameters
+ * referenced by an already rendered SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindBenchmark {
+
+    private NativeQueryInfo rendered;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.configureSqlDirectory();
+        MethodInvocation invocation = BenchmarkFixtures.invocation("findUsersInline", "john%", "john@example.com", List.of(1, 2, 3));
+        rendered = NativeQueryInfo.of(BenchmarkFixtures.UserNativeQuery.class, invocation);
+        NativeQueryInfo.setParameters(rendered, invocation);
+        rendered.getSql();
+    }
+
+    @Benchmark
+    public Map<String, Object> bind() throws CloneNotSupportedException {
+        return ((NativeQueryInfo) rendered.clone()).getBoundParameters();
+    }
+
+}
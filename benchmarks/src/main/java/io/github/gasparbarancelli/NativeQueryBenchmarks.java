@@ -0,0 +1,59 @@
+package io.github.gasparbarancelli;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that every result reports the bytes allocated per operation.
+ *
+ * <p>Accepts the JMH command line options, for example to run only the rendering benchmarks:</p>
+ * <pre>{@code
+ * java -jar target/benchmarks.jar RenderBenchmark -rf json
+ * }</pre>
+ *
+ * <p>The results can be saved as a {@linkplain BenchmarkBaseline baseline} and later runs compared
+ * against it, the run failing when a metric regresses by more than the tolerance, 10% by default:</p>
+ * <pre>{@code
+ * java -Dbaseline.save=baseline.properties -jar target/benchmarks.jar EndToEndBenchmark
+ * java -Dbaseline.compare=baseline.properties -Dbaseline.tolerance=0.05 -jar target/benchmarks.jar EndToEndBenchmark
+ * }</pre>
+ */
+public final class NativeQueryBenchmarks {
+
+    private NativeQueryBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> metrics = BenchmarkBaseline.metrics(results);
+        String save = System.getProperty("baseline.save");
+        if (save != null) {
+            BenchmarkBaseline.save(metrics, Path.of(save));
+        }
+        String compare = System.getProperty("baseline.compare");
+        if (compare != null) {
+            double tolerance = Double.parseDouble(System.getProperty("baseline.tolerance", "0.1"));
+            List<String> regressions = BenchmarkBaseline.compare(metrics, Path.of(compare), tolerance);
+            if (!regressions.isEmpty()) {
+                System.err.println("Regressions against " + compare + ":");
+                regressions.forEach(regression -> System.err.println("  " + regression));
+                System.exit(1);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NativeQueryCache#get}, that is, the lookup of the cached metadata of a method,
+ * its copy and the reading of the arguments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeQueryCacheBenchmark {
+
+    private MethodInvocation invocation;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.configureSqlDirectory();
+        invocation = BenchmarkFixtures.invocation("findUsersInline", "john%", null, List.of(1, 2, 3));
+        NativeQueryCache.get(BenchmarkFixtures.UserNativeQuery.class, invocation);
+    }
+
+    @Benchmark
+    public NativeQueryInfo get() {
+        return NativeQueryCache.get(BenchmarkFixtures.UserNativeQuery.class, invocation);
+    }
+
+}
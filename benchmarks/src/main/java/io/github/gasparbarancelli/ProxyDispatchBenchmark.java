@@ -0,0 +1,64 @@
+package io.github.gasparbarancelli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the invocation of a method through the proxy created by {@link NativeQueryProxyFactoryImpl},
+ * or through the implementation generated by {@link NativeQueryIndexProcessor}, with an interceptor
+ * that does not execute the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyDispatchBenchmark {
+
+    @Param({"proxy", "generated"})
+    private String implementation;
+
+    private BenchmarkFixtures.UserNativeQuery dispatchOnly;
+
+    private BenchmarkFixtures.UserNativeQuery dispatchAndRender;
+
+    private final List<Integer> ids = List.of(1, 2, 3);
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.configureSqlDirectory();
+        dispatchOnly = create(new NativeQueryProxyFactoryImpl(info -> List.of()));
+        dispatchAndRender = create(new NativeQueryProxyFactoryImpl(info -> List.of(info.getBoundParameters())));
+    }
+
+    private BenchmarkFixtures.UserNativeQuery create(NativeQueryProxyFactoryImpl factory) {
+        Object nativeQuery = "proxy".equals(implementation)
+                ? factory.createProxy(BenchmarkFixtures.UserNativeQuery.class)
+                : factory.create(BenchmarkFixtures.UserNativeQuery.class);
+        return (BenchmarkFixtures.UserNativeQuery) nativeQuery;
+    }
+
+    @Benchmark
+    public Object dispatch() {
+        return dispatchOnly.findUsersInline("john%", null, ids);
+    }
+
+    @Benchmark
+    public Object dispatchRenderAndBind() {
+        return dispatchAndRender.findUsersInline("john%", null, ids);
+    }
+
+}
@@ -0,0 +1,91 @@
+package io.github.gasparbarancelli;
+
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerProcessorSql;
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerTemplateEngineSQLProcessor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of the SQL: Freemarker on a file and on an inline template, the
+ * {@link ProcessorSql} applied to the rendered SQL, and the whole {@link NativeQueryInfo#getSql()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    private final List<NativeQueryParameter> parameters = List.of(
+            new NativeQueryParameter("name", "john%"),
+            new NativeQueryParameter("ids", List.of(1, 2, 3))
+    );
+
+    private final FreemarkerProcessorSql processorSql = new FreemarkerProcessorSql();
+
+    private String renderedSql;
+
+    private NativeQueryInfo fileInfo;
+
+    private NativeQueryInfo inlineInfo;
+
+    @Setup
+    public void setUp() throws CloneNotSupportedException {
+        BenchmarkFixtures.configureSqlDirectory();
+        renderedSql = inline();
+        MethodInvocation fileInvocation = BenchmarkFixtures.invocation("findUsers", "john%", null, List.of(1, 2, 3));
+        fileInfo = NativeQueryInfo.of(BenchmarkFixtures.UserNativeQuery.class, fileInvocation);
+        NativeQueryInfo.setParameters(fileInfo, fileInvocation);
+        MethodInvocation inlineInvocation = BenchmarkFixtures.invocation("findUsersInline", "john%", null, List.of(1, 2, 3));
+        inlineInfo = NativeQueryInfo.of(BenchmarkFixtures.UserNativeQuery.class, inlineInvocation);
+        NativeQueryInfo.setParameters(inlineInfo, inlineInvocation);
+    }
+
+    @Benchmark
+    public String file() {
+        return new FreemarkerTemplateEngineSQLProcessor()
+                .setParameter(parameters)
+                .inline(false)
+                .setClasspathTemplate("nativeQuery/findUsers.sql")
+                .getSql();
+    }
+
+    @Benchmark
+    public String inline() {
+        return new FreemarkerTemplateEngineSQLProcessor()
+                .setParameter(parameters)
+                .inline(true)
+                .setInlineTemplate(BenchmarkFixtures.INLINE_SQL)
+                .getSql();
+    }
+
+    @Benchmark
+    public String processors() {
+        return processorSql.execute(renderedSql, Map.of());
+    }
+
+    @Benchmark
+    public String getSqlFile() throws CloneNotSupportedException {
+        return ((NativeQueryInfo) fileInfo.clone()).getSql();
+    }
+
+    @Benchmark
+    public String getSqlInline() throws CloneNotSupportedException {
+        return ((NativeQueryInfo) inlineInfo.clone()).getSql();
+    }
+
+}
@@ -0,0 +1,124 @@
+package io.github.gasparbarancelli;
+
+import org.hibernate.transform.ResultTransformer;
+import org.hibernate.transform.Transformers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.DataClassRowMapper;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping of a row to a DTO by the two engines: the Hibernate {@code aliasToBean}
+ * transformer and the {@link DataClassRowMapper} of JdbcTemplate, on an in-memory row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultMappingBenchmark {
+
+    private static final String[] COLUMNS = {"id", "name", "email"};
+
+    private final Object[] tuple = {1, "John", "john@example.com"};
+
+    private ResultTransformer<?> aliasToBean;
+
+    private DataClassRowMapper<BenchmarkFixtures.UserDto> dataClassRowMapper;
+
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        aliasToBean = Transformers.aliasToBean(UserBean.class);
+        dataClassRowMapper = new DataClassRowMapper<>(BenchmarkFixtures.UserDto.class);
+        resultSet = resultSet(tuple);
+    }
+
+    @Benchmark
+    public Object hibernateAliasToBean() {
+        return aliasToBean.transformTuple(tuple, COLUMNS);
+    }
+
+    @Benchmark
+    public Object jdbcDataClassRowMapper() throws SQLException {
+        return dataClassRowMapper.mapRow(resultSet, 0);
+    }
+
+    /**
+     * Creates a result set positioned on a single row, without any driver.
+     */
+    private static ResultSet resultSet(Object[] row) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultMappingBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> COLUMNS.length;
+                    case "getColumnLabel", "getColumnName" -> COLUMNS[(Integer) args[0] - 1];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultMappingBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMetaData" -> metaData;
+                    case "findColumn" -> Arrays.asList(COLUMNS).indexOf((String) args[0]) + 1;
+                    case "wasNull" -> false;
+                    case "getInt" -> (Integer) row[(Integer) args[0] - 1];
+                    case "getString", "getObject" -> row[(Integer) args[0] - 1];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    public static class UserBean {
+
+        private Integer id;
+
+        private String name;
+
+        private String email;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NativeQueryInfo#setParameters} with plain arguments, a flat filter object
+ * and a filter object nesting another one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetParametersBenchmark {
+
+    private NativeQueryInfo arguments;
+
+    private MethodInvocation argumentsInvocation;
+
+    private NativeQueryInfo flatFilter;
+
+    private MethodInvocation flatFilterInvocation;
+
+    private NativeQueryInfo nestedFilter;
+
+    private MethodInvocation nestedFilterInvocation;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.configureSqlDirectory();
+        BenchmarkFixtures.UserFilter filter = new BenchmarkFixtures.UserFilter("john%", null, List.of(1, 2, 3));
+        argumentsInvocation = BenchmarkFixtures.invocation("findUsersInline", "john%", null, List.of(1, 2, 3));
+        arguments = NativeQueryInfo.of(BenchmarkFixtures.UserNativeQuery.class, argumentsInvocation);
+        flatFilterInvocation = BenchmarkFixtures.invocation("findUsersByFilter", filter);
+        flatFilter = NativeQueryInfo.of(BenchmarkFixtures.UserNativeQuery.class, flatFilterInvocation);
+        nestedFilterInvocation = BenchmarkFixtures.invocation("findUsersByNestedFilter", new BenchmarkFixtures.NestedUserFilter(filter, 18));
+        nestedFilter = NativeQueryInfo.of(BenchmarkFixtures.UserNativeQuery.class, nestedFilterInvocation);
+    }
+
+    @Benchmark
+    public NativeQueryInfo arguments() {
+        NativeQueryInfo.setParameters(arguments, argumentsInvocation);
+        return arguments;
+    }
+
+    @Benchmark
+    public NativeQueryInfo flatFilter() {
+        NativeQueryInfo.setParameters(flatFilter, flatFilterInvocation);
+        return flatFilter;
+    }
+
+    @Benchmark
+    public NativeQueryInfo nestedFilter() {
+        NativeQueryInfo.setParameters(nestedFilter, nestedFilterInvocation);
+        return nestedFilter;
+    }
+
+}
@@ -0,0 +1,31 @@
+package io.github.gasparbarancelli.endtoend;
+
+import io.github.gasparbarancelli.NativeQuery;
+import io.github.gasparbarancelli.NativeQueryFolder;
+import io.github.gasparbarancelli.NativeQueryParam;
+import io.github.gasparbarancelli.NativeQueryUseJdbcTemplate;
+
+import java.util.List;
+
+/**
+ * The queries executed with the JdbcTemplate, which pages with {@code LIMIT} and {@code OFFSET}
+ * since it does not support {@link org.springframework.data.domain.Pageable}.
+ */
+@NativeQueryFolder("customer")
+public interface CustomerJdbcNativeQuery extends NativeQuery {
+
+    @NativeQueryUseJdbcTemplate
+    List<CustomerDto> findCustomerDtos(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId);
+
+    @NativeQueryUseJdbcTemplate
+    List<CustomerDto> findCustomerDtos(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId,
+                                       @NativeQueryParam("offset") int offset, @NativeQueryParam("limit") int limit);
+
+    @NativeQueryUseJdbcTemplate
+    List<Customer> findCustomers(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId);
+
+    @NativeQueryUseJdbcTemplate
+    List<Customer> findCustomers(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId,
+                                 @NativeQueryParam("offset") int offset, @NativeQueryParam("limit") int limit);
+
+}
@@ -0,0 +1,25 @@
+package io.github.gasparbarancelli.endtoend;
+
+import io.github.gasparbarancelli.NativeQuery;
+import io.github.gasparbarancelli.NativeQueryFolder;
+import io.github.gasparbarancelli.NativeQueryParam;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * The queries executed with the EntityManager.
+ */
+@NativeQueryFolder("customer")
+public interface CustomerNativeQuery extends NativeQuery {
+
+    List<CustomerDto> findCustomerDtos(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId);
+
+    Page<CustomerDto> findCustomerDtos(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId, Pageable pageable);
+
+    List<Customer> findCustomers(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId);
+
+    Page<Customer> findCustomers(@NativeQueryParam("firstId") int firstId, @NativeQueryParam("lastId") int lastId, Pageable pageable);
+
+}
@@ -0,0 +1,56 @@
+package io.github.gasparbarancelli.endtoend;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The application driven by {@link EndToEndBenchmark}, running against an embedded H2 database.
+ */
+@SpringBootApplication
+public class EndToEndApplication {
+
+    /**
+     * Starts the application and fills the {@code CUSTOMER} table with generated rows.
+     *
+     * @param rows     The number of rows of the table.
+     * @param poolSize The maximum number of connections of the pool.
+     * @return The started application context.
+     */
+    static ConfigurableApplicationContext start(int rows, int poolSize) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(EndToEndApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "native-query.package-scan=io.github.gasparbarancelli.endtoend",
+                        "spring.datasource.url=jdbc:h2:mem:endtoend;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "logging.level.root=warn"
+                )
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS CUSTOMER");
+        jdbcTemplate.execute("""
+                CREATE TABLE CUSTOMER
+                (
+                    id        INT          NOT NULL,
+                    full_name VARCHAR(100) NOT NULL,
+                    email     VARCHAR(100) NULL,
+                    active    INT          NOT NULL,
+                    PRIMARY KEY (id)
+                )
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO CUSTOMER (id, full_name, email, active)
+                SELECT X, CONCAT('Customer ', X), CONCAT('customer', X, '@example.com'), MOD(X, 2)
+                FROM SYSTEM_RANGE(1, ?)
+                """, rows);
+        return context;
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.github.gasparbarancelli.endtoend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the {@link CustomerNativeQuery} and {@link CustomerJdbcNativeQuery} repositories of a
+ * Spring Boot application from concurrent threads, against an embedded H2 database.
+ *
+ * <p>Every invocation reads a random window of {@value #WINDOW} consecutive customers, either
+ * whole or one page of {@value #PAGE_SIZE} of them, mapped to a DTO or to an entity. Both the
+ * throughput and the distribution of the latency, including its 99th percentile, are measured.</p>
+ *
+ * <p>The size of the table and the number of threads are set from the command line, for example
+ * to read from a table of 10 million rows with 16 threads:</p>
+ * <pre>{@code
+ * java -jar target/benchmarks.jar EndToEndBenchmark -p rows=10000000 -t 16 -jvmArgsAppend -Xmx8g
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EndToEndBenchmark {
+
+    static final int WINDOW = 200;
+
+    static final int PAGE_SIZE = 20;
+
+    private static final int POOL_SIZE = 64;
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"hibernate", "jdbc"})
+    private String engine;
+
+    private ConfigurableApplicationContext context;
+
+    private CustomerNativeQuery hibernateQuery;
+
+    private CustomerJdbcNativeQuery jdbcQuery;
+
+    private boolean jdbc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EndToEndApplication.start(rows, POOL_SIZE);
+        hibernateQuery = context.getBean(CustomerNativeQuery.class);
+        jdbcQuery = context.getBean(CustomerJdbcNativeQuery.class);
+        jdbc = "jdbc".equals(engine);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object dto() {
+        int firstId = firstId();
+        return jdbc
+                ? jdbcQuery.findCustomerDtos(firstId, firstId + WINDOW - 1)
+                : hibernateQuery.findCustomerDtos(firstId, firstId + WINDOW - 1);
+    }
+
+    @Benchmark
+    public Object dtoPaged() {
+        int firstId = firstId();
+        int page = page();
+        return jdbc
+                ? jdbcQuery.findCustomerDtos(firstId, firstId + WINDOW - 1, page * PAGE_SIZE, PAGE_SIZE)
+                : hibernateQuery.findCustomerDtos(firstId, firstId + WINDOW - 1, PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Object entity() {
+        int firstId = firstId();
+        return jdbc
+                ? jdbcQuery.findCustomers(firstId, firstId + WINDOW - 1)
+                : hibernateQuery.findCustomers(firstId, firstId + WINDOW - 1);
+    }
+
+    @Benchmark
+    public Object entityPaged() {
+        int firstId = firstId();
+        int page = page();
+        return jdbc
+                ? jdbcQuery.findCustomers(firstId, firstId + WINDOW - 1, page * PAGE_SIZE, PAGE_SIZE)
+                : hibernateQuery.findCustomers(firstId, firstId + WINDOW - 1, PageRequest.of(page, PAGE_SIZE));
+    }
+
+    private int firstId() {
+        return 1 + ThreadLocalRandom.current().nextInt(rows - WINDOW + 1);
+    }
+
+    private static int page() {
+        return ThreadLocalRandom.current().nextInt(WINDOW / PAGE_SIZE);
+    }
+
+}
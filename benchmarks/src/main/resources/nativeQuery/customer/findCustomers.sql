@@ -0,0 +1,7 @@
+SELECT id, full_name, email, active
+FROM CUSTOMER
+WHERE id BETWEEN :firstId AND :lastId
+ORDER BY id
+-- <#if limit??>
+LIMIT :limit OFFSET :offset
+-- </#if>
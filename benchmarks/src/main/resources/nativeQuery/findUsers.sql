@@ -0,0 +1,12 @@
+select u.id as "id", u.name as "name", u.email as "email"
+  from user u
+ where 1 = 1
+<#if name??>
+   and u.name like :name
+</#if>
+<#if email??>
+   and u.email = :email
+</#if>
+<#if ids??>
+   and u.id in (:ids)
+</#if>
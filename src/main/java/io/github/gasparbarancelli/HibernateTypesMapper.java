@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A utility class for mapping DTO fields to Hibernate {@link BasicTypeReference}s.
@@ -27,7 +28,7 @@ public class HibernateTypesMapper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HibernateTypesMapper.class);
 
-    private static final Map<String, Map<String, BasicTypeReference<?>>> CACHE = new HashMap<>();
+    private static final Map<String, Map<String, BasicTypeReference<?>>> CACHE = new ConcurrentHashMap<>();
 
     /**
      * Maps the fields of a DTO class to their corresponding Hibernate types and adds them as scalars to a native query.
@@ -40,21 +41,28 @@ public class HibernateTypesMapper {
      * @param dto   The DTO class whose fields will be mapped.
      */
     public static void map(NativeQuery<?> query, Class<?> dto) {
-        Map<String, BasicTypeReference<?>> map = CACHE.get(dto.getName());
+        getTypes(dto).forEach(query::addScalar);
+    }
+
+    /**
+     * Returns the Hibernate types of the fields of a DTO class, resolving and caching them if needed.
+     *
+     * @param dto The DTO class whose fields are mapped.
+     * @return The Hibernate types, by field name.
+     */
+    static Map<String, BasicTypeReference<?>> getTypes(Class<?> dto) {
         LOGGER.debug("hibernate types cache key {}", dto.getName());
-        if (map == null) {
-            LOGGER.debug("creating a cache for the fields of object {}", dto.getName());
-            map = new HashMap<>();
+        return CACHE.computeIfAbsent(dto.getName(), name -> {
+            LOGGER.debug("creating a cache for the fields of object {}", name);
+            Map<String, BasicTypeReference<?>> map = new HashMap<>();
             for (Field field : dto.getDeclaredFields()) {
-                LOGGER.debug("getting the hibernate typing for field {} of object {}", field.getName(), dto.getName());
+                LOGGER.debug("getting the hibernate typing for field {} of object {}", field.getName(), name);
                 BasicTypeReference<?> hibernateType = getHibernateType(field.getType());
                 LOGGER.debug("obtained type is {}", hibernateType.getName());
                 map.put(field.getName(), hibernateType);
             }
-            CACHE.put(dto.getName(), map);
-        }
-
-        map.forEach(query::addScalar);
+            return map;
+        });
     }
 
     /**
@@ -0,0 +1,83 @@
+package io.github.gasparbarancelli;
+
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.javapoet.CodeBlock;
+import org.springframework.util.ClassUtils;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Processes the {@link NativeQuery} interfaces of an application ahead of time, for Spring AOT
+ * and GraalVM native images.
+ *
+ * <p>The bean definitions of the interfaces hold the proxy itself, which cannot be written as
+ * generated code, so they are excluded from the generated bean registrations. Instead, the
+ * processor generates an initializer registering the interfaces found while the application was
+ * processed, by name, so that at runtime neither the index nor the classpath is scanned. It also
+ * registers the {@linkplain NativeQueryRuntimeHints runtime hints} of each interface.</p>
+ *
+ * <p>The processor is registered in {@code META-INF/spring/aot.factories}.</p>
+ *
+ * @see NativeQueryRuntimeHints
+ * @see NativeQueryAutoConfiguration
+ */
+public class NativeQueryAotProcessor implements BeanFactoryInitializationAotProcessor, BeanRegistrationExcludeFilter {
+
+    @Override
+    public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+        return registeredBean.getMergedBeanDefinition().hasAttribute(NativeQueryBeanDefinition.NATIVE_QUERY_INTERFACE_ATTRIBUTE);
+    }
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        List<Class<? extends NativeQuery>> interfaces = new ArrayList<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition.getAttribute(NativeQueryBeanDefinition.NATIVE_QUERY_INTERFACE_ATTRIBUTE) instanceof Class<?> classe) {
+                interfaces.add(classe.asSubclass(NativeQuery.class));
+            }
+        }
+        if (interfaces.isEmpty()) {
+            return null;
+        }
+        return (generationContext, beanFactoryInitializationCode) -> {
+            interfaces.forEach(classe -> NativeQueryRuntimeHints.registerHints(generationContext.getRuntimeHints(), classe));
+            CodeBlock interfaceNames = interfaces.stream()
+                    .map(classe -> CodeBlock.of("$S", classe.getName()))
+                    .collect(CodeBlock.joining(", "));
+            GeneratedMethod generatedMethod = beanFactoryInitializationCode.getMethods().add("registerNativeQueries", method -> {
+                method.addJavadoc("Register the {@link $T} interfaces.", NativeQuery.class);
+                method.addModifiers(Modifier.PUBLIC, Modifier.STATIC);
+                method.addParameter(DefaultListableBeanFactory.class, "beanFactory");
+                method.addStatement("$T.registerNativeQueries(beanFactory, $L)", NativeQueryAotProcessor.class, interfaceNames);
+            });
+            beanFactoryInitializationCode.addInitializer(generatedMethod.toMethodReference());
+        };
+    }
+
+    /**
+     * Registers {@link NativeQuery} interfaces, called by the code generated ahead of time.
+     *
+     * @param beanFactory    The bean factory of the application.
+     * @param interfaceNames The fully qualified names of the interfaces.
+     */
+    public static void registerNativeQueries(DefaultListableBeanFactory beanFactory, String... interfaceNames) {
+        Set<Class<? extends NativeQuery>> interfaces = new LinkedHashSet<>();
+        for (String interfaceName : interfaceNames) {
+            interfaces.add(ClassUtils.resolveClassName(interfaceName, beanFactory.getBeanClassLoader()).asSubclass(NativeQuery.class));
+        }
+        new NativeQueryRegistryImpl(beanFactory).registry(interfaces);
+    }
+
+}
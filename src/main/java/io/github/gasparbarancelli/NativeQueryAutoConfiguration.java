@@ -1,14 +1,27 @@
 package io.github.gasparbarancelli;
 
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerTemplateEngineSQLProcessor;
 import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.util.ClassUtils;
 
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -25,17 +38,23 @@ import java.util.Set;
  * These settings can be provided via {@code application.properties} or a
  * {@link NativeQueryConfig} bean.</p>
  *
+ * <p>When the application runs from code generated ahead of time, the interfaces are registered
+ * by that code instead, see {@link NativeQueryAotProcessor}.</p>
+ *
  * @see NativeQuery
  * @see BeanFactoryPostProcessor
  * @see NativeQueryRegistry
  */
 @Configuration
+@ImportRuntimeHints(NativeQueryRuntimeHints.class)
 public class NativeQueryAutoConfiguration {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryAutoConfiguration.class);
 
     private static String sqlDirectory;
 
+    private static boolean inListPadding;
+
     /**
      * Returns the directory where SQL files are located.
      *
@@ -45,6 +64,16 @@ public class NativeQueryAutoConfiguration {
         return sqlDirectory;
     }
 
+    /**
+     * Indicates whether the collections bound to the queries are padded to a power of two, see
+     * {@link NativeQueryInfo#getBoundParameters()}.
+     *
+     * @return {@code true} if the IN lists are padded.
+     */
+    public static boolean isInListPadding() {
+        return inListPadding;
+    }
+
     /**
      * Creates a {@link BeanFactoryPostProcessor} that scans for and registers {@link NativeQuery} interfaces.
      *
@@ -53,8 +82,14 @@ public class NativeQueryAutoConfiguration {
      * registers a bean definition that will create a proxy instance. The proxy will handle
      * the execution of native queries.</p>
      *
+     * <p>When the application was compiled with {@link NativeQueryIndexProcessor}, the interfaces
+     * are read from the {@linkplain NativeQueryIndex index} it wrote instead of scanning the classpath,
+     * and the SQL templates it checked are parsed right away rather than on their first use.</p>
+     *
      * @param propertyPackageScan The package to scan, configured via the {@code native-query.package-scan} property.
      * @param sqlDirectory        The directory containing SQL files, configured via the {@code native-query.sql.directory} property.
+     * @param inListPadding       Whether the collections bound to the queries are padded to a power of two, configured via the {@code native-query.sql.in-list-padding} property.
+     * @param executorMaxThreads  The maximum number of threads running the batched, hedged and scattered queries, configured via the {@code native-query.executor.max-threads} property.
      * @param nativeQueryConfig   An optional {@link NativeQueryConfig} bean for programmatic configuration.
      * @return A {@code BeanFactoryPostProcessor} that performs the scanning and registration.
      */
@@ -62,6 +97,8 @@ public class NativeQueryAutoConfiguration {
     public BeanFactoryPostProcessor beanFactoryPostProcessor(
             @Value("${native-query.package-scan:io.github.gasparbarancelli}") String propertyPackageScan,
             @Value("${native-query.sql.directory:nativeQuery}") String sqlDirectory,
+            @Value("${native-query.sql.in-list-padding:false}") boolean inListPadding,
+            @Value("${native-query.executor.max-threads:" + NativeQueryExecutors.DEFAULT_MAX_THREADS + "}") int executorMaxThreads,
             Optional<NativeQueryConfig> nativeQueryConfig
     ) {
         var packageScan = nativeQueryConfig.map(NativeQueryConfig::getPackageScan)
@@ -69,18 +106,177 @@ public class NativeQueryAutoConfiguration {
 
         NativeQueryAutoConfiguration.sqlDirectory = nativeQueryConfig.map(NativeQueryConfig::getSQLDirectory)
                 .orElse(sqlDirectory);
+        NativeQueryAutoConfiguration.inListPadding = inListPadding;
+        NativeQueryExecutors.setMaxThreads(executorMaxThreads);
 
         return bf -> {
             LOGGER.debug("starting configuration");
-            BeanDefinitionRegistry beanDefinitionRegistry = (BeanDefinitionRegistry) bf;
-            LOGGER.debug("packageScan {}", packageScan);
-            Reflections reflections = new Reflections(packageScan);
-            LOGGER.debug("looking for interfaces that implement NativeQuery");
-            Set<Class<? extends NativeQuery>> nativeQueryList = reflections.getSubTypesOf(NativeQuery.class);
-            LOGGER.debug("{} found interfaces", nativeQueryList.size());
-            NativeQueryRegistry nativeQueryRegistry = new NativeQueryRegistryImpl(beanDefinitionRegistry);
-            nativeQueryRegistry.registry(nativeQueryList);
+            ClassLoader classLoader = bf.getBeanClassLoader() != null ? bf.getBeanClassLoader() : ClassUtils.getDefaultClassLoader();
+            if (AotDetector.useGeneratedArtifacts()) {
+                LOGGER.debug("interfaces registered by the code generated ahead of time");
+            } else {
+                BeanDefinitionRegistry beanDefinitionRegistry = (BeanDefinitionRegistry) bf;
+                LOGGER.debug("packageScan {}", packageScan);
+                Set<Class<? extends NativeQuery>> nativeQueryList = NativeQueryIndex.load(classLoader, packageScan);
+                if (nativeQueryList == null) {
+                    LOGGER.debug("looking for interfaces that implement NativeQuery");
+                    Reflections reflections = new Reflections(packageScan);
+                    nativeQueryList = reflections.getSubTypesOf(NativeQuery.class);
+                }
+                LOGGER.debug("{} found interfaces", nativeQueryList.size());
+                NativeQueryRegistry nativeQueryRegistry = new NativeQueryRegistryImpl(beanDefinitionRegistry);
+                nativeQueryRegistry.registry(nativeQueryList);
+            }
+            for (String template : NativeQueryIndex.loadTemplates(classLoader)) {
+                try {
+                    FreemarkerTemplateEngineSQLProcessor.precompile(template);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("could not precompile the SQL template {}", template, e);
+                }
+            }
         };
     }
 
+    /**
+     * Creates the listener logging the slow invocations, when a threshold is configured.
+     *
+     * @param threshold The duration above which an invocation is logged, configured via the {@code native-query.slow-query.threshold} property.
+     * @param rateLimit The minimum interval between two messages for the same SQL, configured via the {@code native-query.slow-query.rate-limit} property.
+     * @param logValues Whether the values of the parameters are logged, configured via the {@code native-query.slow-query.log-values} property.
+     * @param explainer The optional {@link NativeQueryExplainer} capturing the plan of the slow queries.
+     * @return The slow query listener.
+     */
+    @Bean
+    @ConditionalOnProperty("native-query.slow-query.threshold")
+    public NativeQuerySlowQueryListener nativeQuerySlowQueryListener(
+            @Value("${native-query.slow-query.threshold}") Duration threshold,
+            @Value("${native-query.slow-query.rate-limit:1m}") Duration rateLimit,
+            @Value("${native-query.slow-query.log-values:false}") boolean logValues,
+            ObjectProvider<NativeQueryExplainer> explainer
+    ) {
+        return new NativeQuerySlowQueryListener(threshold, rateLimit, logValues, explainer.getIfAvailable());
+    }
+
+    /**
+     * Creates the explainer capturing the plan of the slow queries, when enabled.
+     *
+     * @param dataSource The data source of the application, explaining the queries whose data source is not known.
+     * @param dialects   The custom {@link NativeQueryExplainDialect} beans.
+     * @param sampleRate The ratio of the slow queries that are explained, configured via the {@code native-query.slow-query.explain.sample-rate} property.
+     * @return The explainer.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty({"native-query.slow-query.threshold", "native-query.slow-query.explain.enabled"})
+    public NativeQueryExplainer nativeQueryExplainer(
+            DataSource dataSource,
+            ObjectProvider<NativeQueryExplainDialect> dialects,
+            @Value("${native-query.slow-query.explain.sample-rate:1.0}") double sampleRate
+    ) {
+        return new NativeQueryExplainer(dataSource, dialects.orderedStream().toList(), sampleRate);
+    }
+
+    /**
+     * Creates the warm-up preparing every method once the context is refreshed, when enabled.
+     *
+     * @param parallelism The maximum number of methods prepared at the same time, configured via the {@code native-query.warm-up.parallelism} property.
+     * @return The warm-up.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "native-query.warm-up.enabled", havingValue = "true")
+    public NativeQueryWarmUp nativeQueryWarmUp(
+            @Value("${native-query.warm-up.parallelism:4}") int parallelism
+    ) {
+        return new NativeQueryWarmUp(parallelism);
+    }
+
+    /**
+     * Creates the router balancing the read-only queries over the replicas, when they are configured.
+     *
+     * @param dataSourceNames The names of the replica {@code DataSource} beans, configured via the {@code native-query.replicas.data-sources} property.
+     * @param balancing       The balancing strategy, {@code round-robin} or {@code least-in-flight}, configured via the {@code native-query.replicas.balancing} property.
+     * @param beanFactory     The bean factory the replicas are looked up from.
+     * @return The replica router.
+     */
+    @Bean
+    @ConditionalOnProperty("native-query.replicas.data-sources")
+    public NativeQueryReplicaRouter nativeQueryReplicaRouter(
+            @Value("${native-query.replicas.data-sources}") String[] dataSourceNames,
+            @Value("${native-query.replicas.balancing:round-robin}") String balancing,
+            BeanFactory beanFactory
+    ) {
+        List<DataSource> replicas = Arrays.stream(dataSourceNames)
+                .map(String::trim)
+                .map(name -> beanFactory.getBean(name, DataSource.class))
+                .toList();
+        return new NativeQueryReplicaRouter(replicas, NativeQueryReplicaRouter.Balancing.of(balancing));
+    }
+
+    /**
+     * Creates the router of the sharded queries, when the shards are configured.
+     *
+     * @param dataSourceNames The names of the shard {@code DataSource} beans, in the order of the shards, configured via the {@code native-query.shards.data-sources} property.
+     * @param beanFactory     The bean factory the shards are looked up from.
+     * @return The shard router.
+     */
+    @Bean
+    @ConditionalOnProperty("native-query.shards.data-sources")
+    public NativeQueryShardRouter nativeQueryShardRouter(
+            @Value("${native-query.shards.data-sources}") String[] dataSourceNames,
+            BeanFactory beanFactory
+    ) {
+        List<DataSource> shards = Arrays.stream(dataSourceNames)
+                .map(String::trim)
+                .map(name -> beanFactory.getBean(name, DataSource.class))
+                .toList();
+        return new NativeQueryShardRouter(shards);
+    }
+
+    /**
+     * Creates the connection pools of the tenants, when a factory of their data sources is present.
+     *
+     * @param factory     Creates the data source of a tenant.
+     * @param maxPools    The maximum number of pools open at the same time, configured via the {@code native-query.tenant-data-sources.max-pools} property.
+     * @param idleTimeout The time after which an unused pool is closed, configured via the {@code native-query.tenant-data-sources.idle-timeout} property.
+     * @return The pools of the tenants.
+     */
+    @Bean
+    @ConditionalOnBean(NativeQueryTenantDataSourceFactory.class)
+    public NativeQueryTenantDataSources nativeQueryTenantDataSources(
+            NativeQueryTenantDataSourceFactory factory,
+            @Value("${native-query.tenant-data-sources.max-pools:50}") int maxPools,
+            @Value("${native-query.tenant-data-sources.idle-timeout:10m}") Duration idleTimeout
+    ) {
+        return new NativeQueryTenantDataSources(factory, maxPools, idleTimeout);
+    }
+
+    /**
+     * Creates the detector of N+1 queries, when a threshold is configured.
+     *
+     * @param threshold The number of invocations of a method or SQL allowed within a transaction, configured via the {@code native-query.n-plus-one.threshold} property.
+     * @param fail      Whether crossing the threshold throws an exception, configured via the {@code native-query.n-plus-one.fail} property.
+     * @return The N+1 query detector.
+     */
+    @Bean
+    @ConditionalOnProperty("native-query.n-plus-one.threshold")
+    public NativeQueryNPlusOneDetector nativeQueryNPlusOneDetector(
+            @Value("${native-query.n-plus-one.threshold}") int threshold,
+            @Value("${native-query.n-plus-one.fail:false}") boolean fail
+    ) {
+        return new NativeQueryNPlusOneDetector(threshold, fail);
+    }
+
+    /**
+     * Registers the {@link NativeQueryListener} beans once every singleton is instantiated.
+     *
+     * <p>The listeners are notified in their {@link org.springframework.core.annotation.Order order}.
+     * When there is no listener, the invocations are not timed.</p>
+     *
+     * @param listeners The listener beans of the application context.
+     * @return A {@code SmartInitializingSingleton} that registers the listeners.
+     */
+    @Bean
+    public static SmartInitializingSingleton nativeQueryListenerRegistrar(ObjectProvider<NativeQueryListener> listeners) {
+        return () -> NativeQueryExecution.setListeners(listeners.orderedStream().toList());
+    }
+
 }
\ No newline at end of file
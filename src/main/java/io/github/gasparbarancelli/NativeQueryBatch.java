@@ -0,0 +1,355 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executes several native query invocations concurrently and waits for all of them.
+ *
+ * <p>Endpoints that aggregate the results of several independent queries usually call the
+ * {@link NativeQuery} methods one after another, so their latency is the sum of every query.
+ * A batch runs the invocations in parallel instead, which makes the latency of the whole
+ * batch that of the slowest query.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * List<Object> results = NativeQueryBatch.of(
+ *         () -> salesRepository.findSales(),
+ *         () -> customerRepository.findCustomers(filter)
+ * ).timeout(Duration.ofSeconds(2)).parallelism(4).execute();
+ *
+ * List<Sale> sales = (List<Sale>) results.get(0);
+ * }</pre>
+ *
+ * <p>Each invocation runs on a thread of its own and therefore on its own connection, outside
+ * of any transaction bound to the calling thread. State bound to the calling thread, such as
+ * the current tenant, must be captured by the invocations themselves. When every thread of the
+ * shared pool is busy, the invocations run on the calling thread instead, one after another,
+ * with its transaction suspended, so that they still use connections of their own.</p>
+ *
+ * <p>The batch fails fast: as soon as one invocation fails or the deadline expires, the pending
+ * invocations are cancelled and the failure is propagated to the caller. The statements the
+ * invocations are running with the {@code JdbcTemplate} engine are cancelled with
+ * {@link Statement#cancel()}, which releases their connections, and the statements of both
+ * engines are given a query timeout ending with the deadline. The invocations that have not
+ * started yet, for example because they wait for a thread, are not started at all.</p>
+ *
+ * @see NativeQuery
+ */
+public final class NativeQueryBatch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryBatch.class);
+
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+    private final List<Supplier<?>> invocations;
+
+    private Duration timeout;
+
+    private int parallelism;
+
+    private Executor executor;
+
+    private NativeQueryBatch(List<Supplier<?>> invocations) {
+        this.invocations = invocations;
+        this.parallelism = invocations.size();
+    }
+
+    /**
+     * Creates a batch with the given invocations.
+     *
+     * @param invocations The native query invocations to be executed concurrently.
+     * @return A new batch.
+     */
+    public static NativeQueryBatch of(Supplier<?>... invocations) {
+        return of(Arrays.asList(invocations));
+    }
+
+    /**
+     * Creates a batch with the given invocations.
+     *
+     * @param invocations The native query invocations to be executed concurrently.
+     * @return A new batch.
+     */
+    public static NativeQueryBatch of(List<? extends Supplier<?>> invocations) {
+        Objects.requireNonNull(invocations, "invocations must not be null");
+        return new NativeQueryBatch(List.copyOf(invocations));
+    }
+
+    /**
+     * Sets the deadline shared by all the invocations of the batch. By default, there is no deadline.
+     *
+     * @param timeout The maximum time to wait for the whole batch.
+     * @return This batch instance for method chaining.
+     */
+    public NativeQueryBatch timeout(Duration timeout) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of invocations running at the same time, and therefore the
+     * maximum number of connections taken from the pool by the batch. By default, every
+     * invocation runs at the same time.
+     *
+     * @param parallelism The maximum number of concurrent invocations.
+     * @return This batch instance for method chaining.
+     */
+    public NativeQueryBatch parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the executor running the invocations. By default, a shared and bounded pool of daemon
+     * threads is used, and the invocations run on the calling thread when all its threads are busy.
+     *
+     * @param executor The executor running the invocations.
+     * @return This batch instance for method chaining.
+     */
+    public NativeQueryBatch executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Executes the invocations and waits for all of them.
+     *
+     * @return The results, in the same order as the invocations.
+     * @throws QueryTimeoutException if the batch does not complete within the timeout.
+     */
+    public List<Object> execute() {
+        int size = invocations.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+
+        LOGGER.debug("executing a batch of {} invocations with parallelism {}", size, parallelism);
+        Object[] results = new Object[size];
+        CompletionService<Completed> completionService = new ExecutorCompletionService<>(
+                executor != null ? executor : NativeQueryExecutors.callerRunsWhenBusy()
+        );
+        List<Future<Completed>> futures = new ArrayList<>(size);
+        long deadline = timeout != null ? System.nanoTime() + timeout.toNanos() : 0L;
+        Scope scope = new Scope(timeout != null, deadline);
+        int completed = 0;
+        try {
+            while (futures.size() < Math.min(parallelism, size)) {
+                futures.add(submit(completionService, futures.size(), scope));
+            }
+            while (completed < size) {
+                Future<Completed> future = take(completionService, deadline);
+                Completed result = future.get();
+                results[result.index()] = result.value();
+                completed++;
+                if (futures.size() < size) {
+                    futures.add(submit(completionService, futures.size(), scope));
+                }
+            }
+        } catch (ExecutionException e) {
+            LOGGER.debug("an invocation of the batch failed, cancelling the pending invocations");
+            throw propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the native query batch", e);
+        } finally {
+            if (completed < size) {
+                scope.cancel();
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private Future<Completed> submit(CompletionService<Completed> completionService, int index, Scope scope) {
+        Supplier<?> invocation = invocations.get(index);
+        return completionService.submit(() -> {
+            if (scope.cancelled) {
+                throw new CancellationException("Native query batch failed before the invocation started");
+            }
+            if (scope.isExpired()) {
+                throw new QueryTimeoutException("Native query batch did not complete within " + timeout);
+            }
+            Scope previous = SCOPE.get();
+            SCOPE.set(scope);
+            try {
+                return new Completed(index, invocation.get());
+            } catch (RuntimeException | Error e) {
+                // fails fast even when the calling thread is running the invocations itself
+                scope.cancel();
+                throw e;
+            } finally {
+                SCOPE.set(previous);
+            }
+        });
+    }
+
+    /**
+     * Returns the batch the current thread is running an invocation of.
+     *
+     * @return The scope of the batch, or {@code null} outside a batch.
+     */
+    static Scope currentScope() {
+        return SCOPE.get();
+    }
+
+    private Future<Completed> take(CompletionService<Completed> completionService, long deadline) throws InterruptedException {
+        if (timeout == null) {
+            return completionService.take();
+        }
+        Future<Completed> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (future == null) {
+            throw new QueryTimeoutException("Native query batch did not complete within " + timeout);
+        }
+        return future;
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private record Completed(int index, Object value) {
+    }
+
+    /**
+     * The statements run by the invocations of a batch, cancelled when the batch fails.
+     */
+    static final class Scope {
+
+        private final boolean timed;
+
+        private final long deadline;
+
+        private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean cancelled;
+
+        private Scope(boolean timed, long deadline) {
+            this.timed = timed;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Returns the number of seconds left before the deadline of the batch, to be used as the
+         * timeout of a query.
+         *
+         * @return The seconds left, at least one, or {@code 0} when the batch has no deadline.
+         */
+        int getRemainingSeconds() {
+            if (!timed) {
+                return 0;
+            }
+            long remaining = deadline - System.nanoTime();
+            return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
+
+        /**
+         * Indicates whether the deadline of the batch has expired.
+         *
+         * @return {@code true} if the batch has a deadline and it has expired.
+         */
+        boolean isExpired() {
+            return timed && deadline - System.nanoTime() <= 0;
+        }
+
+        /**
+         * Returns a template whose statements are given the deadline of the batch and cancelled
+         * when the batch fails.
+         *
+         * @param jdbcTemplate The template running the query.
+         * @return The template to run the query with.
+         */
+        NamedParameterJdbcTemplate bind(NamedParameterJdbcTemplate jdbcTemplate) {
+            return new NamedParameterJdbcTemplate(new ScopedJdbcTemplate(jdbcTemplate.getJdbcTemplate(), this));
+        }
+
+        private void register(Statement statement) throws SQLException {
+            int remainingSeconds = getRemainingSeconds();
+            if (remainingSeconds > 0 && (statement.getQueryTimeout() == 0 || statement.getQueryTimeout() > remainingSeconds)) {
+                statement.setQueryTimeout(remainingSeconds);
+            }
+            if (cancelled) {
+                // a driver may forget a cancellation requested before the statement is executed
+                throw new CancellationException("Native query batch failed before the statement was executed");
+            }
+            statements.add(statement);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            for (Statement statement : statements) {
+                try {
+                    if (!statement.isClosed()) {
+                        statement.cancel();
+                    }
+                } catch (SQLException e) {
+                    LOGGER.debug("a statement of the batch could not be cancelled", e);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A copy of a template registering its statements in the scope of a batch.
+     */
+    private static final class ScopedJdbcTemplate extends JdbcTemplate {
+
+        private final Scope scope;
+
+        private ScopedJdbcTemplate(JdbcTemplate jdbcTemplate, Scope scope) {
+            super(jdbcTemplate.getDataSource(), true);
+            setExceptionTranslator(jdbcTemplate.getExceptionTranslator());
+            setIgnoreWarnings(jdbcTemplate.isIgnoreWarnings());
+            setFetchSize(jdbcTemplate.getFetchSize());
+            setMaxRows(jdbcTemplate.getMaxRows());
+            setQueryTimeout(jdbcTemplate.getQueryTimeout());
+            setSkipResultsProcessing(jdbcTemplate.isSkipResultsProcessing());
+            setSkipUndeclaredResults(jdbcTemplate.isSkipUndeclaredResults());
+            setResultsMapCaseInsensitive(jdbcTemplate.isResultsMapCaseInsensitive());
+            this.scope = scope;
+        }
+
+        @Override
+        protected void applyStatementSettings(Statement stmt) throws SQLException {
+            super.applyStatementSettings(stmt);
+            scope.register(stmt);
+        }
+
+    }
+
+}
@@ -20,6 +20,11 @@ import org.springframework.beans.factory.support.BeanDefinitionBuilder;
  */
 class NativeQueryBeanDefinition {
 
+    /**
+     * The attribute holding the {@code NativeQuery} interface of a bean definition created by this factory.
+     */
+    static final String NATIVE_QUERY_INTERFACE_ATTRIBUTE = NativeQuery.class.getName() + ".interface";
+
     private NativeQueryBeanDefinition() {
         // Private constructor to prevent instantiation
     }
@@ -46,6 +51,7 @@ class NativeQueryBeanDefinition {
         AbstractBeanDefinition beanDefinition = builder.getBeanDefinition();
         beanDefinition.setInstanceSupplier(() -> source);
         beanDefinition.setAttribute("factoryBeanObjectType", classe.getName());
+        beanDefinition.setAttribute(NATIVE_QUERY_INTERFACE_ATTRIBUTE, classe);
         return beanDefinition;
     }
 
@@ -0,0 +1,57 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation choosing, by name, the beans a {@link NativeQuery} interface executes its queries with.
+ *
+ * <p>By default, the queries of every interface run with the single
+ * {@code NamedParameterJdbcTemplate}, {@code EntityManager} and
+ * {@link NativeQueryTenantNamedParameterJdbcTemplateInterceptor} beans of the application. In an
+ * application with several databases, this annotation binds an interface to other beans. Each
+ * attribute left empty keeps the default bean.</p>
+ *
+ * <p>The beans are looked up once, on the first invocation, and then reused by every invocation,
+ * so they must be singletons, or proxies of beans with a narrower scope.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryBeans(jdbcTemplateRef = "reportingJdbcTemplate", entityManagerFactoryRef = "reportingEntityManagerFactory")
+ * public interface ReportNativeQuery extends NativeQuery {
+ *     List<SaleReport> findSales();
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryMethodInterceptorImpl
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryBeans {
+
+    /**
+     * The name of the {@code NamedParameterJdbcTemplate} bean running the methods annotated with {@link NativeQueryUseJdbcTemplate}.
+     *
+     * @return The bean name, or an empty string for the only bean of that type.
+     */
+    String jdbcTemplateRef() default "";
+
+    /**
+     * The name of the {@code EntityManagerFactory} bean running the other methods. The queries then
+     * run with the shared, transactional {@code EntityManager} of that factory.
+     *
+     * @return The bean name, or an empty string for the {@code EntityManager} bean of the application.
+     */
+    String entityManagerFactoryRef() default "";
+
+    /**
+     * The name of the {@link NativeQueryTenantNamedParameterJdbcTemplateInterceptor} bean providing
+     * the schema of the methods with {@link NativeQueryUseJdbcTemplate#useTenant()} enabled.
+     *
+     * @return The bean name, or an empty string for the only bean of that type.
+     */
+    String tenantInterceptorRef() default "";
+
+}
@@ -6,7 +6,9 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -33,11 +35,11 @@ public class NativeQueryCache {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryCache.class);
 
-    private static final Map<NativeQueryInfoKey, NativeQueryInfo> CACHE_NATIVE_QUERY_INFO = new HashMap<>();
+    private static final Map<NativeQueryInfoKey, NativeQueryInfo> CACHE_NATIVE_QUERY_INFO = new ConcurrentHashMap<>();
 
-    private static final Map<String, Map<String, NativeQueryFieldInfo>> CACHE_FIELD_INFO = new HashMap<>();
+    private static final Map<String, Map<String, NativeQueryFieldInfo>> CACHE_FIELD_INFO = new ConcurrentHashMap<>();
 
-    private static final Map<String, List<NativeQueryAccessMethod>> CACHE_ACCESS_METHODS = new HashMap<>();
+    private static final Map<String, List<NativeQueryAccessMethod>> CACHE_ACCESS_METHODS = new ConcurrentHashMap<>();
 
     private static final List<String> IGNORE_METHODS = Arrays.asList("toString", "hashCode", "equals");
 
@@ -52,31 +54,64 @@ public class NativeQueryCache {
      * @return The {@link NativeQueryInfo} for the invocation.
      */
     static NativeQueryInfo get(Class<? extends NativeQuery> classe, MethodInvocation invocation) {
+        LOGGER.debug("getting from the cache the information of method {} of class {}", invocation.getMethod().getName(), classe.getName());
+        return get(getInfo(classe, invocation.getMethod()), invocation.getMethod().getParameters(), invocation.getArguments());
+    }
+
+    /**
+     * Copies the cached {@link NativeQueryInfo} of a method and sets the parameters of an invocation on the copy.
+     *
+     * @param cached     The cached information of the method, as returned by {@link #getInfo(Class, Method)}.
+     * @param parameters The parameters of the method.
+     * @param arguments  The arguments of the invocation.
+     * @return The {@link NativeQueryInfo} for the invocation.
+     */
+    static NativeQueryInfo get(NativeQueryInfo cached, Parameter[] parameters, Object[] arguments) {
+        NativeQueryInfo info;
+        try {
+            // the cached instance is a template, every invocation sets its parameters on a copy of it
+            info = (NativeQueryInfo) cached.clone();
+        } catch (CloneNotSupportedException e) {
+            LOGGER.debug("error in cloning the information that was cached in method {}", cached.getMethodKey());
+            throw new RuntimeException(e);
+        }
+        NativeQueryInfo.setParameters(info, parameters, arguments);
+        return info;
+    }
+
+    /**
+     * Retrieves the cached {@link NativeQueryInfo} of a method, creating and caching it if needed.
+     *
+     * <p>The returned instance is shared by all the invocations of the method, and must be
+     * cloned before its parameters are set.</p>
+     *
+     * @param classe The {@link NativeQuery} interface class.
+     * @param method The method of the interface.
+     * @return The cached {@link NativeQueryInfo} of the method.
+     */
+    static NativeQueryInfo getInfo(Class<? extends NativeQuery> classe, Method method) {
         NativeQueryInfoKey nativeQueryInfoKey = new NativeQueryInfoKey(
                 classe.getName(),
-                invocation.getMethod().getName(),
-                Arrays.stream(invocation.getMethod().getParameterTypes())
+                method.getName(),
+                Arrays.stream(method.getParameterTypes())
                         .map(Class::getName)
                         .collect(Collectors.toList())
         );
         LOGGER.debug("information cache key {}", nativeQueryInfoKey);
 
-        NativeQueryInfo info = NativeQueryCache.CACHE_NATIVE_QUERY_INFO.get(nativeQueryInfoKey);
-        if (info == null) {
-            info = NativeQueryInfo.of(classe, invocation);
-            LOGGER.debug("caching method {} information from interface {}", invocation.getMethod().getName(), classe.getName());
-            NativeQueryCache.CACHE_NATIVE_QUERY_INFO.put(nativeQueryInfoKey, info);
-        } else {
-            try {
-                LOGGER.debug("getting from the cache the information of method {} of class {}", invocation.getMethod().getName(), classe.getName());
-                info = (NativeQueryInfo) info.clone();
-            } catch (CloneNotSupportedException e) {
-                LOGGER.debug("error in cloning the information that was cached in method {} of class {}", invocation.getMethod().getName(), classe.getName());
-                throw new RuntimeException(e);
-            }
-        }
-        NativeQueryInfo.setParameters(info, invocation);
-        return info;
+        return NativeQueryCache.CACHE_NATIVE_QUERY_INFO.computeIfAbsent(nativeQueryInfoKey, key -> {
+            LOGGER.debug("caching method {} information from interface {}", method.getName(), classe.getName());
+            return NativeQueryInfo.of(classe, method);
+        });
+    }
+
+    /**
+     * Returns the number of methods whose {@link NativeQueryInfo} is cached.
+     *
+     * @return The number of cached methods.
+     */
+    static int size() {
+        return CACHE_NATIVE_QUERY_INFO.size();
     }
 
     /**
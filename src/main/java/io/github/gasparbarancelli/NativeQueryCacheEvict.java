@@ -0,0 +1,37 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that declares the tables written by a native query update method.
+ *
+ * <p>When the annotated method completes, the cached results of every method annotated with
+ * {@link NativeQueryCacheable} that declares one of these tables are evicted. If the method
+ * runs inside a transaction, the eviction is deferred until the transaction commits, and it
+ * does not happen at all if the transaction is rolled back. Results cached for other tables
+ * are kept.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryCacheEvict(tables = "sale")
+ * void updateSaleStatus(@NativeQueryParam("id") Integer id, @NativeQueryParam("status") String status);
+ * }</pre>
+ *
+ * @see NativeQueryCacheable#tables()
+ * @see NativeQueryResultCache
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryCacheEvict {
+
+    /**
+     * The tables written by the annotated method.
+     *
+     * @return The table names, case insensitive.
+     */
+    String[] tables();
+
+}
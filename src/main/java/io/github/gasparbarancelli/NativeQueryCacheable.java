@@ -0,0 +1,68 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation that caches the results of a native query method.
+ *
+ * <p>Unlike Spring's {@code @Cacheable}, which keys on the raw method arguments, the cache
+ * is keyed on the SQL that is actually executed, after template rendering, replacements and
+ * sorting, together with the values of the parameters bound to it and the requested page.
+ * Two invocations that render the same statement with the same values therefore share an
+ * entry, even if they were called with different filter objects.</p>
+ *
+ * <p>Each annotated method has its own bounded, frequency-aware in-process cache, backed by
+ * Caffeine, which must be on the classpath. Cached lists and pages are unmodifiable; the
+ * objects they contain are shared between callers and must not be modified.</p>
+ *
+ * <p>The tables read by the query can be declared with {@link #tables()}. The entries of the
+ * method are then evicted whenever a method annotated with {@link NativeQueryCacheEvict}
+ * writing to one of these tables completes, or, inside a transaction, when that
+ * transaction commits.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryCacheable(ttl = 5, timeUnit = TimeUnit.MINUTES, maximumSize = 500, tables = {"sale", "customer"})
+ * List<SaleCustomerResult> findSalesCustomers(SalesFilter filter);
+ * }</pre>
+ *
+ * @see NativeQueryCacheEvict
+ * @see NativeQueryResultCache
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryCacheable {
+
+    /**
+     * The time an entry stays in the cache after being written.
+     *
+     * @return The time to live, in units of {@link #timeUnit()}.
+     */
+    long ttl() default 60;
+
+    /**
+     * The unit of {@link #ttl()}.
+     *
+     * @return The time unit.
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * The maximum number of entries cached for the annotated method.
+     *
+     * @return The maximum cache size.
+     */
+    long maximumSize() default 1000;
+
+    /**
+     * The tables read by the query, whose writes evict the cached results of the annotated method.
+     *
+     * @return The table names, case insensitive.
+     */
+    String[] tables() default {};
+
+}
@@ -0,0 +1,84 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent executions of methods annotated with {@link NativeQuerySingleFlight}.
+ *
+ * <p>Executions in flight are registered by method and {@link NativeQueryResultKey}. The first
+ * caller of a key executes the query and publishes its result, or its failure, to the callers
+ * that arrive while it is running. The key is released as soon as the query completes, so the
+ * next caller executes the query again.</p>
+ *
+ * @see NativeQuerySingleFlight
+ */
+final class NativeQueryCoalescer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryCoalescer.class);
+
+    private static final Map<Key, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private NativeQueryCoalescer() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Executes the query, or waits for an identical execution that is already in flight.
+     *
+     * @param info  The information of the invoked method, with its parameters set.
+     * @param query Executes the query.
+     * @return The unmodifiable result of the query.
+     */
+    static Object execute(NativeQueryInfo info, Supplier<Object> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            LOGGER.debug("method {} invoked inside a read-write transaction, the query will not be coalesced", info.getMethodKey());
+            return query.get();
+        }
+
+        Key key = new Key(info.getMethodKey(), NativeQueryResultKey.of(info));
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = IN_FLIGHT.putIfAbsent(key, future);
+        if (inFlight != null) {
+            LOGGER.debug("waiting for the identical query of method {} in flight", info.getMethodKey());
+            return join(inFlight);
+        }
+
+        try {
+            Object result = NativeQueryResults.unmodifiable(query.get());
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, future);
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Key(String methodKey, NativeQueryResultKey resultKey) {
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Sets the schema of the tenant on the connection of the {@link NativeQueryTenantSchema} queries
+ * for the duration of a call, and restores the previous schema afterwards.
+ *
+ * <p>For the {@code JdbcTemplate} engine, the connection of the data source is bound to the
+ * thread during the call when it is not already bound by a transaction, so that every query of
+ * the call runs on the connection whose schema was set. For the Hibernate engine, the schema is
+ * set on the connection of the session. Outside a transaction, the shared {@code EntityManager}
+ * may release its connection after each statement, so the query runs in a session of its own,
+ * holding its connection until it is closed.</p>
+ *
+ * @see NativeQueryTenantSchema
+ * @see NativeQueryMethodInterceptorImpl
+ */
+final class NativeQueryConnectionSchema {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryConnectionSchema.class);
+
+    private NativeQueryConnectionSchema() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Runs an action on a connection of a data source set to a schema.
+     *
+     * @param dataSource The data source the action queries.
+     * @param schema     The schema, or {@code null} to run the action as is.
+     * @param action     The action.
+     * @param <T>        The type of the result.
+     * @return The result of the action.
+     */
+    static <T> T run(DataSource dataSource, String schema, Supplier<T> action) {
+        if (schema == null) {
+            return action.get();
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        boolean bind = !TransactionSynchronizationManager.hasResource(dataSource);
+        if (bind) {
+            TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection));
+        }
+        try {
+            String previous = set(connection, schema);
+            try {
+                return action.get();
+            } finally {
+                reset(connection, previous, schema);
+            }
+        } finally {
+            if (bind) {
+                TransactionSynchronizationManager.unbindResource(dataSource);
+            }
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Sets the schema of a connection.
+     *
+     * @param connection The connection.
+     * @param schema     The schema.
+     * @return The previous schema of the connection.
+     */
+    static String set(Connection connection, String schema) {
+        try {
+            String previous = connection.getSchema();
+            if (!schema.equals(previous)) {
+                LOGGER.debug("setting the schema {} on the connection", schema);
+                connection.setSchema(schema);
+            }
+            return previous;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not set the schema " + schema + " on the connection", e);
+        }
+    }
+
+    /**
+     * Restores the schema a connection had before {@link #set(Connection, String)}.
+     *
+     * @param connection The connection.
+     * @param previous   The previous schema.
+     * @param schema     The schema that was set.
+     */
+    static void reset(Connection connection, String previous, String schema) {
+        if (previous == null || Objects.equals(previous, schema)) {
+            return;
+        }
+        try {
+            connection.setSchema(previous);
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not restore the schema " + previous + " on the connection", e);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.github.gasparbarancelli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted when the total number of records of a page is counted.
+ *
+ * @see NativeQueryRenderEvent
+ * @see NativeQueryExecuteEvent
+ */
+@Name("io.github.gasparbarancelli.NativeQueryCount")
+@Label("Native Query Count")
+@Category("Spring Native Query")
+@Description("Execution of the query counting the total number of records of a page")
+@StackTrace(false)
+final class NativeQueryCountEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("SQL Fingerprint")
+    String fingerprint;
+
+    @Label("Total Records")
+    long totalRecords;
+
+    /**
+     * Ends the event and commits it, if it is enabled and lasted longer than its threshold.
+     *
+     * @param info         The information of the paginated method.
+     * @param totalRecords The number of records counted.
+     */
+    void complete(NativeQueryInfo info, long totalRecords) {
+        end();
+        if (shouldCommit()) {
+            method = info.getMethodKey();
+            fingerprint = NativeQueryStringUtils.fingerprint(info.getSql());
+            this.totalRecords = totalRecords;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation choosing the database the queries of a {@link NativeQuery} interface, or of one
+ * of its methods, run on.
+ *
+ * <p>The value is the name of a {@code DataSource}, {@code JdbcTemplate} or
+ * {@code NamedParameterJdbcTemplate} bean. Methods annotated with {@link NativeQueryUseJdbcTemplate}
+ * run with that template, or with a template over that data source. The other methods run with
+ * Hibernate in a session opened on a connection of that data source, and their updates run with a
+ * template over it. Both join a Spring transaction bound to that data source, if any, and are
+ * independent of the transaction of the primary data source. An annotation on a method takes
+ * precedence over the annotation on its interface.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryDataSource("reportingDataSource")
+ * public interface ReportNativeQuery extends NativeQuery {
+ *
+ *     @NativeQueryUseJdbcTemplate
+ *     List<SaleReport> findSales();
+ *
+ *     @NativeQueryDataSource("archiveJdbcTemplate")
+ *     @NativeQueryUseJdbcTemplate
+ *     List<SaleReport> findArchivedSales();
+ *
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryReadOnly
+ * @see NativeQueryBeans
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryDataSource {
+
+    /**
+     * The name of the {@code DataSource}, {@code JdbcTemplate} or {@code NamedParameterJdbcTemplate} bean.
+     *
+     * @return The bean name.
+     */
+    String value();
+
+}
@@ -0,0 +1,155 @@
+package io.github.gasparbarancelli;
+
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerTemplateEngineSQLProcessor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint describing the registered {@link NativeQuery} interfaces, exposed as
+ * {@code /actuator/nativequery}.
+ *
+ * <p>For every method of every interface registered by {@link NativeQueryRegistryImpl}, the
+ * endpoint shows the engine executing it, the template of its SQL and whether that template is
+ * static, that is, free of any Freemarker directive, interpolation or replacement. It also shows
+ * the statistics recorded by {@link NativeQueryStatistics} and, for methods annotated with
+ * {@link NativeQueryCacheable}, the statistics of their result cache, along with the sizes of the
+ * metadata cache and of the caches of the parsed SQL templates.</p>
+ *
+ * @see NativeQueryEndpointAutoConfiguration
+ * @see NativeQueryStatistics
+ */
+@Endpoint(id = "nativequery")
+public class NativeQueryEndpoint {
+
+    private static final boolean RESULT_CACHE_PRESENT = ClassUtils.isPresent(
+            "com.github.benmanes.caffeine.cache.Caffeine", NativeQueryEndpoint.class.getClassLoader()
+    );
+
+    private final NativeQueryStatistics statistics;
+
+    /**
+     * Creates the endpoint.
+     *
+     * @param statistics The statistics of the invocations.
+     */
+    public NativeQueryEndpoint(NativeQueryStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Describes the registered interfaces and the caches of the library.
+     *
+     * @return The description of the native queries.
+     */
+    @ReadOperation
+    public NativeQueryDescriptor nativeQuery() {
+        Map<String, NativeQueryResultCache.Statistics> resultCaches = RESULT_CACHE_PRESENT
+                ? NativeQueryResultCache.getStatistics()
+                : Map.of();
+        List<InterfaceDescriptor> interfaces = NativeQueryRegistryImpl.getRegisteredInterfaces().stream()
+                .sorted(Comparator.comparing(Class::getName))
+                .map(classe -> new InterfaceDescriptor(classe.getName(), methods(classe, resultCaches)))
+                .toList();
+        return new NativeQueryDescriptor(
+                NativeQueryCache.size(),
+                FreemarkerTemplateEngineSQLProcessor.getFileTemplateCount(),
+                FreemarkerTemplateEngineSQLProcessor.getInlineTemplateCount(),
+                resultCaches.size(),
+                interfaces
+        );
+    }
+
+    private List<MethodDescriptor> methods(Class<? extends NativeQuery> classe, Map<String, NativeQueryResultCache.Statistics> resultCaches) {
+        return Arrays.stream(classe.getMethods())
+                .filter(method -> !method.isDefault() && !Modifier.isStatic(method.getModifiers()))
+                .sorted(Comparator.comparing(Method::getName).thenComparing(Method::getParameterCount))
+                .map(method -> {
+                    String methodKey = NativeQueryInfo.methodKey(classe, method);
+                    String template = method.isAnnotationPresent(NativeQuerySql.class)
+                            ? "inline"
+                            : NativeQueryInfo.templateFile(classe, method);
+                    return new MethodDescriptor(
+                            methodKey,
+                            method.isAnnotationPresent(NativeQueryUseJdbcTemplate.class) ? "jdbc" : "hibernate",
+                            template,
+                            isStaticTemplate(classe, method),
+                            statistics.get(classe, method),
+                            resultCaches.get(methodKey)
+                    );
+                })
+                .toList();
+    }
+
+    private static Boolean isStaticTemplate(Class<? extends NativeQuery> classe, Method method) {
+        if (method.isAnnotationPresent(NativeQueryReplaceSql.class)) {
+            return false;
+        }
+        String source = templateSource(classe, method);
+        if (source == null) {
+            return null;
+        }
+        return FreemarkerTemplateEngineSQLProcessor.isStatic(source);
+    }
+
+    private static String templateSource(Class<? extends NativeQuery> classe, Method method) {
+        if (method.isAnnotationPresent(NativeQuerySql.class)) {
+            return method.getAnnotation(NativeQuerySql.class).value();
+        }
+        String file = NativeQueryInfo.templateFile(classe, method);
+        try (InputStream inputStream = classe.getClassLoader().getResourceAsStream(file.startsWith("/") ? file.substring(1) : file)) {
+            return inputStream == null ? null : StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The description of the native queries.
+     *
+     * @param metadataCacheSize       The number of methods whose metadata is cached by {@link NativeQueryCache}.
+     * @param fileTemplateCacheSize   The number of SQL template files loaded and kept by the template engine.
+     * @param inlineTemplateCacheSize The number of inline SQL templates parsed and kept by the template engine.
+     * @param resultCacheCount        The number of methods having a result cache.
+     * @param interfaces              The registered interfaces.
+     */
+    public record NativeQueryDescriptor(int metadataCacheSize, int fileTemplateCacheSize, int inlineTemplateCacheSize,
+                                        int resultCacheCount, List<InterfaceDescriptor> interfaces) {
+    }
+
+    /**
+     * The description of a registered interface.
+     *
+     * @param name    The name of the interface.
+     * @param methods The methods of the interface.
+     */
+    public record InterfaceDescriptor(String name, List<MethodDescriptor> methods) {
+    }
+
+    /**
+     * The description of a method.
+     *
+     * @param key            The {@linkplain NativeQueryInfo#getMethodKey() key} of the method.
+     * @param engine         {@code jdbc} for methods annotated with {@link NativeQueryUseJdbcTemplate}, {@code hibernate} otherwise.
+     * @param template       The path of the SQL file, or {@code inline} for SQL declared with {@link NativeQuerySql}.
+     * @param staticTemplate Whether the template renders the same SQL whatever the arguments, or {@code null} if its file was not found.
+     * @param statistics     The statistics of the invocations.
+     * @param resultCache    The statistics of the result cache, or {@code null} if the method has none.
+     */
+    public record MethodDescriptor(String key, String engine, String template, Boolean staticTemplate,
+                                   NativeQueryStatistics.Snapshot statistics,
+                                   NativeQueryResultCache.Statistics resultCache) {
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.github.gasparbarancelli;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Auto-configuration of the {@link NativeQueryEndpoint}, when Spring Boot Actuator is on the classpath.
+ *
+ * <p>The endpoint, and the {@link NativeQueryStatistics} listener timing every invocation for it,
+ * are only registered when the endpoint is available, that is, enabled and exposed, for example
+ * with {@code management.endpoints.web.exposure.include=nativequery}.</p>
+ *
+ * @see NativeQueryEndpoint
+ * @see NativeQueryStatistics
+ */
+@AutoConfiguration
+@ConditionalOnClass(name = "org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint")
+public class NativeQueryEndpointAutoConfiguration {
+
+    /**
+     * Creates the listener keeping the statistics shown by the endpoint.
+     *
+     * @return The statistics listener.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint(NativeQueryEndpoint.class)
+    public NativeQueryStatistics nativeQueryStatistics() {
+        return new NativeQueryStatistics();
+    }
+
+    /**
+     * Creates the endpoint.
+     *
+     * @param statistics The statistics of the invocations.
+     * @return The endpoint.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint(NativeQueryEndpoint.class)
+    public NativeQueryEndpoint nativeQueryEndpoint(NativeQueryStatistics statistics) {
+        return new NativeQueryEndpoint(statistics);
+    }
+
+}
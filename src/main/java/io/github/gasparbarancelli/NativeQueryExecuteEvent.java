@@ -0,0 +1,58 @@
+package io.github.gasparbarancelli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted when the SQL of a method is executed, including the
+ * mapping of its rows and, for pages, the count query.
+ *
+ * <p>The SQL is recorded as its {@linkplain NativeQueryStringUtils#fingerprint(String) fingerprint},
+ * which is only computed when the event is committed.</p>
+ *
+ * @see NativeQueryRenderEvent
+ * @see NativeQueryCountEvent
+ */
+@Name("io.github.gasparbarancelli.NativeQueryExecute")
+@Label("Native Query Execute")
+@Category("Spring Native Query")
+@Description("Execution of the SQL of a native query method")
+@StackTrace(false)
+final class NativeQueryExecuteEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Engine")
+    @Description("hibernate or jdbc")
+    String engine;
+
+    @Label("SQL Fingerprint")
+    String fingerprint;
+
+    @Label("Rows")
+    @Description("Number of rows returned, or -1 for updates and reactive results")
+    int rows;
+
+    /**
+     * Ends the event and commits it, if it is enabled and lasted longer than its threshold.
+     *
+     * @param info   The information of the executed method.
+     * @param result The result of the query.
+     */
+    void complete(NativeQueryInfo info, Object result) {
+        end();
+        if (shouldCommit()) {
+            method = info.getMethodKey();
+            engine = info.isUseJdbcTemplate() ? "jdbc" : "hibernate";
+            fingerprint = NativeQueryStringUtils.fingerprint(info.getSql());
+            rows = NativeQueryResults.rows(info, result);
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * The invocation of a {@link NativeQuery} method, as seen by the {@link NativeQueryListener}s.
+ *
+ * <p>An execution is started by the proxy for every invocation. It times the
+ * {@linkplain NativeQueryPhase phases} of the invocation and notifies the registered
+ * listeners. When no listener is registered, no execution is started: the invocation runs
+ * without allocating one, reading the clock nor wrapping its phases.</p>
+ *
+ * @see NativeQueryListener
+ * @see NativeQueryPhase
+ */
+public final class NativeQueryExecution {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryExecution.class);
+
+    private static final NativeQueryListener[] NO_LISTENERS = new NativeQueryListener[0];
+
+    private static volatile NativeQueryListener[] registeredListeners = NO_LISTENERS;
+
+    /**
+     * An execution without listeners, used when a query runs outside of a proxy invocation.
+     */
+    static final NativeQueryExecution NONE = new NativeQueryExecution(null, null, NO_LISTENERS);
+
+    private final Class<? extends NativeQuery> nativeQueryInterface;
+
+    private final Method method;
+
+    private final NativeQueryListener[] listeners;
+
+    private final long[] phaseNanos = new long[NativeQueryPhase.values().length];
+
+    private final long startNanos;
+
+    private final String engine;
+
+    private NativeQueryInfo info;
+
+    private int rows = -1;
+
+    private DataSource dataSource;
+
+    private NativeQueryExecution(Class<? extends NativeQuery> nativeQueryInterface, Method method, NativeQueryListener[] listeners) {
+        this.nativeQueryInterface = nativeQueryInterface;
+        this.method = method;
+        this.listeners = listeners;
+        this.startNanos = listeners.length == 0 ? 0L : System.nanoTime();
+        this.engine = method != null && method.isAnnotationPresent(NativeQueryUseJdbcTemplate.class) ? "jdbc" : "hibernate";
+    }
+
+    /**
+     * Replaces the registered listeners.
+     *
+     * @param listeners The listeners notified of every invocation.
+     */
+    static void setListeners(Collection<? extends NativeQueryListener> listeners) {
+        LOGGER.debug("registering {} native query listeners", listeners.size());
+        registeredListeners = listeners.toArray(NO_LISTENERS);
+    }
+
+    /**
+     * Indicates whether the invocations are observed by at least one listener, that is, whether
+     * an execution must be {@linkplain #start(Class, Method) started} for them.
+     *
+     * @return {@code true} if a listener is registered.
+     */
+    static boolean isObserved() {
+        return registeredListeners.length > 0;
+    }
+
+    /**
+     * Starts the execution of an invocation.
+     *
+     * @param nativeQueryInterface The invoked interface.
+     * @param method               The invoked method.
+     * @return The execution of the invocation.
+     */
+    static NativeQueryExecution start(Class<? extends NativeQuery> nativeQueryInterface, Method method) {
+        return new NativeQueryExecution(nativeQueryInterface, method, registeredListeners);
+    }
+
+    /**
+     * Indicates whether the invocation is observed by at least one listener.
+     *
+     * @return {@code true} if the phases are timed.
+     */
+    boolean isEnabled() {
+        return listeners.length > 0;
+    }
+
+    /**
+     * Executes a phase of the invocation, timing it and notifying the listeners.
+     *
+     * @param phase  The phase.
+     * @param action The work done in the phase.
+     * @param <T>    The type of the result of the phase.
+     * @return The result of the phase.
+     */
+    <T> T phase(NativeQueryPhase phase, Supplier<T> action) {
+        if (listeners.length == 0) {
+            return action.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            long duration = System.nanoTime() - start;
+            phaseNanos[phase.ordinal()] += duration;
+            for (NativeQueryListener listener : listeners) {
+                listener.onPhase(this, phase, duration);
+            }
+        }
+    }
+
+    /**
+     * Adds time to a phase that is measured in several parts, such as the mapping of each row.
+     * The listeners are notified of the accumulated duration when the invocation completes.
+     *
+     * @param phase The phase.
+     * @param nanos The time spent, in nanoseconds.
+     */
+    void accumulate(NativeQueryPhase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Executes the query of the invocation and notifies the listeners of its completion.
+     *
+     * @param action Executes the query.
+     * @return The result of the query.
+     */
+    Object run(Supplier<Object> action) {
+        if (listeners.length == 0) {
+            return action.get();
+        }
+        Throwable error = null;
+        try {
+            Object result = action.get();
+            rows = NativeQueryResults.rows(info, result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - startNanos;
+            long mapNanos = phaseNanos[NativeQueryPhase.MAP.ordinal()];
+            for (NativeQueryListener listener : listeners) {
+                if (mapNanos > 0) {
+                    listener.onPhase(this, NativeQueryPhase.MAP, mapNanos);
+                }
+                listener.onCompleted(this, duration, error);
+            }
+        }
+    }
+
+    void setInfo(NativeQueryInfo info) {
+        this.info = info;
+    }
+
+    void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Returns the invoked interface.
+     *
+     * @return The {@link NativeQuery} interface.
+     */
+    public Class<? extends NativeQuery> getNativeQueryInterface() {
+        return nativeQueryInterface;
+    }
+
+    /**
+     * Returns the invoked method.
+     *
+     * @return The method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the information of the invocation, available once the {@link NativeQueryPhase#METADATA} phase ended.
+     *
+     * @return The query information, or {@code null} before the metadata phase ended.
+     */
+    public NativeQueryInfo getInfo() {
+        return info;
+    }
+
+    /**
+     * Returns the engine executing the query.
+     *
+     * @return {@code jdbc} for methods annotated with {@link NativeQueryUseJdbcTemplate}, {@code hibernate} otherwise.
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the time spent so far in a phase.
+     *
+     * @param phase The phase.
+     * @return The accumulated duration of the phase, in nanoseconds.
+     */
+    public long getPhaseNanos(NativeQueryPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the data source the query ran on, which is the replica, the shard or the pool of the
+     * tenant chosen for the invocation, if any.
+     *
+     * @return The data source, or {@code null} if the query ran with the default Hibernate session.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Returns the schema set on the connection of the query, for the methods annotated with
+     * {@link NativeQueryTenantSchema}.
+     *
+     * @return The schema, or {@code null} if the query ran in the default schema of the connection.
+     */
+    public String getSchema() {
+        return info != null ? info.getConnectionSchema() : null;
+    }
+
+    /**
+     * Returns the number of rows returned by the query, available once the invocation completed.
+     *
+     * @return The number of rows, or {@code -1} if unknown, as for updates and reactive results.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+}
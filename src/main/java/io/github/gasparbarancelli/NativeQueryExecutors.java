@@ -0,0 +1,147 @@
+package io.github.gasparbarancelli;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pool of threads running the queries that do not run on the calling thread, that is, the
+ * invocations of a {@link NativeQueryBatch}, the hedged attempts of the {@link NativeQueryHedged}
+ * methods and the queries scattered to the shards of a {@link NativeQueryShardRouter}.
+ *
+ * <p>Each of these queries holds a connection, so the pool is bounded, by default to
+ * {@value #DEFAULT_MAX_THREADS} threads, the default size of a HikariCP pool, and queues no task.
+ * The bound is configured with the {@code native-query.executor.max-threads} property.
+ * When every thread is busy, the batches and the scattered queries run their queries on the
+ * calling thread, see {@link #callerRunsWhenBusy()}, and the queries are not hedged.</p>
+ *
+ * <p>A query run on the calling thread must not join the transaction bound to it, since it would
+ * then share its connection and see its uncommitted changes, unlike the queries run on the pool.
+ * The transaction is therefore suspended while the query runs, as with
+ * {@code Propagation.NOT_SUPPORTED}, and resumed afterwards.</p>
+ *
+ * @see NativeQueryBatch
+ * @see NativeQueryHedging
+ * @see NativeQueryScatterGather
+ */
+final class NativeQueryExecutors {
+
+    static final int DEFAULT_MAX_THREADS = 10;
+
+    private NativeQueryExecutors() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns the pool, which rejects the tasks when every thread is busy.
+     *
+     * @return The pool.
+     */
+    static ThreadPoolExecutor pool() {
+        return PoolHolder.POOL;
+    }
+
+    /**
+     * Sets the maximum number of threads of the pool.
+     *
+     * @param maxThreads The maximum number of threads, at least one.
+     */
+    static void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("max-threads must be greater than zero");
+        }
+        PoolHolder.POOL.setMaximumPoolSize(maxThreads);
+    }
+
+    /**
+     * Returns an executor running the tasks on the pool, or on the calling thread when every
+     * thread of the pool is busy.
+     *
+     * @return The executor.
+     */
+    static Executor callerRunsWhenBusy() {
+        return PoolHolder.CALLER_RUNS_WHEN_BUSY;
+    }
+
+    private static class PoolHolder {
+
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+        private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(0, DEFAULT_MAX_THREADS,
+                60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "native-query-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private static final Executor CALLER_RUNS_WHEN_BUSY = task -> {
+            try {
+                POOL.execute(task);
+            } catch (RejectedExecutionException e) {
+                runOutsideTransaction(task);
+            }
+        };
+
+    }
+
+    /**
+     * Runs a task on the calling thread with the transaction bound to it suspended, the same way
+     * as {@code AbstractPlatformTransactionManager} suspends a transaction.
+     *
+     * @param task The task.
+     */
+    static void runOutsideTransaction(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.getResourceMap().isEmpty()) {
+            task.run();
+            return;
+        }
+        boolean synchronizationActive = TransactionSynchronizationManager.isSynchronizationActive();
+        List<TransactionSynchronization> synchronizations = List.of();
+        if (synchronizationActive) {
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(TransactionSynchronization::suspend);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Map<Object, Object> resources = new LinkedHashMap<>(TransactionSynchronizationManager.getResourceMap());
+        resources.keySet().forEach(TransactionSynchronizationManager::unbindResourceIfPossible);
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        Integer isolationLevel = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        boolean active = TransactionSynchronizationManager.isActualTransactionActive();
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionIsolationLevel(null);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        try {
+            task.run();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionName(name);
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+            TransactionSynchronizationManager.setCurrentTransactionIsolationLevel(isolationLevel);
+            TransactionSynchronizationManager.setActualTransactionActive(active);
+            resources.forEach((key, value) -> {
+                if (!TransactionSynchronizationManager.hasResource(key)) {
+                    TransactionSynchronizationManager.bindResource(key, value);
+                }
+            });
+            if (synchronizationActive) {
+                TransactionSynchronizationManager.initSynchronization();
+                for (TransactionSynchronization synchronization : synchronizations) {
+                    synchronization.resume();
+                    TransactionSynchronizationManager.registerSynchronization(synchronization);
+                }
+            }
+        }
+    }
+
+}
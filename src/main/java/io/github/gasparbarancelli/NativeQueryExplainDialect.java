@@ -0,0 +1,78 @@
+package io.github.gasparbarancelli;
+
+import java.util.Locale;
+
+/**
+ * Describes how to obtain the execution plan of a query from a database.
+ *
+ * <p>The built-in dialects cover H2, PostgreSQL and MySQL. Other databases can be supported by
+ * registering a bean implementing this interface, which takes precedence over the built-in
+ * dialects.</p>
+ *
+ * <p>Example implementation:</p>
+ * <pre>{@code
+ * @Bean
+ * public NativeQueryExplainDialect postgresqlJsonExplainDialect() {
+ *     return NativeQueryExplainDialect.of("PostgreSQL", "EXPLAIN (FORMAT JSON) ");
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryExplainer
+ */
+public interface NativeQueryExplainDialect {
+
+    /**
+     * The H2 dialect.
+     */
+    NativeQueryExplainDialect H2 = of("H2", "EXPLAIN ");
+
+    /**
+     * The PostgreSQL dialect.
+     */
+    NativeQueryExplainDialect POSTGRESQL = of("PostgreSQL", "EXPLAIN ");
+
+    /**
+     * The MySQL and MariaDB dialect.
+     */
+    NativeQueryExplainDialect MYSQL = of("MySQL", "EXPLAIN ");
+
+    /**
+     * Indicates whether the dialect applies to a database.
+     *
+     * @param databaseProductName The product name reported by the JDBC driver.
+     * @return {@code true} if the dialect applies to the database.
+     */
+    boolean supports(String databaseProductName);
+
+    /**
+     * Returns the statement obtaining the plan of a query.
+     *
+     * @param sql The query, with its named parameters.
+     * @return The statement returning the plan, with the same named parameters.
+     */
+    String explain(String sql);
+
+    /**
+     * Creates a dialect prefixing the query with a statement.
+     *
+     * @param databaseProductName The product name reported by the JDBC driver, compared ignoring case.
+     * @param prefix              The prefix of the query, for example {@code EXPLAIN }.
+     * @return The dialect.
+     */
+    static NativeQueryExplainDialect of(String databaseProductName, String prefix) {
+        return new NativeQueryExplainDialect() {
+
+            @Override
+            public boolean supports(String productName) {
+                return productName != null && productName.toLowerCase(Locale.ROOT).startsWith(databaseProductName.toLowerCase(Locale.ROOT));
+            }
+
+            @Override
+            public String explain(String sql) {
+                return prefix + sql;
+            }
+
+        };
+    }
+
+}
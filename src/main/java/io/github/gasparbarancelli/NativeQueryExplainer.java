@@ -0,0 +1,158 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Captures the execution plan of queries, asynchronously and on a connection of its own.
+ *
+ * <p>The plan is obtained by running the {@linkplain NativeQueryExplainDialect dialect} statement
+ * of the database on the rendered SQL, with the same parameters, on the data source the query ran
+ * on and in the schema set on its connection, if any, see {@link NativeQueryExecution#getDataSource()}.
+ * The default data source is used when the query ran with the default Hibernate session, whose
+ * data source is not known. Only queries are explained,
+ * statements such as updates are ignored. A single background thread explains the queries, and
+ * when it lags behind, new requests are dropped rather than queued, so that capturing plans never
+ * slows down the application.</p>
+ *
+ * @see NativeQuerySlowQueryListener
+ * @see NativeQueryExplainDialect
+ */
+public class NativeQueryExplainer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryExplainer.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final DataSource dataSource;
+
+    private final List<NativeQueryExplainDialect> dialects;
+
+    private final double sampleRate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<DataSource, Optional<NativeQueryExplainDialect>> dialectsByDataSource = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Creates an explainer.
+     *
+     * @param dataSource The data source the plans are obtained from when the data source of the query is not known.
+     * @param dialects   The custom dialects, tried before the built-in ones.
+     * @param sampleRate The ratio of the requests that are explained, between {@code 0.0} and {@code 1.0}.
+     */
+    public NativeQueryExplainer(DataSource dataSource, List<NativeQueryExplainDialect> dialects, double sampleRate) {
+        this.dataSource = dataSource;
+        this.dialects = new ArrayList<>(dialects);
+        this.dialects.addAll(List.of(NativeQueryExplainDialect.H2, NativeQueryExplainDialect.POSTGRESQL, NativeQueryExplainDialect.MYSQL));
+        this.sampleRate = sampleRate;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), runnable -> {
+            Thread thread = new Thread(runnable, "native-query-explain-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Requests the plan of a query run on the default data source, if it is sampled.
+     *
+     * @param sql        The rendered SQL of the query.
+     * @param parameters The parameters bound to the SQL.
+     * @param plan       Receives the plan, on the thread of the explainer, once it is obtained.
+     */
+    void explain(String sql, Map<String, Object> parameters, Consumer<String> plan) {
+        explain(sql, parameters, null, null, plan);
+    }
+
+    /**
+     * Requests the plan of a query, if it is sampled.
+     *
+     * @param sql        The rendered SQL of the query.
+     * @param parameters The parameters bound to the SQL.
+     * @param dataSource The data source the query ran on, or {@code null} for the default one.
+     * @param schema     The schema set on the connection of the query, or {@code null}.
+     * @param plan       Receives the plan, on the thread of the explainer, once it is obtained.
+     */
+    void explain(String sql, Map<String, Object> parameters, DataSource dataSource, String schema, Consumer<String> plan) {
+        if (!isQuery(sql) || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        DataSource target = dataSource != null ? dataSource : this.dataSource;
+        executor.execute(() -> {
+            try {
+                NativeQueryExplainDialect explainDialect = getDialect(target);
+                if (explainDialect != null) {
+                    NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(target);
+                    plan.accept(NativeQueryConnectionSchema.run(target, schema, () -> jdbcTemplate.query(explainDialect.explain(sql), parameters, rs -> {
+                        ResultSetMetaData metaData = rs.getMetaData();
+                        StringJoiner rows = new StringJoiner(System.lineSeparator());
+                        while (rs.next()) {
+                            StringJoiner columns = new StringJoiner(" | ");
+                            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                                columns.add(String.valueOf(rs.getObject(i)));
+                            }
+                            rows.add(columns.toString());
+                        }
+                        return rows.toString();
+                    })));
+                }
+            } catch (RuntimeException e) {
+                LOGGER.debug("could not obtain the plan of the query {}", sql, e);
+            }
+        });
+    }
+
+    private NativeQueryExplainDialect getDialect(DataSource target) {
+        Optional<NativeQueryExplainDialect> dialect = dialectsByDataSource.get(target);
+        if (dialect == null) {
+            try {
+                String productName = JdbcUtils.extractDatabaseMetaData(target, DatabaseMetaData::getDatabaseProductName);
+                dialect = dialects.stream()
+                        .filter(d -> d.supports(productName))
+                        .findFirst();
+                if (dialect.isEmpty()) {
+                    LOGGER.debug("no explain dialect supports the database {}", productName);
+                }
+                dialectsByDataSource.put(target, dialect);
+            } catch (MetaDataAccessException e) {
+                LOGGER.debug("could not obtain the name of the database", e);
+                return null;
+            }
+        }
+        return dialect.orElse(null);
+    }
+
+    private static boolean isQuery(String sql) {
+        String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return statement.startsWith("select") || statement.startsWith("with");
+    }
+
+    /**
+     * Stops the thread of the explainer, dropping the pending requests.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,63 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation that hedges the queries of a {@linkplain NativeQueryReadOnly read-only} method
+ * across the replicas of the {@link NativeQueryReplicaRouter}.
+ *
+ * <p>The query runs on a first replica. When it has not returned after a delay, the same query is
+ * sent to another replica, and the first of the two results is returned, while the other query is
+ * cancelled with {@link java.sql.Statement#cancel()}. A replica that stalls then costs the delay
+ * instead of the whole stall, which cuts the tail latency of the method at the price of a few
+ * duplicated queries.</p>
+ *
+ * <p>The delay is the given {@link #percentile()} of the latencies observed for the method during
+ * the last minutes, so that only the slowest queries are hedged. Until enough latencies are
+ * observed, the {@link #delay()} is used instead.</p>
+ *
+ * <p>Hedging applies to the methods annotated with {@link NativeQueryUseJdbcTemplate} that return
+ * a result, when the router has at least two replicas. Other invocations, for example those made
+ * inside a read-write transaction, run as usual.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryReadOnly
+ * @NativeQueryHedged(percentile = 0.99)
+ * @NativeQueryUseJdbcTemplate
+ * Optional<CustomerResult> findCustomer(@NativeQueryParam("id") Long id);
+ * }</pre>
+ *
+ * @see NativeQueryHedging
+ * @see NativeQueryReplicaRouter
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryHedged {
+
+    /**
+     * The percentile of the observed latencies after which the query is hedged.
+     *
+     * @return A percentile, between {@code 0.0} and {@code 1.0}.
+     */
+    double percentile() default 0.95;
+
+    /**
+     * The delay after which the query is hedged, until enough latencies are observed.
+     *
+     * @return The initial delay.
+     */
+    long delay() default 50;
+
+    /**
+     * The unit of the {@link #delay() delay}.
+     *
+     * @return The time unit.
+     */
+    TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+}
@@ -0,0 +1,298 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hedges the queries of the methods annotated with {@link NativeQueryHedged} across the replicas
+ * of a {@link NativeQueryReplicaRouter}.
+ *
+ * <p>The first attempt runs on the calling thread, on the replica chosen by the router. A timer
+ * starts a second attempt on another replica, on a thread of its own, once the hedging delay has
+ * elapsed. The first attempt to return wins and cancels the statement of the other one; when an
+ * attempt fails, the result of the other one is awaited. The queries that complete within the
+ * delay therefore run exactly as they would without hedging.</p>
+ *
+ * <p>The latency of the first attempt is recorded per method whether it wins or not, in a
+ * {@link NativeQueryLatencyHistogram} of the last {@link #LATENCY_WINDOW}, whose percentile
+ * gives the delay once {@value #MIN_SAMPLES} latencies have been observed. When the second
+ * attempt wins, the first one is recorded as lasting until it was cancelled: only recording the
+ * winners would leave out the slow queries, and lower the delay with every hedge.</p>
+ *
+ * <p>The second attempts run on the threads of {@link NativeQueryExecutors#pool()}, and the
+ * query is not hedged when every thread is busy.</p>
+ *
+ * @see NativeQueryHedged
+ * @see NativeQueryMethodInterceptorImpl
+ */
+final class NativeQueryHedging {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryHedging.class);
+
+    static final int MIN_SAMPLES = 100;
+
+    static final Duration LATENCY_WINDOW = Duration.ofMinutes(1);
+
+    private static final Map<String, NativeQueryLatencyHistogram> LATENCIES = new ConcurrentHashMap<>();
+
+    private NativeQueryHedging() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Executes a query on the replicas, hedging it when the first replica is too slow.
+     *
+     * @param info      The information of the invoked method, with its parameters set.
+     * @param router    The router choosing the replicas.
+     * @param rowMapper Maps the rows of the result.
+     * @return The rows returned by the first replica to answer.
+     */
+    static List<?> query(NativeQueryInfo info, NativeQueryReplicaRouter router, RowMapper<?> rowMapper) {
+        NativeQueryLatencyHistogram latencies = LATENCIES.computeIfAbsent(info.getMethodKey(), key -> new NativeQueryLatencyHistogram(LATENCY_WINDOW));
+        PreparedStatementCreator creator = preparedStatementCreator(info.getSql(), info.getBoundParameters());
+        Race race = new Race(router.acquire(), creator, rowMapper, info.getConnectionSchema());
+        long delay = delay(info.getHedged(), latencies);
+        ScheduledFuture<?> timer = ExecutorHolder.TIMER.schedule(() -> race.hedge(router, info), delay, TimeUnit.NANOSECONDS);
+        Attempt hedge;
+        try {
+            List<?> rows = race.primary.run();
+            setDataSource(info, race.primary);
+            hedge = race.finish(timer);
+            latencies.record(race.primary.elapsed);
+            if (race.win() && hedge != null) {
+                hedge.cancel();
+            }
+            return rows;
+        } catch (RuntimeException e) {
+            hedge = race.finish(timer);
+            if (race.primary.cancelled) {
+                // the second attempt won, the first one lasted at least until then
+                latencies.record(race.primary.elapsed);
+            }
+            if (hedge == null) {
+                throw e;
+            }
+            LOGGER.debug("query of method {} failed on replica {}, waiting for the hedged query", info.getMethodKey(), race.primary.lease.getIndex());
+            try {
+                List<?> rows = hedge.result.join();
+                setDataSource(info, hedge);
+                return rows;
+            } catch (CompletionException hedgeFailure) {
+                e.addSuppressed(hedgeFailure.getCause());
+                throw e;
+            }
+        } finally {
+            race.primary.lease.close();
+        }
+    }
+
+    /**
+     * Returns the latencies observed for a method.
+     *
+     * @param methodKey The {@link NativeQueryInfo#getMethodKey() key} of the method.
+     * @return The latencies, or {@code null} if the method was never hedged.
+     */
+    static NativeQueryLatencyHistogram getLatencies(String methodKey) {
+        return LATENCIES.get(methodKey);
+    }
+
+    private static void setDataSource(NativeQueryInfo info, Attempt attempt) {
+        NativeQueryExecution execution = info.getExecution();
+        if (execution.isEnabled()) {
+            execution.setDataSource(attempt.lease.getJdbcTemplate().getJdbcTemplate().getDataSource());
+        }
+    }
+
+    /**
+     * Returns the delay after which a query is hedged.
+     *
+     * @param hedged    The hedging of the method.
+     * @param latencies The latencies observed for the method.
+     * @return The delay, in nanoseconds.
+     */
+    static long delay(NativeQueryHedged hedged, NativeQueryLatencyHistogram latencies) {
+        if (latencies.getCount() < MIN_SAMPLES) {
+            return hedged.timeUnit().toNanos(hedged.delay());
+        }
+        return latencies.percentile(hedged.percentile());
+    }
+
+    private static PreparedStatementCreator preparedStatementCreator(String sql, Map<String, Object> parameters) {
+        // the same steps as NamedParameterJdbcTemplate, so that each attempt can keep its statement
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource(parameters);
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, parameterSource);
+        PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(sqlToUse,
+                NamedParameterUtils.buildSqlParameterList(parsedSql, parameterSource));
+        return factory.newPreparedStatementCreator(NamedParameterUtils.buildValueArray(parsedSql, parameterSource, null));
+    }
+
+    /**
+     * The attempts of a query, of which the first to return wins.
+     */
+    private static final class Race {
+
+        private final Attempt primary;
+
+        private final PreparedStatementCreator creator;
+
+        private final RowMapper<?> rowMapper;
+
+        private final String schema;
+
+        private final AtomicBoolean won = new AtomicBoolean();
+
+        private Attempt hedge;
+
+        private boolean finished;
+
+        private Race(NativeQueryReplicaRouter.Lease lease, PreparedStatementCreator creator, RowMapper<?> rowMapper, String schema) {
+            this.creator = creator;
+            this.rowMapper = rowMapper;
+            this.schema = schema;
+            this.primary = new Attempt(lease, this);
+        }
+
+        /**
+         * Starts the second attempt, unless the first one has already returned.
+         */
+        private void hedge(NativeQueryReplicaRouter router, NativeQueryInfo info) {
+            Attempt attempt;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                attempt = new Attempt(router.acquire(primary.lease.getIndex()), this);
+                hedge = attempt;
+            }
+            LOGGER.debug("hedging the query of method {} on replica {}", info.getMethodKey(), attempt.lease.getIndex());
+            try {
+                NativeQueryExecutors.pool().execute(() -> {
+                    try {
+                        List<?> rows = attempt.run();
+                        attempt.result.complete(rows);
+                        if (win()) {
+                            primary.cancel();
+                        }
+                    } catch (RuntimeException e) {
+                        attempt.result.completeExceptionally(e);
+                    } finally {
+                        attempt.lease.close();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("no thread is available to hedge the query of method {}", info.getMethodKey());
+                attempt.result.completeExceptionally(e);
+                attempt.lease.close();
+            }
+        }
+
+        /**
+         * Prevents the second attempt from starting, once the first one has returned or failed.
+         *
+         * @return The second attempt, or {@code null} if it was not started.
+         */
+        private synchronized Attempt finish(ScheduledFuture<?> timer) {
+            timer.cancel(false);
+            finished = true;
+            return hedge;
+        }
+
+        private boolean win() {
+            return won.compareAndSet(false, true);
+        }
+
+    }
+
+    /**
+     * An execution of the query on one replica.
+     */
+    private static final class Attempt {
+
+        private final NativeQueryReplicaRouter.Lease lease;
+
+        private final Race race;
+
+        private final CompletableFuture<List<?>> result = new CompletableFuture<>();
+
+        private volatile Statement statement;
+
+        private volatile boolean cancelled;
+
+        private long elapsed;
+
+        private Attempt(NativeQueryReplicaRouter.Lease lease, Race race) {
+            this.lease = lease;
+            this.race = race;
+        }
+
+        private List<?> run() {
+            long start = System.nanoTime();
+            JdbcTemplate jdbcTemplate = lease.getJdbcTemplate().getJdbcTemplate();
+            try {
+                return NativeQueryConnectionSchema.run(jdbcTemplate.getDataSource(), race.schema, () -> jdbcTemplate.query(connection -> {
+                    PreparedStatement created = race.creator.createPreparedStatement(connection);
+                    statement = created;
+                    if (cancelled) {
+                        created.cancel();
+                    }
+                    return created;
+                }, new RowMapperResultSetExtractor<>(race.rowMapper)));
+            } finally {
+                elapsed = System.nanoTime() - start;
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Statement running = statement;
+            if (running != null) {
+                try {
+                    running.cancel();
+                } catch (SQLException e) {
+                    LOGGER.debug("the statement on replica {} could not be cancelled", lease.getIndex(), e);
+                }
+            }
+        }
+
+    }
+
+    private static class ExecutorHolder {
+
+        private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "native-query-hedging-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            // most timers are cancelled, because the query returned within the delay
+            TIMER.setRemoveOnCancelPolicy(true);
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.SpringProperties;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the {@link NativeQuery} interfaces, and their SQL template files, listed at build time by
+ * {@link NativeQueryIndexProcessor}.
+ *
+ * <p>Every module compiled with the processor contributes its own {@value #LOCATION} resource,
+ * and all of them are read. When none is found, {@link NativeQueryAutoConfiguration} falls back to
+ * scanning the classpath. The index can also be ignored, for example when only some modules are
+ * compiled with the processor, by setting the {@value #IGNORE_PROPERTY} system property or
+ * {@code spring.properties} entry to {@code true}.</p>
+ *
+ * @see NativeQueryIndexProcessor
+ */
+final class NativeQueryIndex {
+
+    static final String LOCATION = "META-INF/native-query.index";
+
+    static final String TEMPLATES_LOCATION = "META-INF/native-query.templates";
+
+    static final String IGNORE_PROPERTY = "native-query.index.ignore";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryIndex.class);
+
+    private NativeQueryIndex() {
+    }
+
+    /**
+     * Loads the indexed interfaces within a package.
+     *
+     * @param classLoader The class loader of the indexes and of the interfaces.
+     * @param packageScan The package prefix the interfaces must start with.
+     * @return The indexed interfaces, or {@code null} if there is no index or it is ignored.
+     */
+    static Set<Class<? extends NativeQuery>> load(ClassLoader classLoader, String packageScan) {
+        if (SpringProperties.getFlag(IGNORE_PROPERTY)) {
+            return null;
+        }
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(LOCATION);
+            if (!indexes.hasMoreElements()) {
+                return null;
+            }
+            Set<Class<? extends NativeQuery>> nativeQueryList = new LinkedHashSet<>();
+            while (indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                LOGGER.debug("reading the index {}", index);
+                for (String name : read(index)) {
+                    if (name.startsWith(packageScan)) {
+                        load(classLoader, name, index, nativeQueryList);
+                    }
+                }
+            }
+            return nativeQueryList;
+        } catch (IOException e) {
+            LOGGER.warn("could not read the index of the NativeQuery interfaces, scanning the classpath instead", e);
+            return null;
+        }
+    }
+
+    /**
+     * Loads the SQL template files checked at build time.
+     *
+     * @param classLoader The class loader of the indexes.
+     * @return The classpath paths of the template files, empty if there is no index or it is ignored.
+     */
+    static Set<String> loadTemplates(ClassLoader classLoader) {
+        Set<String> templates = new LinkedHashSet<>();
+        if (SpringProperties.getFlag(IGNORE_PROPERTY)) {
+            return templates;
+        }
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(TEMPLATES_LOCATION);
+            while (indexes.hasMoreElements()) {
+                for (String line : read(indexes.nextElement())) {
+                    String[] entry = line.split(" ", 2);
+                    if (entry.length == 2) {
+                        templates.add(entry[1]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("could not read the index of the SQL templates", e);
+        }
+        return templates;
+    }
+
+    private static List<String> read(URL index) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+        }
+    }
+
+    private static void load(ClassLoader classLoader, String name, URL index, Set<Class<? extends NativeQuery>> nativeQueryList) {
+        try {
+            Class<?> classe = ClassUtils.forName(name, classLoader);
+            if (classe.isInterface() && NativeQuery.class.isAssignableFrom(classe)) {
+                nativeQueryList.add(classe.asSubclass(NativeQuery.class));
+            } else {
+                LOGGER.warn("skipping {} listed in {}, it is not a NativeQuery interface", name, index);
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.warn("skipping {} listed in {}, it could not be loaded", name, index);
+        }
+    }
+
+}
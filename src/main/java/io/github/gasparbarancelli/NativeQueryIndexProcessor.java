@@ -0,0 +1,438 @@
+package io.github.gasparbarancelli;
+
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerTemplateEngineSQLProcessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An annotation processor writing the {@link NativeQuery} interfaces of a module to the
+ * {@value NativeQueryIndex#LOCATION} resource, so that they are found at startup without
+ * scanning the classpath.
+ *
+ * <p>The processor also checks the SQL template of every method of these interfaces. The path of
+ * the template is resolved as at runtime, from the {@link NativeQueryFolder} of the interface and
+ * the {@link NativeQueryFileName} or the name of the method, and the compilation fails when the
+ * file is not found or is not a valid Freemarker template. Inline templates declared with
+ * {@link NativeQuerySql} are checked as well. The template files are listed in the
+ * {@value NativeQueryIndex#TEMPLATES_LOCATION} resource, each one classified as {@code static}
+ * or {@code dynamic}, and are parsed at startup instead of on their first use.</p>
+ *
+ * <p>The processor is registered as a service of this library, and so runs whenever the library
+ * is on the annotation processor path. On JDK 23 and later, or when the build declares its own
+ * processor path, it has to be declared explicitly, for example with Maven:</p>
+ * <pre>{@code
+ * <annotationProcessorPaths>
+ *     <path>
+ *         <groupId>io.github.gasparbarancelli</groupId>
+ *         <artifactId>spring-native-query</artifactId>
+ *         <version>${spring-native-query.version}</version>
+ *     </path>
+ * </annotationProcessorPaths>
+ * }</pre>
+ *
+ * <p>The templates are looked up in the class output, the source path and then the class path
+ * of the compilation, which does not include the resources of every build, Gradle for instance.
+ * It accepts the following options:</p>
+ * <ul>
+ *   <li>{@code -AnativeQuery.sqlDirectory=...}: the directory of the templates, {@code nativeQuery}
+ *       by default, which must match the {@code native-query.sql.directory} property.</li>
+ *   <li>{@code -AnativeQuery.validateTemplates=warn}: reports a warning instead of failing the
+ *       compilation when a template is not found or is not valid.</li>
+ *   <li>{@code -AnativeQuery.validateTemplates=false}: only writes the index, for builds where
+ *       the resources are not available to the compiler.</li>
+ *   <li>{@code -AnativeQuery.generateImplementations=true}: also generates a class implementing
+ *       each interface, in its package, named after it with the {@code _NativeQueryImpl} suffix.
+ *       Each method of the class calls a {@link NativeQueryMethodPlan} directly, and the class is
+ *       used by {@link NativeQueryProxyFactoryImpl} instead of a proxy. Generic interfaces and
+ *       interfaces with generic methods are still proxied.</li>
+ * </ul>
+ *
+ * <p>On incremental builds, the interfaces already listed in the index are kept as long as
+ * they still exist.</p>
+ *
+ * @see NativeQueryIndex
+ * @see NativeQueryAutoConfiguration
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({
+        NativeQueryIndexProcessor.SQL_DIRECTORY_OPTION,
+        NativeQueryIndexProcessor.VALIDATE_OPTION,
+        NativeQueryIndexProcessor.GENERATE_OPTION
+})
+public class NativeQueryIndexProcessor extends AbstractProcessor {
+
+    static final String SQL_DIRECTORY_OPTION = "nativeQuery.sqlDirectory";
+
+    static final String VALIDATE_OPTION = "nativeQuery.validateTemplates";
+
+    static final String GENERATE_OPTION = "nativeQuery.generateImplementations";
+
+    private static final List<StandardLocation> TEMPLATE_LOCATIONS = List.of(
+            StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH, StandardLocation.CLASS_PATH
+    );
+
+    private final Set<String> interfaces = new TreeSet<>();
+
+    private final Map<String, String> templates = new TreeMap<>();
+
+    private boolean freemarker;
+
+    private boolean freemarkerReported;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        freemarker = isFreemarkerPresent();
+    }
+
+    /**
+     * Checks whether Freemarker is on the annotation processor path, so that the templates can be parsed.
+     */
+    private static boolean isFreemarkerPresent() {
+        try {
+            Class.forName("freemarker.template.Template", false, NativeQueryIndexProcessor.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement nativeQuery = processingEnv.getElementUtils().getTypeElement(NativeQuery.class.getName());
+        if (nativeQuery == null) {
+            return false;
+        }
+        if (roundEnv.processingOver()) {
+            if (!interfaces.isEmpty()) {
+                writeIndex();
+            }
+            if (!templates.isEmpty()) {
+                writeTemplates();
+            }
+            return false;
+        }
+        TypeMirror nativeQueryType = nativeQuery.asType();
+        for (Element element : roundEnv.getRootElements()) {
+            collect(element, nativeQuery, nativeQueryType);
+        }
+        return false;
+    }
+
+    private void collect(Element element, TypeElement nativeQuery, TypeMirror nativeQueryType) {
+        if (element.getKind() == ElementKind.INTERFACE
+                && !element.equals(nativeQuery)
+                && processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(element.asType()), nativeQueryType)) {
+            TypeElement type = (TypeElement) element;
+            interfaces.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            String validate = processingEnv.getOptions().get(VALIDATE_OPTION);
+            if (!"false".equalsIgnoreCase(validate)) {
+                validateTemplates(type, "warn".equalsIgnoreCase(validate) ? Diagnostic.Kind.WARNING : Diagnostic.Kind.ERROR);
+            }
+            if ("true".equalsIgnoreCase(processingEnv.getOptions().get(GENERATE_OPTION))) {
+                generateImplementation(type);
+            }
+        }
+        for (Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind().isInterface() || enclosed.getKind().isClass()) {
+                collect(enclosed, nativeQuery, nativeQueryType);
+            }
+        }
+    }
+
+    private List<ExecutableElement> abstractMethods(TypeElement type) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+            if (member.getKind() == ElementKind.METHOD
+                    && member.getEnclosingElement().getKind().isInterface()
+                    && member.getModifiers().contains(Modifier.ABSTRACT)) {
+                methods.add((ExecutableElement) member);
+            }
+        }
+        return methods;
+    }
+
+    private void validateTemplates(TypeElement type, Diagnostic.Kind kind) {
+        if (!freemarker && !freemarkerReported) {
+            freemarkerReported = true;
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Freemarker is not on the annotation processor path, the SQL templates are not parsed", type);
+        }
+        for (ExecutableElement method : abstractMethods(type)) {
+            Element reported = method.getEnclosingElement().equals(type) ? method : type;
+            NativeQuerySql inline = method.getAnnotation(NativeQuerySql.class);
+            if (inline != null) {
+                if (freemarker) {
+                    parse(inline.value(), "inline SQL of " + method.getSimpleName(), reported, kind);
+                }
+                continue;
+            }
+            String file = templateFile(type, method);
+            String source = readTemplate(file);
+            if (source == null) {
+                processingEnv.getMessager().printMessage(kind, "the SQL file " + file + " of " + method.getSimpleName() + " was not found", reported);
+            } else if (freemarker && parse(source, file, reported, kind)) {
+                templates.put(file, FreemarkerTemplateEngineSQLProcessor.isStatic(source) ? "static" : "dynamic");
+            }
+        }
+    }
+
+    /**
+     * Generates the implementation of an interface, named as {@link NativeQueryMethodPlan#implementationName} expects.
+     */
+    private void generateImplementation(TypeElement type) {
+        List<ExecutableElement> methods = abstractMethods(type);
+        if (!type.getTypeParameters().isEmpty()
+                || methods.stream().anyMatch(method -> !method.getTypeParameters().isEmpty())
+                || !isAccessible(type)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "no implementation is generated for " + type.getQualifiedName() + ", it is proxied at runtime", type);
+            return;
+        }
+        Types types = processingEnv.getTypeUtils();
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String implementationName = processingEnv.getElementUtils().getBinaryName(type).toString().replace('$', '_')
+                + NativeQueryMethodPlan.IMPLEMENTATION_SUFFIX;
+        String simpleName = packageName.isEmpty() ? implementationName : implementationName.substring(packageName.length() + 1);
+        String interfaceName = type.getQualifiedName().toString();
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder constructor = new StringBuilder();
+        StringBuilder implementations = new StringBuilder();
+        Set<String> signatures = new HashSet<>();
+        for (ExecutableElement method : methods) {
+            ExecutableType methodType = (ExecutableType) types.asMemberOf((DeclaredType) type.asType(), method);
+            // the plan looks the method up by the erasure of its declaration, as Class#getMethod does
+            StringJoiner parameterTypes = new StringJoiner("");
+            method.getParameters().forEach(parameter -> parameterTypes.add(", " + types.erasure(parameter.asType()) + ".class"));
+            if (!signatures.add(method.getSimpleName() + parameterTypes.toString())) {
+                continue;
+            }
+            String plan = "plan" + signatures.size();
+            fields.append("    private final NativeQueryMethodPlan ").append(plan).append(";\n\n");
+            constructor.append("        this.").append(plan).append(" = NativeQueryMethodPlan.of(").append(interfaceName)
+                    .append(".class, interceptor, \"").append(method.getSimpleName()).append('"').append(parameterTypes).append(");\n");
+
+            StringJoiner parameters = new StringJoiner(", ");
+            StringJoiner arguments = new StringJoiner(", ");
+            List<? extends TypeMirror> methodParameterTypes = methodType.getParameterTypes();
+            for (int i = 0; i < methodParameterTypes.size(); i++) {
+                TypeMirror parameterType = methodParameterTypes.get(i);
+                if (method.isVarArgs() && i == methodParameterTypes.size() - 1) {
+                    parameters.add(((ArrayType) parameterType).getComponentType() + "... arg" + i);
+                } else {
+                    parameters.add(parameterType + " arg" + i);
+                }
+                arguments.add("arg" + i);
+            }
+            StringJoiner thrownTypes = new StringJoiner(", ", " throws ", "").setEmptyValue("");
+            methodType.getThrownTypes().forEach(thrownType -> thrownTypes.add(thrownType.toString()));
+            TypeMirror returnType = methodType.getReturnType();
+            String invocation = plan + ".invoke(" + (arguments.length() == 0 ? "" : "new java.lang.Object[]{" + arguments + "}") + ")";
+
+            implementations.append("    @Override\n")
+                    .append("    public ").append(returnType).append(' ').append(method.getSimpleName())
+                    .append('(').append(parameters).append(')').append(thrownTypes).append(" {\n");
+            if (returnType.getKind() == TypeKind.VOID) {
+                implementations.append("        ").append(invocation).append(";\n");
+            } else if (returnType.getKind().isPrimitive()) {
+                implementations.append("        return (").append(types.boxedClass((PrimitiveType) returnType).getQualifiedName())
+                        .append(") ").append(invocation).append(";\n");
+            } else {
+                implementations.append("        return (").append(returnType).append(") ").append(invocation).append(";\n");
+            }
+            implementations.append("    }\n\n");
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(implementationName, type);
+            try (Writer writer = file.openWriter()) {
+                if (!packageName.isEmpty()) {
+                    writer.write("package " + packageName + ";\n\n");
+                }
+                writer.write("import io.github.gasparbarancelli.NativeQueryMethodInterceptor;\n");
+                writer.write("import io.github.gasparbarancelli.NativeQueryMethodPlan;\n\n");
+                writer.write("@javax.annotation.processing.Generated(\"" + NativeQueryIndexProcessor.class.getName() + "\")\n");
+                writer.write("@SuppressWarnings(\"unchecked\")\n");
+                writer.write("public final class " + simpleName + " implements " + interfaceName + " {\n\n");
+                writer.write(fields.toString());
+                writer.write("    public " + simpleName + "(NativeQueryMethodInterceptor interceptor) {\n");
+                writer.write(constructor.toString());
+                writer.write("    }\n\n");
+                writer.write(implementations.toString());
+                writer.write("    @Override\n");
+                writer.write("    public java.lang.String toString() {\n");
+                writer.write("        return \"NativeQuery Implementation\";\n");
+                writer.write("    }\n\n");
+                writer.write("}\n");
+            }
+        } catch (IOException e) {
+            error("could not generate the implementation of " + interfaceName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private static boolean isAccessible(TypeElement type) {
+        for (Element element = type; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the path of the SQL file of a method, as {@link NativeQueryInfo#templateFile} does at runtime.
+     */
+    private String templateFile(TypeElement type, ExecutableElement method) {
+        String file = processingEnv.getOptions().getOrDefault(SQL_DIRECTORY_OPTION, "nativeQuery");
+
+        if (!file.endsWith("/")) {
+            file += "/";
+        }
+
+        NativeQueryFolder folder = type.getAnnotation(NativeQueryFolder.class);
+        if (folder != null) {
+            file += folder.value() + File.separator;
+        }
+
+        NativeQueryFileName fileName = method.getAnnotation(NativeQueryFileName.class);
+        if (fileName != null) {
+            file += fileName.value() + ".";
+        } else {
+            file += method.getSimpleName() + ".";
+        }
+
+        return file + "sql";
+    }
+
+    private String readTemplate(String file) {
+        for (StandardLocation location : TEMPLATE_LOCATIONS) {
+            try {
+                return processingEnv.getFiler().getResource(location, "", file).getCharContent(true).toString();
+            } catch (IOException | IllegalArgumentException e) {
+                // not found in this location
+            }
+        }
+        return null;
+    }
+
+    private boolean parse(String source, String name, Element element, Diagnostic.Kind kind) {
+        try {
+            FreemarkerTemplateEngineSQLProcessor.parse(name, source);
+            return true;
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(kind, "the SQL template " + name + " is not valid: " + e.getMessage(), element);
+            return false;
+        }
+    }
+
+    private void error(String message, Element element) {
+        if (element == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message);
+        } else {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        }
+    }
+
+    private void writeIndex() {
+        try {
+            interfaces.addAll(readPreviousIndex());
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", NativeQueryIndex.LOCATION);
+            try (Writer writer = file.openWriter()) {
+                for (String name : interfaces) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            error("could not write " + NativeQueryIndex.LOCATION + ": " + e.getMessage(), null);
+        }
+    }
+
+    private Set<String> readPreviousIndex() {
+        Set<String> previous = new TreeSet<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", NativeQueryIndex.LOCATION);
+            try (Reader reader = file.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+                lines.lines()
+                        .map(String::trim)
+                        .filter(name -> !name.isEmpty() && processingEnv.getElementUtils().getTypeElement(name.replace('$', '.')) != null)
+                        .forEach(previous::add);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // there is no index from a previous build
+        }
+        return previous;
+    }
+
+    private void writeTemplates() {
+        try {
+            Map<String, String> allTemplates = new TreeMap<>(readPreviousTemplates());
+            allTemplates.putAll(templates);
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", NativeQueryIndex.TEMPLATES_LOCATION);
+            try (Writer writer = file.openWriter()) {
+                for (Map.Entry<String, String> template : allTemplates.entrySet()) {
+                    writer.write(template.getValue() + " " + template.getKey() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            error("could not write " + NativeQueryIndex.TEMPLATES_LOCATION + ": " + e.getMessage(), null);
+        }
+    }
+
+    private Map<String, String> readPreviousTemplates() {
+        Map<String, String> previous = new TreeMap<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", NativeQueryIndex.TEMPLATES_LOCATION);
+            try (Reader reader = file.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+                lines.lines()
+                        .map(line -> line.trim().split(" ", 2))
+                        .filter(entry -> entry.length == 2)
+                        .forEach(entry -> previous.put(entry[1], entry[0]));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // there are no templates from a previous build
+        }
+        return previous;
+    }
+
+}
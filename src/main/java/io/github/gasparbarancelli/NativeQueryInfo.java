@@ -16,6 +16,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Encapsulates all the information required to execute a native query for a specific method invocation.
@@ -35,6 +37,18 @@ public class NativeQueryInfo implements Serializable, Cloneable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryInfo.class);
 
+    static final int MAX_PADDED_SIZE = 1000;
+
+    private static final String FLUX_CLASS_NAME = "reactor.core.publisher.Flux";
+
+    private static final String MONO_CLASS_NAME = "reactor.core.publisher.Mono";
+
+    private String interfaceName;
+
+    private String methodName;
+
+    private String methodKey;
+
     private String file;
 
     private List<NativeQueryParameter> parameterList;
@@ -49,6 +63,10 @@ public class NativeQueryInfo implements Serializable, Cloneable {
 
     private boolean returnTypeIsIterable;
 
+    private boolean returnTypeIsFlux;
+
+    private boolean returnTypeIsMono;
+
     private String sql;
 
     private String sqlInline;
@@ -63,6 +81,36 @@ public class NativeQueryInfo implements Serializable, Cloneable {
 
     private boolean useHibernateTypes;
 
+    private NativeQueryCacheable cacheable;
+
+    private List<String> evictTables = Collections.emptyList();
+
+    private boolean singleFlight;
+
+    private String dataSourceRef;
+
+    private boolean readOnly;
+
+    private NativeQueryHedged hedged;
+
+    private boolean sharded;
+
+    private boolean tenantSchema;
+
+    private boolean tenantDataSource;
+
+    private transient String connectionSchema;
+
+    private transient String dataSourceTenant;
+
+    private transient Object shardKey;
+
+    private transient Map<String, Object> boundParameters;
+
+    private transient NativeQueryExecution execution;
+
+    private transient Supplier<NativeQueryTenantNamedParameterJdbcTemplateInterceptor> tenantInterceptor;
+
     private final Map<String, String> replaceSql = new HashMap<>();
 
     private final List<Class<? extends ProcessorSql>> processorSqlList = new ArrayList<>();
@@ -78,16 +126,30 @@ public class NativeQueryInfo implements Serializable, Cloneable {
      * @return A new {@code NativeQueryInfo} instance.
      */
     public static NativeQueryInfo of(Class<? extends NativeQuery> classe, MethodInvocation invocation) {
+        return of(classe, invocation.getMethod());
+    }
+
+    /**
+     * Creates a new {@code NativeQueryInfo} instance for a method, without the parameters of an invocation.
+     *
+     * @param classe The {@link NativeQuery} interface class.
+     * @param method The method of the interface.
+     * @return A new {@code NativeQueryInfo} instance.
+     */
+    static NativeQueryInfo of(Class<? extends NativeQuery> classe, Method method) {
         NativeQueryInfo info = new NativeQueryInfo();
 
-        Method method = invocation.getMethod();
         LOGGER.debug("invoked method {}", method.getName());
+        info.interfaceName = classe.getName();
+        info.methodName = method.getName();
+        info.methodKey = methodKey(classe, method);
         info.useSqlInline = method.isAnnotationPresent(NativeQuerySql.class);
         if (info.useSqlInline) {
             LOGGER.debug("sql obtained using the NativeQuerySql annotation");
             info.sqlInline = method.getAnnotation(NativeQuerySql.class).value();
         } else {
-            setFile(classe, invocation, info);
+            info.file = templateFile(classe, method);
+            LOGGER.debug("sql obtained through the {} file", info.file);
         }
 
         info.useHibernateTypes = true;
@@ -119,13 +181,78 @@ public class NativeQueryInfo implements Serializable, Cloneable {
         LOGGER.debug("return type {}", info.returnType.getName());
         info.returnTypeIsIterable = Iterable.class.isAssignableFrom(info.returnType);
         LOGGER.debug("return type is iterable {}", info.returnTypeIsIterable);
-        if (info.returnTypeIsIterable || info.returnTypeIsOptional()) {
+        info.returnTypeIsFlux = FLUX_CLASS_NAME.equals(info.returnType.getName());
+        info.returnTypeIsMono = MONO_CLASS_NAME.equals(info.returnType.getName());
+        LOGGER.debug("return type is reactive {}", info.isReactive());
+        if (info.returnTypeIsIterable || info.returnTypeIsOptional() || info.isReactive()) {
             info.aliasToBean = extractComponentType(method);
         } else {
             info.aliasToBean = info.returnType;
         }
         LOGGER.debug("return object is {}", info.aliasToBean.getName());
 
+        info.cacheable = method.getAnnotation(NativeQueryCacheable.class);
+        if (info.cacheable != null) {
+            LOGGER.debug("results cached for {} {}", info.cacheable.ttl(), info.cacheable.timeUnit());
+            if (info.isReactive() || info.returnType == Void.TYPE) {
+                throw new IllegalStateException("Results of method " + info.methodKey + " cannot be cached");
+            }
+        }
+
+        info.singleFlight = method.isAnnotationPresent(NativeQuerySingleFlight.class);
+        if (info.singleFlight) {
+            LOGGER.debug("identical concurrent queries are coalesced");
+            if (info.isReactive() || info.returnType == Void.TYPE) {
+                throw new IllegalStateException("Queries of method " + info.methodKey + " cannot be coalesced");
+            }
+        }
+
+        if (method.isAnnotationPresent(NativeQueryCacheEvict.class)) {
+            info.evictTables = List.of(method.getAnnotation(NativeQueryCacheEvict.class).tables());
+            LOGGER.debug("evicts the cached results of tables {}", info.evictTables);
+        }
+
+        NativeQueryDataSource dataSource = method.isAnnotationPresent(NativeQueryDataSource.class)
+                ? method.getAnnotation(NativeQueryDataSource.class)
+                : classe.getAnnotation(NativeQueryDataSource.class);
+        if (dataSource != null) {
+            info.dataSourceRef = dataSource.value();
+            LOGGER.debug("runs on the data source {}", info.dataSourceRef);
+        }
+
+        NativeQueryReadOnly readOnly = method.isAnnotationPresent(NativeQueryReadOnly.class)
+                ? method.getAnnotation(NativeQueryReadOnly.class)
+                : classe.getAnnotation(NativeQueryReadOnly.class);
+        info.readOnly = readOnly != null && readOnly.value();
+        LOGGER.debug("read-only {}", info.readOnly);
+
+        info.sharded = method.isAnnotationPresent(NativeQuerySharded.class) || classe.isAnnotationPresent(NativeQuerySharded.class);
+        LOGGER.debug("sharded {}", info.sharded);
+
+        info.tenantSchema = method.isAnnotationPresent(NativeQueryTenantSchema.class) || classe.isAnnotationPresent(NativeQueryTenantSchema.class);
+        if (info.tenantSchema) {
+            LOGGER.debug("runs in the schema of the tenant set on the connection");
+            if (info.isReactive()) {
+                throw new IllegalStateException("Queries of method " + info.methodKey + " cannot run in the schema of the tenant");
+            }
+        }
+
+        info.tenantDataSource = method.isAnnotationPresent(NativeQueryTenantDataSource.class) || classe.isAnnotationPresent(NativeQueryTenantDataSource.class);
+        if (info.tenantDataSource) {
+            LOGGER.debug("runs on the data source of the tenant");
+            if (info.isReactive()) {
+                throw new IllegalStateException("Queries of method " + info.methodKey + " cannot run on the data source of the tenant");
+            }
+        }
+
+        info.hedged = method.getAnnotation(NativeQueryHedged.class);
+        if (info.hedged != null) {
+            LOGGER.debug("hedged after the percentile {} of the latencies", info.hedged.percentile());
+            if (!info.readOnly || !info.useJdbcTemplate || info.isReactive() || info.returnType == Void.TYPE) {
+                throw new IllegalStateException("Queries of method " + info.methodKey + " cannot be hedged");
+            }
+        }
+
         return info;
     }
 
@@ -156,13 +283,28 @@ public class NativeQueryInfo implements Serializable, Cloneable {
      * @param invocation The method invocation containing the arguments.
      */
     public static void setParameters(NativeQueryInfo info, MethodInvocation invocation) {
+        setParameters(info, invocation.getMethod().getParameters(), invocation.getArguments());
+    }
+
+    /**
+     * Populates the query parameters, pageable, and sort information from the arguments of an invocation.
+     *
+     * @param info       The {@code NativeQueryInfo} instance to be populated.
+     * @param parameters The parameters of the invoked method.
+     * @param arguments  The arguments of the invocation, in the order of the parameters.
+     */
+    static void setParameters(NativeQueryInfo info, Parameter[] parameters, Object[] arguments) {
         info.sql = null;
+        info.boundParameters = null;
         info.sort = null;
         info.parameterList = new ArrayList<>();
         info.pageable = null;
-        for (int i = 0; i < invocation.getArguments().length; i++) {
-            Object argument = invocation.getArguments()[i];
-            Parameter parameter = invocation.getMethod().getParameters()[i];
+        info.shardKey = null;
+        info.connectionSchema = null;
+        info.dataSourceTenant = null;
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            Parameter parameter = parameters[i];
             if (parameter.getType().isAssignableFrom(Pageable.class)) {
                 info.pageable = (Pageable) argument;
                 if (info.sort == null) {
@@ -179,7 +321,7 @@ public class NativeQueryInfo implements Serializable, Cloneable {
                         if (argument instanceof Map) {
                             info.parameterList.addAll(NativeQueryParameter.ofMap((Map) argument, param.value()));
                         } else {
-                            info.parameterList.add(new NativeQueryParameter(param.value(), param.operator().getTransformParam().apply(argument)));
+                            info.parameterList.add(new NativeQueryParameter(param.value(), param.operator().getTransformParam().apply(argument), param.shardKey()));
                         }
                     }
                 } else {
@@ -194,30 +336,50 @@ public class NativeQueryInfo implements Serializable, Cloneable {
 
         for (NativeQueryParameter parameter : info.parameterList) {
             LOGGER.debug("Parameter {} containing the value {} added", parameter.getName(), parameter.getValue());
+            if (parameter.isShardKey() && info.shardKey == null) {
+                info.shardKey = parameter.getValue();
+            }
         }
     }
 
-    private static void setFile(Class<? extends NativeQuery> classe, MethodInvocation invocation, NativeQueryInfo info) {
-        info.file = NativeQueryAutoConfiguration.getSqlDirectory();
+    /**
+     * Returns the key identifying a method, made of its interface, its name and the simple names of its parameter types.
+     *
+     * @param classe The {@link NativeQuery} interface class.
+     * @param method The method.
+     * @return The method key, for example {@code com.example.UserNativeQuery#findUsers(Integer)}.
+     */
+    static String methodKey(Class<? extends NativeQuery> classe, Method method) {
+        return classe.getName() + "#" + method.getName() + Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(",", "(", ")"));
+    }
 
-        if (!info.file.endsWith("/")) {
-            info.file += "/";
+    /**
+     * Returns the classpath path of the SQL file of a method that is not annotated with {@link NativeQuerySql}.
+     *
+     * @param classe The {@link NativeQuery} interface class.
+     * @param method The method.
+     * @return The path of the SQL file.
+     */
+    static String templateFile(Class<? extends NativeQuery> classe, Method method) {
+        String file = NativeQueryAutoConfiguration.getSqlDirectory();
+
+        if (!file.endsWith("/")) {
+            file += "/";
         }
 
         if (classe.isAnnotationPresent(NativeQueryFolder.class)) {
-            info.file += classe.getAnnotation(NativeQueryFolder.class).value() + File.separator;
+            file += classe.getAnnotation(NativeQueryFolder.class).value() + File.separator;
         }
 
-        final Method method = invocation.getMethod();
         if (method.isAnnotationPresent(NativeQueryFileName.class)) {
-            info.file += method.getAnnotation(NativeQueryFileName.class).value() + ".";
+            file += method.getAnnotation(NativeQueryFileName.class).value() + ".";
         } else {
-            info.file += method.getName() + ".";
+            file += method.getName() + ".";
         }
 
-        info.file += "sql";
-
-        LOGGER.debug("sql obtained through the {} file", info.file);
+        return file + "sql";
     }
 
     /**
@@ -230,7 +392,63 @@ public class NativeQueryInfo implements Serializable, Cloneable {
             return sql;
         }
 
-        sql = getSqlProcessed();
+        NativeQueryRenderEvent event = new NativeQueryRenderEvent();
+        event.begin();
+        NativeQueryExecution execution = getExecution();
+        sql = execution.isEnabled() ? execution.phase(NativeQueryPhase.RENDER, this::render) : render();
+        event.complete(this);
+        return sql;
+    }
+
+    /**
+     * Returns the processed SQL string if it was already rendered, without rendering it.
+     *
+     * @return The final SQL string, or {@code null} if it was not rendered yet.
+     */
+    String getRenderedSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the current tenant, as returned by the {@link NativeQueryTenantNamedParameterJdbcTemplateInterceptor}.
+     *
+     * @return The tenant.
+     */
+    String getTenant() {
+        NativeQueryTenantNamedParameterJdbcTemplateInterceptor tenantJdbcTemplate = tenantInterceptor != null
+                ? tenantInterceptor.get()
+                : ApplicationContextProvider.getApplicationContext().getBean(NativeQueryTenantNamedParameterJdbcTemplateInterceptor.class);
+        return tenantJdbcTemplate.getTenant();
+    }
+
+    /**
+     * Returns the schema of the tenant to set on the connection of a {@link NativeQueryTenantSchema}
+     * method, resolved once per invocation, on the calling thread.
+     *
+     * @return The schema, or {@code null} when the connection keeps its schema.
+     */
+    String getConnectionSchema() {
+        if (tenantSchema && connectionSchema == null) {
+            connectionSchema = getTenant();
+        }
+        return connectionSchema;
+    }
+
+    /**
+     * Returns the tenant whose {@link NativeQueryTenantDataSource} runs the query, resolved once
+     * per invocation, on the calling thread.
+     *
+     * @return The tenant, or {@code null} when the method does not run on the pool of a tenant.
+     */
+    String getDataSourceTenant() {
+        if (tenantDataSource && dataSourceTenant == null) {
+            dataSourceTenant = getTenant();
+        }
+        return dataSourceTenant;
+    }
+
+    private String render() {
+        String sql = getSqlProcessed();
 
         for (Class<? extends ProcessorSql> aClass : processorSqlList) {
             try {
@@ -268,8 +486,7 @@ public class NativeQueryInfo implements Serializable, Cloneable {
         }
 
         if (useTenant) {
-            NativeQueryTenantNamedParameterJdbcTemplateInterceptor tenantJdbcTemplate = ApplicationContextProvider.getApplicationContext().getBean(NativeQueryTenantNamedParameterJdbcTemplateInterceptor.class);
-            sql = sql.replace(":SCHEMA", tenantJdbcTemplate.getTenant());
+            sql = sql.replace(":SCHEMA", getTenant());
         }
 
         LOGGER.debug("SQL to be executed: {}", sql);
@@ -286,6 +503,72 @@ public class NativeQueryInfo implements Serializable, Cloneable {
                 .getSql();
     }
 
+    /**
+     * Returns the parameters that are bound to the SQL, that is, those that have a value and
+     * whose name is referenced in the processed SQL.
+     *
+     * <p>Both engines expand a collection into as many placeholders as it has elements, so each
+     * size produces another SQL string, with its own statement and plan. When
+     * {@link NativeQueryAutoConfiguration#isInListPadding() IN list padding} is enabled, the
+     * collections are padded to the next power of two by repeating their last element, which
+     * does not change the result of an {@code IN} condition and keeps the number of distinct
+     * statements logarithmic. The collections of 513 to {@value #MAX_PADDED_SIZE} elements share
+     * a last bucket of {@value #MAX_PADDED_SIZE} elements, which is not a power of two, and the
+     * larger collections are not padded.</p>
+     *
+     * @return The bound parameters, by name, in declaration order.
+     */
+    Map<String, Object> getBoundParameters() {
+        if (boundParameters == null) {
+            String sql = getSql();
+            NativeQueryExecution execution = getExecution();
+            boundParameters = execution.isEnabled() ? execution.phase(NativeQueryPhase.BIND, () -> bind(sql)) : bind(sql);
+        }
+        return boundParameters;
+    }
+
+    private Map<String, Object> bind(String sql) {
+        Map<String, Object> boundParameters = new LinkedHashMap<>();
+        for (NativeQueryParameter parameter : parameterList) {
+            LOGGER.debug("checking if parameter {} exists in sql", parameter.getName());
+            if (parameter.getValue() != null && sql.contains(":" + parameter.getName())) {
+                LOGGER.debug("parameter {} exists in SQL", parameter.getName());
+                LOGGER.debug("parameter {} containing the value {} added to SQL", parameter.getName(), parameter.getValue());
+                boundParameters.put(parameter.getName(), NativeQueryAutoConfiguration.isInListPadding()
+                        ? padded(parameter.getValue())
+                        : parameter.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(boundParameters);
+    }
+
+    /**
+     * Pads a collection to the next power of two by repeating its last element, up to
+     * {@value #MAX_PADDED_SIZE} elements, the largest IN list accepted by Oracle. The collections
+     * of more than 512 elements are therefore padded to {@value #MAX_PADDED_SIZE} elements, and
+     * those of more than {@value #MAX_PADDED_SIZE} elements are returned as they are.
+     *
+     * @param value The value of a parameter.
+     * @return The padded list, or the value itself when it is not a collection to pad.
+     */
+    static Object padded(Object value) {
+        if (!(value instanceof Collection<?> collection) || collection.size() < 3 || collection.size() > MAX_PADDED_SIZE) {
+            return value;
+        }
+        int size = collection.size();
+        int paddedSize = Math.min(Integer.highestOneBit(size - 1) << 1, MAX_PADDED_SIZE);
+        if (paddedSize == size) {
+            return value;
+        }
+        List<Object> padded = new ArrayList<>(paddedSize);
+        padded.addAll(collection);
+        Object last = padded.get(size - 1);
+        while (padded.size() < paddedSize) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
     /**
      * Returns the SQL string for counting the total number of records for a paginated query.
      *
@@ -352,6 +635,10 @@ public class NativeQueryInfo implements Serializable, Cloneable {
         return pageable;
     }
 
+    Sort getSort() {
+        return sort;
+    }
+
     int getFirstResult() {
         int firstResult = pageable.getPageSize() * pageable.getPageNumber();
         LOGGER.debug("first result {}", firstResult);
@@ -364,10 +651,48 @@ public class NativeQueryInfo implements Serializable, Cloneable {
         return maxResult;
     }
 
+    public String getInterfaceName() {
+        return this.interfaceName;
+    }
+
+    public String getMethodName() {
+        return this.methodName;
+    }
+
+    /**
+     * Returns an identifier of the method that is unique among overloads, made of the
+     * interface name, the method name and the simple names of the parameter types.
+     *
+     * @return The method key.
+     */
+    public String getMethodKey() {
+        return this.methodKey;
+    }
+
     public String getFile() {
         return this.file;
     }
 
+    /**
+     * Returns the template the SQL is rendered from.
+     *
+     * @return The path of the SQL file, or {@code inline} for SQL declared with {@link NativeQuerySql}.
+     */
+    String getTemplate() {
+        return useSqlInline ? "inline" : file;
+    }
+
+    /**
+     * Loads and parses the template the SQL is rendered from, ahead of its first use.
+     */
+    void precompileTemplate() {
+        if (useSqlInline) {
+            FreemarkerTemplateEngineSQLProcessor.precompileInline(sqlInline);
+        } else {
+            FreemarkerTemplateEngineSQLProcessor.precompile(file);
+        }
+    }
+
     List<NativeQueryParameter> getParameterList() {
         return this.parameterList;
     }
@@ -410,6 +735,143 @@ public class NativeQueryInfo implements Serializable, Cloneable {
         return typeIsOptional;
     }
 
+    /**
+     * Indicates whether the method returns a Reactor {@code Flux} or {@code Mono}.
+     *
+     * <p>The type is detected by name, so Reactor only needs to be on the classpath
+     * of applications that actually declare reactive return types.</p>
+     *
+     * @return {@code true} if the return type is a {@code Flux} or a {@code Mono}.
+     */
+    public boolean isReactive() {
+        return this.returnTypeIsFlux || this.returnTypeIsMono;
+    }
+
+    /**
+     * Indicates whether the method returns a Reactor {@code Mono}.
+     *
+     * @return {@code true} if the return type is a {@code Mono}.
+     */
+    public boolean returnTypeIsMono() {
+        return this.returnTypeIsMono;
+    }
+
+    boolean isCacheable() {
+        return this.cacheable != null;
+    }
+
+    NativeQueryCacheable getCacheable() {
+        return this.cacheable;
+    }
+
+    /**
+     * Returns the execution observing the invocation, or an execution without listeners if the
+     * query does not run through a proxy invocation.
+     *
+     * @return The execution of the invocation.
+     */
+    NativeQueryExecution getExecution() {
+        return execution != null ? execution : NativeQueryExecution.NONE;
+    }
+
+    void setExecution(NativeQueryExecution execution) {
+        this.execution = execution;
+        execution.setInfo(this);
+    }
+
+    /**
+     * Sets the interceptor providing the schema of the tenant, looked up from the application
+     * context when the query does not run through a {@link NativeQueryMethodInterceptorImpl}.
+     *
+     * @param tenantInterceptor Provides the tenant interceptor.
+     */
+    void setTenantInterceptor(Supplier<NativeQueryTenantNamedParameterJdbcTemplateInterceptor> tenantInterceptor) {
+        this.tenantInterceptor = tenantInterceptor;
+    }
+
+    boolean isSingleFlight() {
+        return this.singleFlight;
+    }
+
+    List<String> getEvictTables() {
+        return this.evictTables;
+    }
+
+    /**
+     * Returns the name of the data source bean chosen with {@link NativeQueryDataSource}.
+     *
+     * @return The bean name, or {@code null} to run on the default data source.
+     */
+    String getDataSourceRef() {
+        return this.dataSourceRef;
+    }
+
+    /**
+     * Indicates whether the method is {@linkplain NativeQueryReadOnly read-only}.
+     *
+     * @return {@code true} if the method can run on a replica.
+     */
+    boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    /**
+     * Returns the hedging of the method, set with {@link NativeQueryHedged}.
+     *
+     * @return The annotation, or {@code null} when the queries are not hedged.
+     */
+    NativeQueryHedged getHedged() {
+        return this.hedged;
+    }
+
+    /**
+     * Indicates whether the method runs on the shards of the {@link NativeQueryShardRouter}.
+     *
+     * @return {@code true} if the method is {@link NativeQuerySharded}.
+     */
+    boolean isSharded() {
+        return this.sharded;
+    }
+
+    /**
+     * Returns the value of the {@linkplain NativeQueryParam#shardKey() shard key} of the invocation.
+     *
+     * @return The shard key, or {@code null} to scatter the query to all the shards.
+     */
+    Object getShardKey() {
+        return this.shardKey;
+    }
+
+    /**
+     * Indicates whether the method runs on the {@link NativeQueryTenantDataSource} of the current tenant.
+     *
+     * @return {@code true} if the method runs on the pool of the tenant.
+     */
+    boolean isTenantDataSource() {
+        return this.tenantDataSource;
+    }
+
+    /**
+     * Returns a copy of the invocation to run on one shard of a scattered query, with the SQL
+     * already rendered and bound, the schema of the tenant resolved, and without measuring the phases, which are measured once for
+     * the whole invocation.
+     *
+     * @param pageable The page to fetch from the shard, or {@code null} for all the rows.
+     * @return The copy of the invocation.
+     */
+    NativeQueryInfo forShard(Pageable pageable) {
+        getBoundParameters();
+        getConnectionSchema();
+        try {
+            NativeQueryInfo copy = (NativeQueryInfo) clone();
+            copy.pageable = pageable;
+            copy.execution = NativeQueryExecution.NONE;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public boolean isUseHibernateTypes() {
         return this.useHibernateTypes;
     }
@@ -0,0 +1,198 @@
+package io.github.gasparbarancelli;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations, used to estimate latency percentiles.
+ *
+ * <p>Durations are counted in logarithmic buckets: every power of two is split in four
+ * buckets, so a percentile is estimated with an error of at most 25%, whatever the duration.
+ * Recording a duration is a couple of atomic increments, without any lock or allocation.</p>
+ *
+ * <p>A histogram created with a window only keeps the recent durations: it counts them in two
+ * intervals, the current one and the previous one, and drops the previous interval every time
+ * the window elapses. Its percentiles therefore cover between one and two windows, and follow
+ * the latency when it changes instead of averaging it over the lifetime of the application.</p>
+ *
+ * @see NativeQueryStatistics
+ * @see NativeQueryHedging
+ */
+final class NativeQueryLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long windowNanos;
+
+    private final Interval[] intervals;
+
+    private final AtomicLong nextRotation;
+
+    private volatile int current;
+
+    /**
+     * Creates a histogram keeping every recorded duration.
+     */
+    NativeQueryLatencyHistogram() {
+        this.windowNanos = 0L;
+        this.intervals = new Interval[]{new Interval()};
+        this.nextRotation = null;
+    }
+
+    /**
+     * Creates a histogram keeping the durations recorded during the last window.
+     *
+     * @param window The window.
+     */
+    NativeQueryLatencyHistogram(Duration window) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.windowNanos = window.toNanos();
+        this.intervals = new Interval[]{new Interval(), new Interval()};
+        this.nextRotation = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration, in nanoseconds.
+     */
+    void record(long nanos) {
+        rotate();
+        intervals[current].record(Math.max(0L, nanos));
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return The number of durations.
+     */
+    long getCount() {
+        rotate();
+        long count = 0;
+        for (Interval interval : intervals) {
+            count += interval.count.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return The longest duration, in nanoseconds, or {@code 0} when nothing was recorded.
+     */
+    long getMax() {
+        rotate();
+        long max = 0;
+        for (Interval interval : intervals) {
+            max = Math.max(max, interval.max.get());
+        }
+        return max;
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, between {@code 0.0} and {@code 1.0}.
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds, or {@code 0} when nothing was recorded.
+     */
+    long percentile(double percentile) {
+        rotate();
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            for (Interval interval : intervals) {
+                snapshot[i] += interval.buckets.get(i);
+            }
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Starts a new interval, dropping the previous one, once the window has elapsed.
+     */
+    private void rotate() {
+        if (nextRotation == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long rotation = nextRotation.get();
+        if (now - rotation < 0 || !nextRotation.compareAndSet(rotation, now + windowNanos)) {
+            return;
+        }
+        int next = 1 - current;
+        intervals[next].reset();
+        if (now - rotation >= windowNanos) {
+            // no duration was recorded since the rotation was due, the current interval has expired as well
+            intervals[current].reset();
+        }
+        current = next;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * The durations recorded during an interval of the window.
+     */
+    private static final class Interval {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+        private void record(long nanos) {
+            buckets.incrementAndGet(index(nanos));
+            count.increment();
+            max.accumulate(nanos);
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0L);
+            }
+            count.reset();
+            max.reset();
+        }
+
+    }
+
+}
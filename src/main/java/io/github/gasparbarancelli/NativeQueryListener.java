@@ -0,0 +1,53 @@
+package io.github.gasparbarancelli;
+
+/**
+ * A listener notified of the phases and of the completion of every {@link NativeQuery} method invocation.
+ *
+ * <p>Listeners are Spring beans: every bean implementing this interface is registered by
+ * {@link NativeQueryAutoConfiguration} once the application context is initialized. The
+ * phases are only timed when at least one listener is registered, so the instrumentation
+ * costs nothing otherwise.</p>
+ *
+ * <p>Listeners are invoked on the thread executing the query and should return quickly.
+ * Exceptions thrown by a listener are propagated to the caller of the method.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @Component
+ * public class SlowQueryListener implements NativeQueryListener {
+ *
+ *     @Override
+ *     public void onCompleted(NativeQueryExecution execution, long durationNanos, Throwable error) {
+ *         if (durationNanos > 1_000_000_000L) {
+ *             LOGGER.warn("slow query {}", execution.getMethod());
+ *         }
+ *     }
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryExecution
+ * @see NativeQueryPhase
+ */
+public interface NativeQueryListener {
+
+    /**
+     * Invoked when a phase of the invocation ends.
+     *
+     * @param execution     The invocation.
+     * @param phase         The phase that ended.
+     * @param durationNanos The duration of the phase, in nanoseconds.
+     */
+    default void onPhase(NativeQueryExecution execution, NativeQueryPhase phase, long durationNanos) {
+    }
+
+    /**
+     * Invoked when the invocation completes, successfully or not.
+     *
+     * @param execution     The invocation.
+     * @param durationNanos The duration of the whole invocation, in nanoseconds.
+     * @param error         The exception thrown by the invocation, or {@code null} if it succeeded.
+     */
+    default void onCompleted(NativeQueryExecution execution, long durationNanos, Throwable error) {
+    }
+
+}
@@ -1,22 +1,41 @@
 package io.github.gasparbarancelli;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.NoResultException;
+import org.hibernate.ConnectionAcquisitionMode;
+import org.hibernate.ConnectionReleaseMode;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.query.NativeQuery;
+import org.hibernate.transform.ResultTransformer;
 import org.hibernate.transform.Transformers;
 import org.hibernate.type.StandardBasicTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.function.SingletonSupplier;
 
-import java.util.HashMap;
+import javax.sql.DataSource;
+import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
@@ -32,9 +51,24 @@ import java.util.function.Supplier;
  *   <li>Single result, list, and paginated queries.</li>
  *   <li>Mapping results to entities, DTOs, or simple Java types.</li>
  *   <li>Handling of {@code Optional} return types.</li>
+ *   <li>Streaming of Reactor {@code Flux} and {@code Mono} return types from a JDBC cursor.</li>
  *   <li>Parameter binding for both JPA and JDBC queries.</li>
+ *   <li>Caching of results for methods annotated with {@link NativeQueryCacheable}, and their
+ *       eviction when a method annotated with {@link NativeQueryCacheEvict} commits.</li>
+ *   <li>Coalescing of identical concurrent queries for methods annotated with {@link NativeQuerySingleFlight}.</li>
+ *   <li>Timing of the execution, mapping and count phases for the {@link NativeQueryListener}s, and
+ *       emission of the {@link NativeQueryExecuteEvent} and {@link NativeQueryCountEvent} Flight Recorder events.</li>
  * </ul>
  *
+ * <p>The beans the queries run with are looked up once, on the first invocation that needs them,
+ * either by type or by the names given with {@link NativeQueryBeans}, and reused afterwards. A
+ * method can run on another database with {@link NativeQueryDataSource}, and the
+ * {@linkplain NativeQueryReadOnly read-only} methods run on the replicas of the
+ * {@link NativeQueryReplicaRouter}, when there is one, where the {@link NativeQueryHedged} methods
+ * are hedged. The {@link NativeQuerySharded} methods run on the shards of the
+ * {@link NativeQueryShardRouter}, and the {@link NativeQueryTenantDataSource} methods on the pool
+ * of the current tenant.</p>
+ *
  * @see NativeQueryMethodInterceptor
  * @see NativeQueryInfo
  * @see EntityManager
@@ -44,89 +78,346 @@ public class NativeQueryMethodInterceptorImpl implements NativeQueryMethodInterc
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryMethodInterceptorImpl.class);
 
+    private static final boolean RESULT_CACHE_PRESENT = ClassUtils.isPresent(
+            "com.github.benmanes.caffeine.cache.Caffeine", NativeQueryMethodInterceptorImpl.class.getClassLoader()
+    );
+
+    private final Supplier<NamedParameterJdbcTemplate> jdbcTemplate;
+
+    private final Supplier<EntityManagerFactory> entityManagerFactory;
+
+    private final Supplier<EntityManager> entityManager;
+
+    private final Supplier<NativeQueryTenantNamedParameterJdbcTemplateInterceptor> tenantInterceptor;
+
+    private final Supplier<Optional<NativeQueryReplicaRouter>> replicaRouter;
+
+    private final Supplier<NativeQueryShardRouter> shardRouter;
+
+    private final Supplier<NativeQueryTenantDataSources> tenantDataSources;
+
+    private final Supplier<? extends BeanFactory> beanFactory;
+
+    private final Map<String, NamedParameterJdbcTemplate> namedJdbcTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an interceptor running the queries with the beans of the {@link ApplicationContextProvider} context.
+     */
+    public NativeQueryMethodInterceptorImpl() {
+        this(ApplicationContextProvider::getApplicationContext, null);
+    }
+
+    /**
+     * Constructs an interceptor running the queries with the beans of a bean factory.
+     *
+     * @param beanFactory The bean factory the beans are looked up from.
+     * @param beans       The names of the beans, or {@code null} to look them up by type.
+     */
+    public NativeQueryMethodInterceptorImpl(BeanFactory beanFactory, NativeQueryBeans beans) {
+        this(() -> beanFactory, beans);
+    }
+
+    private NativeQueryMethodInterceptorImpl(Supplier<? extends BeanFactory> beanFactory, NativeQueryBeans beans) {
+        String jdbcTemplateRef = beans != null ? beans.jdbcTemplateRef() : "";
+        String entityManagerFactoryRef = beans != null ? beans.entityManagerFactoryRef() : "";
+        String tenantInterceptorRef = beans != null ? beans.tenantInterceptorRef() : "";
+        this.jdbcTemplate = SingletonSupplier.of(() -> getBean(beanFactory.get(), NamedParameterJdbcTemplate.class, jdbcTemplateRef));
+        this.entityManagerFactory = SingletonSupplier.of(() -> getBean(beanFactory.get(), EntityManagerFactory.class, entityManagerFactoryRef));
+        this.entityManager = SingletonSupplier.of(() -> entityManagerFactoryRef.isEmpty()
+                ? beanFactory.get().getBean(EntityManager.class)
+                : SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.get()));
+        this.tenantInterceptor = SingletonSupplier.of(() -> getBean(beanFactory.get(), NativeQueryTenantNamedParameterJdbcTemplateInterceptor.class, tenantInterceptorRef));
+        this.replicaRouter = SingletonSupplier.of(() -> Optional.ofNullable(beanFactory.get().getBeanProvider(NativeQueryReplicaRouter.class).getIfAvailable()));
+        this.shardRouter = SingletonSupplier.of(() -> beanFactory.get().getBean(NativeQueryShardRouter.class));
+        this.tenantDataSources = SingletonSupplier.of(() -> beanFactory.get().getBean(NativeQueryTenantDataSources.class));
+        this.beanFactory = beanFactory;
+    }
+
+    private static <T> T getBean(BeanFactory beanFactory, Class<T> type, String name) {
+        LOGGER.debug("getting the instance of the {} bean {}", type.getSimpleName(), name);
+        return name.isEmpty() ? beanFactory.getBean(type) : beanFactory.getBean(name, type);
+    }
+
     @Override
     public Object executeQuery(NativeQueryInfo info) {
-        if (!info.isUseJdbcTemplate()) {
-            return executeWithEntityManager(info);
+        info.setTenantInterceptor(tenantInterceptor);
+        if (RESULT_CACHE_PRESENT && info.isCacheable()) {
+            return NativeQueryResultCache.get(info, () -> executeSingleFlight(info));
+        }
+        Object result = executeSingleFlight(info);
+        if (RESULT_CACHE_PRESENT && !info.getEvictTables().isEmpty()) {
+            evictCachedResults(info.getEvictTables());
         }
-        return executeWithJdbcTemplate(info);
+        return result;
     }
 
-    private Object executeWithJdbcTemplate(NativeQueryInfo info) {
-        LOGGER.debug("SQL will be executed with JdbcTemplate");
-        LOGGER.debug("getting the instance of the NamedParameterJdbcTemplate bean");
-        NamedParameterJdbcTemplate jdbcTemplate = ApplicationContextProvider.getApplicationContext().getBean(NamedParameterJdbcTemplate.class);
-
-        Map<String, Object> parametroList = new HashMap<>();
-        for (NativeQueryParameter parameter : info.getParameterList()) {
-            LOGGER.debug("checking if parameter {} exists in sql", parameter.getName());
-            if (parameter.getValue() != null && info.getSql().contains(":" + parameter.getName())) {
-                LOGGER.debug("parameter {} exists in SQL", parameter.getName());
-                LOGGER.debug("parameter {} containing the value {} added to SQL", parameter.getName(), parameter.getValue().toString());
-                parametroList.put(parameter.getName(), parameter.getValue());
+    private void evictCachedResults(List<String> tables) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            LOGGER.debug("cached results of tables {} will be evicted after commit", tables);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    NativeQueryResultCache.evict(tables);
+                }
+            });
+        } else {
+            NativeQueryResultCache.evict(tables);
+        }
+    }
+
+    private Object executeSingleFlight(NativeQueryInfo info) {
+        if (info.isSingleFlight()) {
+            return NativeQueryCoalescer.execute(info, () -> execute(info));
+        }
+        return execute(info);
+    }
+
+    private Object execute(NativeQueryInfo info) {
+        // renders and binds before the execution, so that each phase is measured on its own
+        info.getBoundParameters();
+        NativeQueryExecuteEvent event = new NativeQueryExecuteEvent();
+        event.begin();
+        NativeQueryExecution execution = info.getExecution();
+        Object result = execution.isEnabled()
+                ? execution.phase(NativeQueryPhase.EXECUTE, () -> executeOnDataSource(info))
+                : executeOnDataSource(info);
+        event.complete(info, result);
+        return result;
+    }
+
+    private Object executeOnDataSource(NativeQueryInfo info) {
+        if (info.isSharded()) {
+            return executeOnShards(info);
+        }
+        if (info.isTenantDataSource()) {
+            String tenant = info.getDataSourceTenant();
+            try (NativeQueryTenantDataSources.Lease lease = tenantDataSources.get().acquire(tenant)) {
+                LOGGER.debug("SQL will be executed on the data source of tenant {}", tenant);
+                return executeOn(info, lease.getJdbcTemplate());
             }
         }
+        if (info.isReadOnly() && info.getDataSourceRef() == null && !info.isReactive() && isReplicaAllowed()) {
+            NativeQueryReplicaRouter router = replicaRouter.get().orElse(null);
+            if (router != null && info.getHedged() != null && router.size() > 1) {
+                return executeHedged(info, router);
+            }
+            if (router != null) {
+                try (NativeQueryReplicaRouter.Lease lease = router.acquire()) {
+                    LOGGER.debug("SQL will be executed on the replica {}", lease.getIndex());
+                    return executeOn(info, lease.getJdbcTemplate());
+                }
+            }
+        }
+        if (info.getDataSourceRef() != null) {
+            return executeOn(info, namedJdbcTemplates.computeIfAbsent(info.getDataSourceRef(), this::getNamedJdbcTemplate));
+        }
+        return executeOn(info, null);
+    }
 
-        LOGGER.debug("instantiating a DataClassRowMapper of type {}", info.getAliasToBean().getName());
-        DataClassRowMapper<?> dataClassRowMapper = new DataClassRowMapper<>(info.getAliasToBean());
-        if (info.getReturnType().getSimpleName().equals(Void.TYPE.getName())) {
+    private Object executeOnShards(NativeQueryInfo info) {
+        NativeQueryShardRouter router = shardRouter.get();
+        Object shardKey = info.getShardKey();
+        if (shardKey != null) {
+            int shard = router.shardOf(shardKey);
+            LOGGER.debug("SQL will be executed on the shard {} of key {}", shard, shardKey);
+            return executeOn(info, router.getJdbcTemplate(shard));
+        }
+        if (info.isReactive()) {
+            throw new IllegalStateException("Method " + info.getMethodKey() + " returns a " + info.getReturnType().getSimpleName()
+                    + " and cannot be scattered to the shards, it must be invoked with a shard key");
+        }
+        // the shards share their schema, the first one stands for all of them
+        setDataSource(info, router.getJdbcTemplate(0));
+        return NativeQueryScatterGather.execute(info, router, this::executeOn);
+    }
+
+    /**
+     * Indicates whether a read-only query may run on a replica, that is, when it does not need to
+     * see the changes of the current transaction.
+     */
+    private static boolean isReplicaAllowed() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private NamedParameterJdbcTemplate getNamedJdbcTemplate(String name) {
+        Object bean = getBean(beanFactory.get(), Object.class, name);
+        if (bean instanceof NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+            return namedParameterJdbcTemplate;
+        }
+        if (bean instanceof JdbcTemplate template) {
+            return new NamedParameterJdbcTemplate(template);
+        }
+        if (bean instanceof DataSource dataSource) {
+            return new NamedParameterJdbcTemplate(dataSource);
+        }
+        throw new IllegalStateException("Bean " + name + " is neither a DataSource nor a JdbcTemplate");
+    }
+
+    /**
+     * Executes a query with the default beans, or on another data source.
+     *
+     * @param info         The query.
+     * @param jdbcTemplate The template of the other data source, or {@code null} for the default beans.
+     */
+    private Object executeOn(NativeQueryInfo info, NamedParameterJdbcTemplate jdbcTemplate) {
+        if (info.isUseJdbcTemplate()) {
+            NamedParameterJdbcTemplate template = jdbcTemplate != null ? jdbcTemplate : this.jdbcTemplate.get();
+            setDataSource(info, template);
+            return executeWithJdbcTemplate(info, template);
+        }
+        if (jdbcTemplate == null || info.isReactive()) {
+            return executeWithEntityManager(info);
+        }
+        setDataSource(info, jdbcTemplate);
+        if (isUpdate(info)) {
+            // a session of its own has no transaction to update in, the template joins the one of the data source, if any
+            return executeWithJdbcTemplate(info, jdbcTemplate);
+        }
+        return executeWithSession(info, jdbcTemplate.getJdbcTemplate().getDataSource());
+    }
+
+    private static boolean isUpdate(NativeQueryInfo info) {
+        return info.getReturnType().getSimpleName().equals(Void.TYPE.getName());
+    }
+
+    /**
+     * Records the data source the query runs on, for the listeners.
+     */
+    private static void setDataSource(NativeQueryInfo info, NamedParameterJdbcTemplate jdbcTemplate) {
+        NativeQueryExecution execution = info.getExecution();
+        if (execution.isEnabled()) {
+            execution.setDataSource(jdbcTemplate.getJdbcTemplate().getDataSource());
+        }
+    }
+
+    private Object executeWithJdbcTemplate(NativeQueryInfo info, NamedParameterJdbcTemplate jdbcTemplate) {
+        NativeQueryBatch.Scope batch = NativeQueryBatch.currentScope();
+        NamedParameterJdbcTemplate template = batch != null && !info.isReactive() ? batch.bind(jdbcTemplate) : jdbcTemplate;
+        return NativeQueryConnectionSchema.run(jdbcTemplate.getJdbcTemplate().getDataSource(), info.getConnectionSchema(),
+                () -> queryWithJdbcTemplate(info, template));
+    }
+
+    private Object queryWithJdbcTemplate(NativeQueryInfo info, NamedParameterJdbcTemplate jdbcTemplate) {
+        LOGGER.debug("SQL will be executed with JdbcTemplate");
+
+        Map<String, Object> parametroList = info.getBoundParameters();
+
+        if (isUpdate(info)) {
             LOGGER.debug("running update");
             jdbcTemplate.update(info.getSql(), parametroList);
             return null;
         }
 
+        LOGGER.debug("instantiating a DataClassRowMapper of type {}", info.getAliasToBean().getName());
+        DataClassRowMapper<?> dataClassRowMapper = new DataClassRowMapper<>(info.getAliasToBean());
+        RowMapper<?> rowMapper = info.isJavaObject() ? new SingleColumnRowMapper<>(info.getAliasToBean()) : dataClassRowMapper;
+
+        if (info.isReactive()) {
+            LOGGER.debug("streaming the query and returning a {} of type {}", info.getReturnType().getSimpleName(), info.getAliasToBean().getName());
+            String sql = info.getSql();
+            // the stream holds its own connection until it is closed by the publisher
+            return NativeQueryReactive.of(info, () -> NativeQueryReactive.cursor(jdbcTemplate, sql, parametroList, rowMapper));
+        }
+
+        RowMapper<?> timedRowMapper = timed(rowMapper, info);
+
         if (info.isSingleResult()) {
             if (info.isJavaObject()) {
                 LOGGER.debug("executing the query and returning an object of type {}", info.getAliasToBean().getName());
-                return jdbcTemplate.queryForObject(info.getSql(), parametroList, info.getAliasToBean());
+                return jdbcTemplate.queryForObject(info.getSql(), parametroList, timedRowMapper);
             }
 
             if (info.returnTypeIsOptional()) {
                 LOGGER.debug("executing the query and returning an optional {}", info.getAliasToBean().getName());
-                return getOptionalReturn(() -> jdbcTemplate.queryForObject(info.getSql(), parametroList, dataClassRowMapper));
+                return getOptionalReturn(() -> jdbcTemplate.queryForObject(info.getSql(), parametroList, timedRowMapper));
             }
 
             LOGGER.debug("executing the query and returning an object of type {}", info.getAliasToBean().getName());
-            return jdbcTemplate.queryForObject(info.getSql(), parametroList, dataClassRowMapper);
+            return jdbcTemplate.queryForObject(info.getSql(), parametroList, timedRowMapper);
         }
 
         LOGGER.debug("executing the query and returning a list of objects of type {}", info.getAliasToBean().getName());
-        if (info.isJavaObject()) {
-            return jdbcTemplate.queryForList(info.getSql(), parametroList, info.getAliasToBean());
+        return jdbcTemplate.query(info.getSql(), parametroList, timedRowMapper);
+    }
+
+    private Object executeHedged(NativeQueryInfo info, NativeQueryReplicaRouter router) {
+        LOGGER.debug("SQL will be executed on the replicas with hedging");
+        RowMapper<?> rowMapper = info.isJavaObject()
+                ? new SingleColumnRowMapper<>(info.getAliasToBean())
+                : new DataClassRowMapper<>(info.getAliasToBean());
+        List<?> rows = NativeQueryHedging.query(info, router, rowMapper);
+        if (info.isSingleResult()) {
+            if (info.returnTypeIsOptional()) {
+                return getOptionalReturn(() -> DataAccessUtils.nullableSingleResult(rows));
+            }
+            return DataAccessUtils.nullableSingleResult(rows);
         }
-        return jdbcTemplate.query(info.getSql(), parametroList, dataClassRowMapper);
+        return rows;
     }
 
     private Object executeWithEntityManager(NativeQueryInfo info) {
         LOGGER.debug("SQL will be executed with EntityManager");
-        LOGGER.debug("getting the instance of the EntityManager bean");
-        EntityManager entityManager = ApplicationContextProvider.getApplicationContext().getBean(EntityManager.class);
-        Session session = entityManager.unwrap(Session.class);
-        NativeQuery<?> query;
-        if (info.isEntity()) {
-            LOGGER.debug("creating a native query with the entityManager and defining the return class {}", info.getAliasToBean().getName());
-            query = session.createNativeQuery(info.getSql(), info.getAliasToBean());
-        } else {
-            LOGGER.debug("creating a native query with the entityManager");
-            query = session.createNativeQuery(info.getSql());
+        if (info.isReactive()) {
+            return executeReactiveWithEntityManager(info);
+        }
+        if (info.getConnectionSchema() != null && !TransactionSynchronizationManager.hasResource(entityManagerFactory.get())) {
+            // outside a transaction, the shared EntityManager may run each statement on another connection
+            return executeWithSessionHoldingItsConnection(info);
         }
+        return executeWithSession(info, entityManager.get().unwrap(Session.class));
+    }
 
-        addParameterJpa(query, info);
+    private Object executeWithSessionHoldingItsConnection(NativeQueryInfo info) {
+        LOGGER.debug("SQL will be executed in a session of its own, holding its connection until it is closed");
+        try (Session session = entityManagerFactory.get().unwrap(SessionFactory.class).withOptions()
+                .connectionHandling(ConnectionAcquisitionMode.AS_NEEDED, ConnectionReleaseMode.ON_CLOSE)
+                .openSession()) {
+            if (!isUpdate(info)) {
+                return executeWithSession(info, session);
+            }
+            // Hibernate only updates within a transaction, the session is not bound to any
+            Transaction transaction = session.beginTransaction();
+            try {
+                executeWithSession(info, session);
+                transaction.commit();
+                return null;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
 
-        if (info.hasPagination()) {
-            LOGGER.debug("setting pagination, first {}, max {}", info.getFirstResult(), info.getMaxResult());
-            query.setFirstResult(info.getFirstResult());
-            query.setMaxResults(info.getMaxResult());
+    private Object executeWithSession(NativeQueryInfo info, DataSource dataSource) {
+        LOGGER.debug("SQL will be executed in a session of its own");
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Session session = entityManagerFactory.get().unwrap(SessionFactory.class).withOptions().connection(connection).openSession()) {
+            return executeWithSession(info, session);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
         }
+    }
 
-        if (!info.isJavaObject() && !info.isEntity()) {
-            if (info.isUseHibernateTypes()) {
-                HibernateTypesMapper.map(query, info.getAliasToBean());
-            }
-            LOGGER.debug("invoking Hibernate ResultTransformer to convert the SQL query to an object of type {}", info.getAliasToBean().getName());
-            query.setResultTransformer(Transformers.aliasToBean(info.getAliasToBean()));
+    private Object executeWithSession(NativeQueryInfo info, Session session) {
+        String schema = info.getConnectionSchema();
+        if (schema == null) {
+            return queryWithSession(info, session);
         }
-        if (info.getReturnType().getSimpleName().equals(Void.TYPE.getName())) {
+        String previous = session.doReturningWork(connection -> NativeQueryConnectionSchema.set(connection, schema));
+        try {
+            return queryWithSession(info, session);
+        } finally {
+            session.doWork(connection -> NativeQueryConnectionSchema.reset(connection, previous, schema));
+        }
+    }
+
+    private Object queryWithSession(NativeQueryInfo info, Session session) {
+        NativeQuery<?> query = createNativeQuery(session, info);
+
+        if (isUpdate(info)) {
             LOGGER.debug("running update");
             query.executeUpdate();
             return null;
@@ -150,6 +441,103 @@ public class NativeQueryMethodInterceptorImpl implements NativeQueryMethodInterc
         return resultList;
     }
 
+    private Object executeReactiveWithEntityManager(NativeQueryInfo info) {
+        EntityManagerFactory entityManagerFactory = this.entityManagerFactory.get();
+        LOGGER.debug("streaming the query and returning a {} of type {}", info.getReturnType().getSimpleName(), info.getAliasToBean().getName());
+        // renders the SQL on the calling thread, where thread bound state such as the tenant is still available
+        info.getSql();
+        return NativeQueryReactive.of(info, () -> {
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            Session session = entityManager.unwrap(Session.class);
+            try {
+                // the driver only fetches the rows by batches within a transaction
+                session.setDefaultReadOnly(true);
+                Transaction transaction = session.beginTransaction();
+                return createNativeQuery(session, info)
+                        .setFetchSize(NativeQueryReactive.DEFAULT_FETCH_SIZE)
+                        .stream()
+                        .onClose(() -> {
+                            try {
+                                transaction.rollback();
+                            } finally {
+                                entityManager.close();
+                            }
+                        });
+            } catch (RuntimeException e) {
+                try {
+                    Transaction transaction = session.getTransaction();
+                    if (transaction.isActive()) {
+                        transaction.rollback();
+                    }
+                } finally {
+                    entityManager.close();
+                }
+                throw e;
+            }
+        });
+    }
+
+    private NativeQuery<?> createNativeQuery(Session session, NativeQueryInfo info) {
+        NativeQuery<?> query;
+        if (info.isEntity()) {
+            LOGGER.debug("creating a native query with the entityManager and defining the return class {}", info.getAliasToBean().getName());
+            query = session.createNativeQuery(info.getSql(), info.getAliasToBean());
+        } else {
+            LOGGER.debug("creating a native query with the entityManager");
+            query = session.createNativeQuery(info.getSql());
+        }
+
+        addParameterJpa(query, info);
+
+        if (info.hasPagination()) {
+            LOGGER.debug("setting pagination, first {}, max {}", info.getFirstResult(), info.getMaxResult());
+            query.setFirstResult(info.getFirstResult());
+            query.setMaxResults(info.getMaxResult());
+        }
+
+        NativeQueryBatch.Scope batch = NativeQueryBatch.currentScope();
+        if (batch != null && batch.getRemainingSeconds() > 0 && !info.isReactive()) {
+            LOGGER.debug("setting the timeout of the batch, {} seconds", batch.getRemainingSeconds());
+            query.setTimeout(batch.getRemainingSeconds());
+        }
+
+        if (!info.isJavaObject() && !info.isEntity()) {
+            if (info.isUseHibernateTypes()) {
+                HibernateTypesMapper.map(query, info.getAliasToBean());
+            }
+            LOGGER.debug("invoking Hibernate ResultTransformer to convert the SQL query to an object of type {}", info.getAliasToBean().getName());
+            ResultTransformer<?> resultTransformer = Transformers.aliasToBean(info.getAliasToBean());
+            query.setResultTransformer(resultTransformer);
+            if (info.getExecution().isEnabled() && !info.isReactive()) {
+                NativeQueryExecution execution = info.getExecution();
+                query.setTupleTransformer((tuple, aliases) -> {
+                    long start = System.nanoTime();
+                    try {
+                        return resultTransformer.transformTuple(tuple, aliases);
+                    } finally {
+                        execution.accumulate(NativeQueryPhase.MAP, System.nanoTime() - start);
+                    }
+                });
+            }
+        }
+        return query;
+    }
+
+    private RowMapper<?> timed(RowMapper<?> rowMapper, NativeQueryInfo info) {
+        NativeQueryExecution execution = info.getExecution();
+        if (!execution.isEnabled()) {
+            return rowMapper;
+        }
+        return (rs, rowNum) -> {
+            long start = System.nanoTime();
+            try {
+                return rowMapper.mapRow(rs, rowNum);
+            } finally {
+                execution.accumulate(NativeQueryPhase.MAP, System.nanoTime() - start);
+            }
+        };
+    }
+
     private Object getOptionalReturn(Supplier<Object> result) {
         try {
             return Optional.ofNullable(result.get());
@@ -159,22 +547,21 @@ public class NativeQueryMethodInterceptorImpl implements NativeQueryMethodInterc
     }
 
     private Long getTotalRecords(NativeQueryInfo info, Session session) {
-        LOGGER.debug("executing the query to obtain the number of records found to be used in the pagination");
-        NativeQuery<?> query = session.createNativeQuery(info.getSqlTotalRecord());
-        query.unwrap(NativeQuery.class).addScalar("totalRecords", StandardBasicTypes.LONG);
-        addParameterJpa(query, info);
-        return (Long) query.getSingleResult();
+        NativeQueryCountEvent event = new NativeQueryCountEvent();
+        event.begin();
+        Long totalRecords = info.getExecution().phase(NativeQueryPhase.COUNT, () -> {
+            LOGGER.debug("executing the query to obtain the number of records found to be used in the pagination");
+            NativeQuery<?> query = session.createNativeQuery(info.getSqlTotalRecord());
+            query.unwrap(NativeQuery.class).addScalar("totalRecords", StandardBasicTypes.LONG);
+            addParameterJpa(query, info);
+            return (Long) query.getSingleResult();
+        });
+        event.complete(info, totalRecords);
+        return totalRecords;
     }
 
     private void addParameterJpa(NativeQuery<?> query, NativeQueryInfo info) {
-        info.getParameterList().forEach(parameter -> {
-            LOGGER.debug("checking if parameter {} exists in sql", parameter.getName());
-            if (parameter.getValue() != null && info.getSql().contains(":" + parameter.getName())) {
-                LOGGER.debug("parameter {} exists in SQL", parameter.getName());
-                LOGGER.debug("parameter {} containing the value {} added to SQL", parameter.getName(), parameter.getValue().toString());
-                query.setParameter(parameter.getName(), parameter.getValue());
-            }
-        });
+        info.getBoundParameters().forEach(query::setParameter);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package io.github.gasparbarancelli;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+/**
+ * The precomputed execution of a {@link NativeQuery} method, called by the implementations
+ * generated by {@link NativeQueryIndexProcessor}.
+ *
+ * <p>The method and its parameters are resolved once, when the implementation is created, and
+ * the cached {@link NativeQueryInfo} of the method on its first invocation. Each invocation then
+ * only copies that information, sets the arguments on the copy and executes the query, without
+ * going through the proxy and its advice chain.</p>
+ *
+ * <p>This class is public so that the generated implementations, which belong to the packages of
+ * the interfaces, can use it. It is not meant to be used directly.</p>
+ *
+ * @see NativeQueryIndexProcessor
+ * @see NativeQueryProxyFactoryImpl
+ */
+public final class NativeQueryMethodPlan {
+
+    static final String IMPLEMENTATION_SUFFIX = "_NativeQueryImpl";
+
+    private final Class<? extends NativeQuery> classe;
+
+    private final Method method;
+
+    private final Parameter[] parameters;
+
+    private final NativeQueryMethodInterceptor interceptor;
+
+    private volatile NativeQueryInfo info;
+
+    private NativeQueryMethodPlan(Class<? extends NativeQuery> classe, Method method, NativeQueryMethodInterceptor interceptor) {
+        this.classe = classe;
+        this.method = method;
+        this.parameters = method.getParameters();
+        this.interceptor = interceptor;
+    }
+
+    /**
+     * Creates the plan of a method.
+     *
+     * @param classe         The {@code NativeQuery} interface.
+     * @param interceptor    The interceptor executing the queries.
+     * @param methodName     The name of the method.
+     * @param parameterTypes The parameter types of the method.
+     * @return The plan of the method.
+     * @throws IllegalStateException If the interface has no such method.
+     */
+    public static NativeQueryMethodPlan of(Class<? extends NativeQuery> classe, NativeQueryMethodInterceptor interceptor,
+                                           String methodName, Class<?>... parameterTypes) {
+        try {
+            return new NativeQueryMethodPlan(classe, classe.getMethod(methodName, parameterTypes), interceptor);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("The generated implementation of " + classe.getName()
+                    + " is out of date, recompile it: method " + methodName + " was not found", e);
+        }
+    }
+
+    /**
+     * Executes the query of the method.
+     *
+     * @param arguments The arguments of the invocation.
+     * @return The result of the query.
+     */
+    public Object invoke(Object... arguments) {
+        if (!NativeQueryExecution.isObserved()) {
+            return interceptor.executeQuery(NativeQueryCache.get(getInfo(), parameters, arguments));
+        }
+        NativeQueryExecution execution = NativeQueryExecution.start(classe, method);
+        NativeQueryInfo invocationInfo = execution.phase(NativeQueryPhase.METADATA,
+                () -> NativeQueryCache.get(getInfo(), parameters, arguments));
+        invocationInfo.setExecution(execution);
+        return execution.run(() -> interceptor.executeQuery(invocationInfo));
+    }
+
+    /**
+     * Returns the name of the implementation generated for an interface, in the package of the
+     * interface, for example {@code com.example.UserNativeQuery_NativeQueryImpl}, or
+     * {@code com.example.Queries_User_NativeQueryImpl} for an interface nested in a class.
+     *
+     * @param interfaceName The binary name of the {@code NativeQuery} interface.
+     * @return The binary name of the generated implementation.
+     */
+    static String implementationName(String interfaceName) {
+        return interfaceName.replace('$', '_') + IMPLEMENTATION_SUFFIX;
+    }
+
+    private NativeQueryInfo getInfo() {
+        NativeQueryInfo cached = info;
+        if (cached == null) {
+            cached = NativeQueryCache.getInfo(classe, method);
+            info = cached;
+        }
+        return cached;
+    }
+
+}
@@ -0,0 +1,67 @@
+package io.github.gasparbarancelli;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto-configuration of the Micrometer metrics of the native query methods.
+ *
+ * <p>When Micrometer is on the classpath and a {@link MeterRegistry} bean is available, a
+ * {@link NativeQueryMicrometerListener} is registered. Without a registry no listener is
+ * registered and the invocations are not timed at all. When Caffeine is on the classpath too, a
+ * {@link NativeQueryResultCacheMetrics} records the statistics of the result caches. The metrics
+ * can be disabled with the {@code native-query.metrics.enabled} property.</p>
+ *
+ * @see NativeQueryMicrometerListener
+ * @see NativeQueryResultCacheMetrics
+ */
+@AutoConfiguration(afterName = {
+        "org.springframework.boot.micrometer.metrics.autoconfigure.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"
+})
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(name = "native-query.metrics.enabled", matchIfMissing = true)
+public class NativeQueryMetricsAutoConfiguration {
+
+    /**
+     * Creates the listener recording the invocations in the meter registry.
+     *
+     * @param meterRegistry The meter registry of the application.
+     * @return The Micrometer listener.
+     */
+    @Bean
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnMissingBean
+    public NativeQueryMicrometerListener nativeQueryMicrometerListener(MeterRegistry meterRegistry) {
+        return new NativeQueryMicrometerListener(meterRegistry);
+    }
+
+    /**
+     * The metrics of the result caches, only configured when Caffeine is on the classpath.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
+    static class ResultCacheMetricsConfiguration {
+
+        /**
+         * Creates the binder recording the statistics of the result caches in the meter registry.
+         *
+         * @param meterRegistry The meter registry of the application.
+         * @return The result cache metrics.
+         */
+        @Bean
+        @ConditionalOnBean(MeterRegistry.class)
+        @ConditionalOnMissingBean
+        public NativeQueryResultCacheMetrics nativeQueryResultCacheMetrics(MeterRegistry meterRegistry) {
+            return new NativeQueryResultCacheMetrics(meterRegistry);
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package io.github.gasparbarancelli;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link NativeQueryListener} that records the invocations of {@link NativeQuery} methods
+ * in a Micrometer {@link MeterRegistry}.
+ *
+ * <p>Every meter is tagged with the simple name of the {@code interface}, the {@code method}
+ * and the {@code engine} executing the query, {@code hibernate} or {@code jdbc}. The following
+ * meters are recorded:</p>
+ * <ul>
+ *     <li>{@code native.query}: timer of the whole invocation, tagged with its {@code outcome};</li>
+ *     <li>{@code native.query.phase}: timer of each {@linkplain NativeQueryPhase phase}, tagged with the {@code phase};</li>
+ *     <li>{@code native.query.rows}: distribution of the number of rows returned;</li>
+ *     <li>{@code native.query.errors}: counter of the failed invocations, tagged with the {@code exception}.</li>
+ * </ul>
+ *
+ * <p>The meters of a method are looked up once and kept, so recording an invocation does not
+ * go through the registry.</p>
+ *
+ * @see NativeQueryMetricsAutoConfiguration
+ */
+public class NativeQueryMicrometerListener implements NativeQueryListener {
+
+    private final MeterRegistry registry;
+
+    private final Map<MethodKey, Meters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a listener recording in the given registry.
+     *
+     * @param registry The registry of the meters.
+     */
+    public NativeQueryMicrometerListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onPhase(NativeQueryExecution execution, NativeQueryPhase phase, long durationNanos) {
+        meters(execution).phases[phase.ordinal()].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onCompleted(NativeQueryExecution execution, long durationNanos, Throwable error) {
+        Meters methodMeters = meters(execution);
+        if (error == null) {
+            methodMeters.success.record(durationNanos, TimeUnit.NANOSECONDS);
+            if (execution.getRows() >= 0) {
+                methodMeters.rows.record(execution.getRows());
+            }
+        } else {
+            methodMeters.error.record(durationNanos, TimeUnit.NANOSECONDS);
+            Counter.builder("native.query.errors")
+                    .description("Failed invocations of native query methods")
+                    .tags(methodMeters.tags)
+                    .tag("exception", error.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    private Meters meters(NativeQueryExecution execution) {
+        MethodKey key = new MethodKey(execution.getNativeQueryInterface(), execution.getMethod());
+        return meters.computeIfAbsent(key, k -> new Meters(registry, Tags.of(
+                "interface", k.nativeQueryInterface().getSimpleName(),
+                "method", k.method().getName(),
+                "engine", execution.getEngine()
+        )));
+    }
+
+    private record MethodKey(Class<?> nativeQueryInterface, Method method) {
+    }
+
+    private static class Meters {
+
+        final Tags tags;
+
+        final Timer success;
+
+        final Timer error;
+
+        final Timer[] phases;
+
+        final DistributionSummary rows;
+
+        Meters(MeterRegistry registry, Tags tags) {
+            this.tags = tags;
+            this.success = invocationTimer(registry, tags, "success");
+            this.error = invocationTimer(registry, tags, "error");
+            NativeQueryPhase[] values = NativeQueryPhase.values();
+            this.phases = new Timer[values.length];
+            for (NativeQueryPhase phase : values) {
+                phases[phase.ordinal()] = Timer.builder("native.query.phase")
+                        .description("Time spent in each phase of native query methods")
+                        .tags(tags)
+                        .tag("phase", phase.getTagValue())
+                        .register(registry);
+            }
+            this.rows = DistributionSummary.builder("native.query.rows")
+                    .description("Rows returned by native query methods")
+                    .baseUnit("rows")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        private static Timer invocationTimer(MeterRegistry registry, Tags tags, String outcome) {
+            return Timer.builder("native.query")
+                    .description("Invocations of native query methods")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+    }
+
+}
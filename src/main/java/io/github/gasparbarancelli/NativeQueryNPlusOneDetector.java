@@ -0,0 +1,180 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.CodeSource;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link NativeQueryListener} that detects the N+1 pattern, that is, a {@link NativeQuery}
+ * method invoked over and over within the same unit of work, typically from a loop.
+ *
+ * <p>Invocations are counted per method and per {@linkplain NativeQueryStringUtils#fingerprint(String)
+ * SQL fingerprint} within a scope, which is the current transaction, or when there is none, a
+ * scope opened with {@link #openScope()}, for example by a servlet filter around each request.
+ * Invocations outside of any scope are not counted.</p>
+ *
+ * <p>When a method or a SQL is invoked more times than the threshold, the detector logs a
+ * warning, once per scope, with the call site of the invocation, which is the first frame of
+ * the stack outside of this library and of Spring. When configured to fail, as is useful in
+ * tests, it throws an {@link IllegalStateException} instead.</p>
+ *
+ * <p>The detector is registered by {@link NativeQueryAutoConfiguration} when the
+ * {@code native-query.n-plus-one.threshold} property is set:</p>
+ * <pre>{@code
+ * native-query.n-plus-one.threshold=10
+ * native-query.n-plus-one.fail=true
+ * }</pre>
+ *
+ * @see NativeQueryListener
+ */
+public class NativeQueryNPlusOneDetector implements NativeQueryListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryNPlusOneDetector.class);
+
+    private static final ThreadLocal<Scope> CURRENT_SCOPE = new ThreadLocal<>();
+
+    private static final CodeSource LIBRARY_CODE_SOURCE = NativeQuery.class.getProtectionDomain().getCodeSource();
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final int threshold;
+
+    private final boolean fail;
+
+    /**
+     * Creates a detector.
+     *
+     * @param threshold The number of invocations of a method or SQL allowed within a scope.
+     * @param fail      Whether crossing the threshold throws an exception instead of logging a warning.
+     */
+    public NativeQueryNPlusOneDetector(int threshold, boolean fail) {
+        this.threshold = threshold;
+        this.fail = fail;
+    }
+
+    /**
+     * Opens a scope on the current thread, for the invocations that are not part of a transaction.
+     *
+     * <p>Example usage:</p>
+     * <pre>{@code
+     * try (NativeQueryNPlusOneDetector.Scope scope = NativeQueryNPlusOneDetector.openScope()) {
+     *     chain.doFilter(request, response);
+     * }
+     * }</pre>
+     *
+     * @return The scope, which must be closed on the same thread.
+     */
+    public static Scope openScope() {
+        Scope scope = new Scope(CURRENT_SCOPE.get());
+        CURRENT_SCOPE.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void onCompleted(NativeQueryExecution execution, long durationNanos, Throwable error) {
+        NativeQueryInfo info = execution.getInfo();
+        Scope scope = info == null ? null : currentScope();
+        if (scope == null) {
+            return;
+        }
+        String fingerprint = NativeQueryStringUtils.fingerprint(info.getRenderedSql());
+        String methodViolation = scope.count("method " + info.getMethodKey(), threshold);
+        String sqlViolation = fingerprint == null ? null : scope.count("sql [" + fingerprint + "]", threshold);
+        String violation = methodViolation != null ? methodViolation : sqlViolation;
+        if (violation == null) {
+            return;
+        }
+        String message = "possible N+1 query: " + violation + " was invoked more than " + threshold
+                + " times in the same " + (TransactionSynchronizationManager.isActualTransactionActive() ? "transaction" : "scope")
+                + ", last invoked from " + callSite() + ", sql=[" + fingerprint + "]";
+        if (fail && error == null) {
+            throw new IllegalStateException(message);
+        }
+        LOGGER.warn(message);
+    }
+
+    private Scope currentScope() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            Scope scope = (Scope) TransactionSynchronizationManager.getResource(this);
+            if (scope == null) {
+                scope = new Scope(null);
+                TransactionSynchronizationManager.bindResource(this, scope);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(NativeQueryNPlusOneDetector.this);
+                    }
+                });
+            }
+            return scope;
+        }
+        return CURRENT_SCOPE.get();
+    }
+
+    private static String callSite() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !isFramework(frame.getDeclaringClass()))
+                .findFirst()
+                .map(frame -> frame.getClassName() + "." + frame.getMethodName() + "(" + frame.getFileName() + ":" + frame.getLineNumber() + ")")
+                .orElse("unknown"));
+    }
+
+    private static boolean isFramework(Class<?> classe) {
+        String name = classe.getName();
+        return Objects.equals(classe.getProtectionDomain().getCodeSource(), LIBRARY_CODE_SOURCE)
+                || name.startsWith("org.springframework.")
+                || name.startsWith("java.")
+                || name.startsWith("jdk.")
+                || name.startsWith("sun.")
+                || name.startsWith("com.sun.proxy.");
+    }
+
+    /**
+     * A unit of work within which the invocations are counted.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        private final Set<String> reported = new HashSet<>();
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Counts an invocation.
+         *
+         * @return The key, when it crosses the threshold for the first time in this scope, {@code null} otherwise.
+         */
+        private String count(String key, int threshold) {
+            int count = counts.merge(key, 1, Integer::sum);
+            return count > threshold && reported.add(key) ? key : null;
+        }
+
+        /**
+         * Closes the scope, restoring the scope that was current when it was opened.
+         */
+        @Override
+        public void close() {
+            if (parent == null) {
+                CURRENT_SCOPE.remove();
+            } else {
+                CURRENT_SCOPE.set(parent);
+            }
+        }
+
+    }
+
+}
@@ -56,4 +56,13 @@ public @interface NativeQueryParam {
      */
     boolean addChildren() default false;
 
+    /**
+     * If {@code true}, indicates that the value of the parameter, or of the filter field, is the
+     * shard key routing the queries of a {@link NativeQuerySharded} method to one shard.
+     *
+     * @return {@code true} if the parameter is the shard key, {@code false} otherwise.
+     * @see NativeQueryShardRouter
+     */
+    boolean shardKey() default false;
+
 }
\ No newline at end of file
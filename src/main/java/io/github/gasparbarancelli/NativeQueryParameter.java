@@ -30,6 +30,8 @@ public class NativeQueryParameter implements Serializable, Cloneable {
 
     private final Object value;
 
+    private final boolean shardKey;
+
     /**
      * Constructs a new {@code NativeQueryParameter}.
      *
@@ -37,8 +39,20 @@ public class NativeQueryParameter implements Serializable, Cloneable {
      * @param value The value of the parameter.
      */
     public NativeQueryParameter(String name, Object value) {
+        this(name, value, false);
+    }
+
+    /**
+     * Constructs a new {@code NativeQueryParameter}.
+     *
+     * @param name     The name of the parameter.
+     * @param value    The value of the parameter.
+     * @param shardKey Whether the value is the {@linkplain NativeQueryParam#shardKey() shard key} of the query.
+     */
+    public NativeQueryParameter(String name, Object value, boolean shardKey) {
         this.name = name;
         this.value = value;
+        this.shardKey = shardKey;
     }
 
     /**
@@ -73,7 +87,7 @@ public class NativeQueryParameter implements Serializable, Cloneable {
                             parameterList.addAll(ofMap((Map) value, paramName));
                         } else {
                             Object paramValue = queryParam.operator().getTransformParam().apply(value);
-                            parameterList.add(new NativeQueryParameter(paramName, paramValue));
+                            parameterList.add(new NativeQueryParameter(paramName, paramValue, queryParam.shardKey()));
                         }
                     }
                 } else {
@@ -130,6 +144,15 @@ public class NativeQueryParameter implements Serializable, Cloneable {
         return this.value;
     }
 
+    /**
+     * Indicates whether the value is the {@linkplain NativeQueryParam#shardKey() shard key} of the query.
+     *
+     * @return {@code true} if the value routes the query to a shard.
+     */
+    public boolean isShardKey() {
+        return this.shardKey;
+    }
+
     @Override
     protected Object clone() throws CloneNotSupportedException {
         return super.clone();
@@ -0,0 +1,60 @@
+package io.github.gasparbarancelli;
+
+/**
+ * The phases of the invocation of a {@link NativeQuery} method that are reported to the
+ * {@link NativeQueryListener}s.
+ *
+ * <p>Phases may be nested: {@link #EXECUTE} includes the {@link #MAP} and {@link #COUNT}
+ * phases of the same invocation.</p>
+ *
+ * @see NativeQueryExecution
+ * @see NativeQueryListener
+ */
+public enum NativeQueryPhase {
+
+    /**
+     * Retrieval of the method metadata from {@link NativeQueryCache} and reading of the arguments.
+     */
+    METADATA("metadata"),
+
+    /**
+     * Rendering of the SQL template, replacements and sorting.
+     */
+    RENDER("render"),
+
+    /**
+     * Selection of the parameters bound to the rendered SQL.
+     */
+    BIND("bind"),
+
+    /**
+     * Execution of the query by the database, including the mapping of the results.
+     */
+    EXECUTE("execute"),
+
+    /**
+     * Mapping of the rows to the returned objects, accumulated over every row.
+     */
+    MAP("map"),
+
+    /**
+     * Execution of the query counting the total number of records of a page.
+     */
+    COUNT("count");
+
+    private final String tagValue;
+
+    NativeQueryPhase(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    /**
+     * Returns the lowercase name of the phase, as used in metric tags and log messages.
+     *
+     * @return The name of the phase.
+     */
+    public String getTagValue() {
+        return tagValue;
+    }
+
+}
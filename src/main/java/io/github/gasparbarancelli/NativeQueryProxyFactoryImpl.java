@@ -4,6 +4,7 @@ import org.aopalliance.intercept.MethodInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.util.ClassUtils;
 
 /**
  * The default implementation of {@link NativeQueryProxyFactory}.
@@ -11,7 +12,13 @@ import org.springframework.aop.framework.ProxyFactory;
  * <p>This class uses Spring's {@link ProxyFactory} to create proxy instances for
  * {@link NativeQuery} interfaces. The created proxy is advised with a
  * {@link MethodInterceptor} that intercepts method calls, gathers query information,
- * and delegates the execution to a {@link NativeQueryMethodInterceptor}.</p>
+ * and delegates the execution to a {@link NativeQueryMethodInterceptor}. Each call is
+ * observed by a {@link NativeQueryExecution}, which notifies the registered
+ * {@link NativeQueryListener}s.</p>
+ *
+ * <p>When {@link NativeQueryIndexProcessor} generated an implementation of the interface, that
+ * implementation is created instead of a proxy. Its methods call a {@link NativeQueryMethodPlan}
+ * directly, which the JIT compiler can inline.</p>
  *
  * @see NativeQueryProxyFactory
  * @see ProxyFactory
@@ -27,11 +34,31 @@ public class NativeQueryProxyFactoryImpl implements NativeQueryProxyFactory {
      * Constructs a new {@code NativeQueryProxyFactoryImpl} with a default method interceptor.
      */
     public NativeQueryProxyFactoryImpl() {
-        this.nativeQueryMethodInterceptor = new NativeQueryMethodInterceptorImpl();
+        this(new NativeQueryMethodInterceptorImpl());
+    }
+
+    /**
+     * Constructs a new {@code NativeQueryProxyFactoryImpl} delegating to the given method interceptor.
+     *
+     * @param nativeQueryMethodInterceptor The interceptor executing the queries.
+     */
+    NativeQueryProxyFactoryImpl(NativeQueryMethodInterceptor nativeQueryMethodInterceptor) {
+        this.nativeQueryMethodInterceptor = nativeQueryMethodInterceptor;
     }
 
     @Override
     public Object create(Class<? extends NativeQuery> classe) {
+        Object implementation = createGeneratedImplementation(classe);
+        return implementation != null ? implementation : createProxy(classe);
+    }
+
+    /**
+     * Creates a proxy for an interface, even when an implementation was generated for it.
+     *
+     * @param classe The {@code NativeQuery} interface to be proxied.
+     * @return A proxy object that implements the interface.
+     */
+    Object createProxy(Class<? extends NativeQuery> classe) {
         LOGGER.debug("creating an {} interface proxy", classe.getName());
         ProxyFactory proxy = new ProxyFactory();
         proxy.setTarget(classe);
@@ -41,10 +68,31 @@ public class NativeQueryProxyFactoryImpl implements NativeQueryProxyFactory {
                 return "NativeQuery Implementation";
             }
             LOGGER.debug("intercepting the call of method {} of class {}", invocation.getMethod().getName(), classe.getName());
-            NativeQueryInfo info = NativeQueryCache.get(classe, invocation);
-            return nativeQueryMethodInterceptor.executeQuery(info);
+            if (!NativeQueryExecution.isObserved()) {
+                return nativeQueryMethodInterceptor.executeQuery(NativeQueryCache.get(classe, invocation));
+            }
+            NativeQueryExecution execution = NativeQueryExecution.start(classe, invocation.getMethod());
+            NativeQueryInfo info = execution.phase(NativeQueryPhase.METADATA, () -> NativeQueryCache.get(classe, invocation));
+            info.setExecution(execution);
+            return execution.run(() -> nativeQueryMethodInterceptor.executeQuery(info));
         });
         return proxy.getProxy(classe.getClassLoader());
     }
 
+    private Object createGeneratedImplementation(Class<? extends NativeQuery> classe) {
+        String implementationName = NativeQueryMethodPlan.implementationName(classe.getName());
+        if (!ClassUtils.isPresent(implementationName, classe.getClassLoader())) {
+            return null;
+        }
+        try {
+            LOGGER.debug("creating the generated implementation {}", implementationName);
+            return ClassUtils.forName(implementationName, classe.getClassLoader())
+                    .getConstructor(NativeQueryMethodInterceptor.class)
+                    .newInstance(nativeQueryMethodInterceptor);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("could not create the generated implementation {}, using a proxy instead", implementationName, e);
+            return null;
+        }
+    }
+
 }
\ No newline at end of file
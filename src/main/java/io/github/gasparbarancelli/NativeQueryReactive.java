@@ -0,0 +1,124 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Adapts a lazily opened stream of query results to Reactor {@link Flux} and {@code Mono} return types.
+ *
+ * <p>The stream is only opened when the publisher is subscribed, and both the opening and the
+ * row by row consumption happen on the {@link Schedulers#boundedElastic()} scheduler, so blocking
+ * JDBC calls never run on an event loop. Rows are pulled from the underlying cursor as the
+ * subscriber requests them, which keeps memory usage bounded by the demand rather than by the
+ * size of the result. The stream, and with it the cursor and the connection, is closed before the
+ * publisher completes or fails, and as soon as it is cancelled.</p>
+ *
+ * <p>Drivers such as the PostgreSQL one load the whole result in memory unless the statement has
+ * a fetch size and the connection is not in autocommit mode. The rows are therefore fetched
+ * {@value #DEFAULT_FETCH_SIZE} at a time, unless the template configures another fetch size, in
+ * a read-only transaction that lasts as long as the stream.</p>
+ *
+ * <p>This class is kept apart from {@link NativeQueryMethodInterceptorImpl} so that Reactor is
+ * only loaded when a method actually declares a reactive return type.</p>
+ *
+ * @see NativeQueryInfo#isReactive()
+ * @see NativeQueryMethodInterceptorImpl
+ */
+final class NativeQueryReactive {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryReactive.class);
+
+    static final int DEFAULT_FETCH_SIZE = 100;
+
+    private NativeQueryReactive() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Creates the reactive return value for the given query.
+     *
+     * @param info   The information of the invoked method.
+     * @param stream A supplier that opens the stream of mapped rows when the publisher is subscribed.
+     * @return A {@code Flux} emitting every row, or a {@code Mono} emitting the single row, if any.
+     */
+    @SuppressWarnings("unchecked")
+    static Object of(NativeQueryInfo info, Supplier<Stream<?>> stream) {
+        Flux<Object> flux = Flux.using(() -> (Stream<Object>) stream.get(), Flux::fromStream, Stream::close)
+                .subscribeOn(Schedulers.boundedElastic());
+        if (info.returnTypeIsMono()) {
+            LOGGER.debug("returning a Mono of type {}", info.getAliasToBean().getName());
+            return flux.singleOrEmpty();
+        }
+        LOGGER.debug("returning a Flux of type {}", info.getAliasToBean().getName());
+        return flux;
+    }
+
+    /**
+     * Opens a stream of the rows of a query, read with a cursor.
+     *
+     * <p>The connection is taken out of autocommit mode and marked read-only until the stream is
+     * closed, so that the driver fetches the rows by batches of the fetch size.</p>
+     *
+     * @param jdbcTemplate The template of the data source to query.
+     * @param sql          The SQL of the query.
+     * @param parameters   The values bound to the SQL.
+     * @param rowMapper    Maps the rows.
+     * @return The stream of the mapped rows, which must be closed.
+     */
+    static Stream<?> cursor(NamedParameterJdbcTemplate jdbcTemplate, String sql, Map<String, Object> parameters, RowMapper<?> rowMapper) {
+        DataSource dataSource = jdbcTemplate.getJdbcTemplate().getDataSource();
+        int fetchSize = jdbcTemplate.getJdbcTemplate().getFetchSize() > 0
+                ? jdbcTemplate.getJdbcTemplate().getFetchSize()
+                : DEFAULT_FETCH_SIZE;
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            boolean readOnly = connection.isReadOnly();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            connection.setReadOnly(true);
+            NamedParameterJdbcTemplate cursorTemplate = new NamedParameterJdbcTemplate(new SingleConnectionDataSource(connection, true));
+            cursorTemplate.getJdbcTemplate().setFetchSize(fetchSize);
+            LOGGER.debug("streaming the rows with a cursor fetching {} rows at a time", fetchSize);
+            return cursorTemplate.queryForStream(sql, parameters, rowMapper)
+                    .onClose(() -> release(connection, dataSource, autoCommit, readOnly));
+        } catch (SQLException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw new DataAccessResourceFailureException("Could not open a cursor on the connection", e);
+        } catch (RuntimeException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw e;
+        }
+    }
+
+    private static void release(Connection connection, DataSource dataSource, boolean autoCommit, boolean readOnly) {
+        try {
+            if (autoCommit) {
+                // the transaction only read, and ends with the cursor
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.setReadOnly(readOnly);
+        } catch (SQLException e) {
+            LOGGER.debug("the connection of the cursor could not be restored", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+}
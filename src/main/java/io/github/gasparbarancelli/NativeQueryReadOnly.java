@@ -0,0 +1,45 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation marking the queries of a {@link NativeQuery} interface, or of one of its methods,
+ * as read-only, so that they can run on a replica of the database.
+ *
+ * <p>When a {@link NativeQueryReplicaRouter} is configured, the read-only methods run on one of its
+ * replicas, unless they are invoked within a transaction that is not read-only, in which case they
+ * run on the primary database, to see the changes of that transaction. Methods that choose their
+ * own {@link NativeQueryDataSource}, and methods returning a {@code Flux} or a {@code Mono}, always
+ * run on their usual database. An annotation on a method takes precedence over the annotation on
+ * its interface.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryReadOnly
+ * public interface SaleReportNativeQuery extends NativeQuery {
+ *
+ *     List<SaleReport> findSales();
+ *
+ *     @NativeQueryReadOnly(false)
+ *     List<SaleReport> findSalesOfToday();
+ *
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryReplicaRouter
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryReadOnly {
+
+    /**
+     * Whether the queries are read-only.
+     *
+     * @return {@code false} to run a method of a read-only interface on the primary database.
+     */
+    boolean value() default true;
+
+}
@@ -2,11 +2,18 @@ package io.github.gasparbarancelli;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.util.ClassUtils;
 
 import java.beans.Introspector;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The default implementation of {@link NativeQueryRegistry}.
@@ -18,6 +25,13 @@ import java.util.Set;
  * <p>The bean name is derived from the simple name of the interface, decapitalized
  * according to Java bean conventions.</p>
  *
+ * <p>When the registry is also the bean factory, as in a Spring application, the queries run
+ * with the beans of that factory, chosen per interface with {@link NativeQueryBeans}, and the
+ * interfaces that choose the same beans share an interceptor.</p>
+ *
+ * <p>The registration fails when a method is annotated with {@link NativeQueryCacheable} and
+ * Caffeine, which caches the results, is not on the classpath.</p>
+ *
  * @see NativeQueryRegistry
  * @see NativeQueryProxyFactory
  * @see BeanDefinitionRegistry
@@ -26,7 +40,13 @@ public class NativeQueryRegistryImpl implements NativeQueryRegistry {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryRegistryImpl.class);
 
-    private final NativeQueryProxyFactory nativeQueryProxyFactory;
+    private static final Set<Class<? extends NativeQuery>> REGISTERED_INTERFACES = ConcurrentHashMap.newKeySet();
+
+    private static final boolean RESULT_CACHE_PRESENT = ClassUtils.isPresent(
+            "com.github.benmanes.caffeine.cache.Caffeine", NativeQueryRegistryImpl.class.getClassLoader()
+    );
+
+    private final Map<NativeQueryBeans, NativeQueryProxyFactory> nativeQueryProxyFactories = new HashMap<>();
 
     private final BeanDefinitionRegistry registry;
 
@@ -36,19 +56,55 @@ public class NativeQueryRegistryImpl implements NativeQueryRegistry {
      * @param registry The Spring bean definition registry.
      */
     public NativeQueryRegistryImpl(BeanDefinitionRegistry registry) {
-        this.nativeQueryProxyFactory = new NativeQueryProxyFactoryImpl();
         this.registry = registry;
     }
 
     @Override
     public void registry(Set<Class<? extends NativeQuery>> nativeQueryList) {
         for (Class<? extends NativeQuery> classe : nativeQueryList) {
-            Object source = nativeQueryProxyFactory.create(classe);
+            checkResultCache(classe, RESULT_CACHE_PRESENT);
+            Object source = getProxyFactory(classe.getAnnotation(NativeQueryBeans.class)).create(classe);
             AbstractBeanDefinition beanDefinition = NativeQueryBeanDefinition.of(classe, source);
             String beanName = Introspector.decapitalize(classe.getSimpleName());
             LOGGER.debug("registering the bean {}", beanName);
             registry.registerBeanDefinition(beanName, beanDefinition);
+            REGISTERED_INTERFACES.add(classe);
+        }
+    }
+
+    /**
+     * Checks that the results of the cacheable methods of an interface can be cached.
+     *
+     * @param classe             The interface.
+     * @param resultCachePresent Whether Caffeine is on the classpath.
+     * @throws IllegalStateException if a method is cacheable and Caffeine is not on the classpath.
+     */
+    static void checkResultCache(Class<? extends NativeQuery> classe, boolean resultCachePresent) {
+        if (resultCachePresent) {
+            return;
+        }
+        for (Method method : classe.getMethods()) {
+            if (method.isAnnotationPresent(NativeQueryCacheable.class)) {
+                throw new IllegalStateException("Method " + classe.getName() + "." + method.getName()
+                        + " is annotated with @NativeQueryCacheable, which requires the dependency"
+                        + " com.github.ben-manes.caffeine:caffeine on the classpath");
+            }
         }
     }
 
+    private NativeQueryProxyFactory getProxyFactory(NativeQueryBeans beans) {
+        return nativeQueryProxyFactories.computeIfAbsent(beans, key -> registry instanceof BeanFactory beanFactory
+                ? new NativeQueryProxyFactoryImpl(new NativeQueryMethodInterceptorImpl(beanFactory, key))
+                : new NativeQueryProxyFactoryImpl());
+    }
+
+    /**
+     * Returns the interfaces registered so far.
+     *
+     * @return An unmodifiable view of the registered interfaces.
+     */
+    static Set<Class<? extends NativeQuery>> getRegisteredInterfaces() {
+        return Collections.unmodifiableSet(REGISTERED_INTERFACES);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package io.github.gasparbarancelli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted when the SQL template of a method is rendered.
+ *
+ * <p>When the event is not enabled in the recording, {@link #begin()} and {@link #complete(NativeQueryInfo)}
+ * do nothing and the event is not even allocated once the code is compiled.</p>
+ *
+ * @see NativeQueryExecuteEvent
+ * @see NativeQueryCountEvent
+ */
+@Name("io.github.gasparbarancelli.NativeQueryRender")
+@Label("Native Query Render")
+@Category("Spring Native Query")
+@Description("Rendering of the SQL template of a native query method")
+@StackTrace(false)
+final class NativeQueryRenderEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Template")
+    @Description("Path of the SQL file, or inline for SQL declared with @NativeQuerySql")
+    String template;
+
+    /**
+     * Ends the event and commits it, if it is enabled and lasted longer than its threshold.
+     *
+     * @param info The information of the method whose SQL was rendered.
+     */
+    void complete(NativeQueryInfo info) {
+        end();
+        if (shouldCommit()) {
+            method = info.getMethodKey();
+            template = info.getTemplate();
+            commit();
+        }
+    }
+
+}
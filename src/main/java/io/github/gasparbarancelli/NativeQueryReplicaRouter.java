@@ -0,0 +1,188 @@
+package io.github.gasparbarancelli;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balances the {@linkplain NativeQueryReadOnly read-only} queries over a pool of replicas of the database.
+ *
+ * <p>Two balancing strategies are available: {@link Balancing#ROUND_ROBIN} sends each query to the
+ * next replica in turn, and {@link Balancing#LEAST_IN_FLIGHT} sends it to the replica running the
+ * fewest queries at that time, which is better suited to queries of uneven duration.</p>
+ *
+ * <p>The router is registered by {@link NativeQueryAutoConfiguration} when the
+ * {@code native-query.replicas.data-sources} property lists the names of the replica
+ * {@code DataSource} beans:</p>
+ * <pre>{@code
+ * native-query.replicas.data-sources=replica1DataSource,replica2DataSource
+ * native-query.replicas.balancing=least-in-flight
+ * }</pre>
+ *
+ * @see NativeQueryReadOnly
+ * @see NativeQueryHedged
+ * @see NativeQueryMethodInterceptorImpl
+ */
+public class NativeQueryReplicaRouter {
+
+    /**
+     * The strategies choosing the replica of a query.
+     */
+    public enum Balancing {
+
+        /**
+         * Each query runs on the next replica in turn.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * Each query runs on the replica running the fewest queries.
+         */
+        LEAST_IN_FLIGHT;
+
+        /**
+         * Returns the strategy of a property value, such as {@code round-robin} or {@code least-in-flight}.
+         *
+         * @param value The value, in any case, with dashes or underscores.
+         * @return The strategy.
+         */
+        public static Balancing of(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+
+    }
+
+    private final NamedParameterJdbcTemplate[] replicas;
+
+    private final AtomicInteger[] inFlight;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Balancing balancing;
+
+    /**
+     * Creates a router.
+     *
+     * @param replicas  The data sources of the replicas.
+     * @param balancing The strategy choosing the replica of a query.
+     */
+    public NativeQueryReplicaRouter(List<DataSource> replicas, Balancing balancing) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.replicas = replicas.stream().map(NamedParameterJdbcTemplate::new).toArray(NamedParameterJdbcTemplate[]::new);
+        this.inFlight = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = new AtomicInteger();
+        }
+        this.balancing = balancing;
+    }
+
+    /**
+     * Chooses the replica of a query, which counts as in flight until the lease is closed.
+     *
+     * @return The lease of the replica.
+     */
+    Lease acquire() {
+        return acquire(-1);
+    }
+
+    /**
+     * Chooses the replica of a query among the replicas other than one, for example to hedge a
+     * query that is already running on that replica.
+     *
+     * @param excluded The index of the replica to avoid, or {@code -1} to consider every replica.
+     * @return The lease of the replica.
+     */
+    Lease acquire(int excluded) {
+        int index = balancing == Balancing.ROUND_ROBIN ? nextIndex(excluded) : leastInFlightIndex(excluded);
+        inFlight[index].incrementAndGet();
+        return new Lease(index);
+    }
+
+    /**
+     * Returns the number of replicas.
+     *
+     * @return The number of replicas.
+     */
+    int size() {
+        return replicas.length;
+    }
+
+    private int nextIndex(int excluded) {
+        if (excluded < 0 || replicas.length == 1) {
+            return Math.floorMod(next.getAndIncrement(), replicas.length);
+        }
+        return (excluded + 1 + Math.floorMod(next.getAndIncrement(), replicas.length - 1)) % replicas.length;
+    }
+
+    private int leastInFlightIndex(int excluded) {
+        // starts from a rotating replica, so that the idle replicas share the queries
+        int start = Math.floorMod(next.getAndIncrement(), replicas.length);
+        int index = start;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int candidate = (start + i) % replicas.length;
+            int count = inFlight[candidate].get();
+            if (count < fewest && (candidate != excluded || replicas.length == 1)) {
+                fewest = count;
+                index = candidate;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of queries running on a replica.
+     *
+     * @param replica The index of the replica, in the order of the data sources.
+     * @return The number of queries in flight.
+     */
+    public int getInFlight(int replica) {
+        return inFlight[replica].get();
+    }
+
+    /**
+     * A replica chosen for a query.
+     */
+    final class Lease implements AutoCloseable {
+
+        private final int index;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Returns the index of the replica, in the order of the data sources.
+         */
+        int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the template running the queries on the replica.
+         */
+        NamedParameterJdbcTemplate getJdbcTemplate() {
+            return replicas[index];
+        }
+
+        /**
+         * Ends the query, which is no longer counted as in flight.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                inFlight[index].decrementAndGet();
+            }
+        }
+
+    }
+
+}
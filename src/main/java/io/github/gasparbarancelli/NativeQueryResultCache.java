@@ -0,0 +1,207 @@
+package io.github.gasparbarancelli;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A cache for the results of methods annotated with {@link NativeQueryCacheable}.
+ *
+ * <p>Every annotated method has its own Caffeine cache, sized and expired according to its
+ * annotation. Caffeine evicts with the W-TinyLFU policy, which keeps the frequently used
+ * entries when the cache is full instead of simply the most recent ones.</p>
+ *
+ * <p>Entries are keyed by {@link NativeQueryResultKey}, that is, by the SQL that is executed
+ * and the values bound to it, and hold the unmodifiable form of the result returned by
+ * {@link NativeQueryResults#unmodifiable(Object)}.</p>
+ *
+ * <p>Caches are tagged with the tables declared in {@link NativeQueryCacheable#tables()}, so
+ * that {@link #evict(Collection)} only drops the results of the methods reading the written
+ * tables. Each cache also keeps a generation, incremented on every eviction, which prevents a
+ * query that started before an eviction from caching a result read before the write.</p>
+ *
+ * <p>Inside a read-write transaction, the cache is neither read nor filled: the transaction may
+ * have written rows that the cached result does not show yet, since the results are only evicted
+ * after the commit, and its own reads may show rows that are never committed.</p>
+ *
+ * <p>The statistics of the caches are returned by {@link #getStatistics()}, and recorded in
+ * Micrometer by {@link NativeQueryResultCacheMetrics}.</p>
+ *
+ * @see NativeQueryCacheable
+ * @see NativeQueryResultKey
+ */
+public class NativeQueryResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryResultCache.class);
+
+    private static final Object NULL_VALUE = new Object();
+
+    private static final Map<String, MethodCache> CACHES = new ConcurrentHashMap<>();
+
+    private static final Map<String, Set<MethodCache>> CACHES_BY_TABLE = new ConcurrentHashMap<>();
+
+    private static final List<BiConsumer<String, Cache<NativeQueryResultKey, Object>>> BINDERS = new CopyOnWriteArrayList<>();
+
+    private NativeQueryResultCache() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns the cached result of the query, executing and caching it if it is not cached yet.
+     *
+     * @param info  The information of the invoked method, with its parameters set.
+     * @param query Executes the query.
+     * @return The unmodifiable result of the query.
+     */
+    static Object get(NativeQueryInfo info, Supplier<Object> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            LOGGER.debug("method {} invoked inside a read-write transaction, the cache will not be used", info.getMethodKey());
+            return query.get();
+        }
+
+        MethodCache methodCache = CACHES.computeIfAbsent(info.getMethodKey(), k -> create(k, info.getCacheable()));
+        Cache<NativeQueryResultKey, Object> cache = methodCache.cache;
+        NativeQueryResultKey key = NativeQueryResultKey.of(info);
+
+        Object result = cache.getIfPresent(key);
+        if (result != null) {
+            LOGGER.debug("getting from the cache the result of method {}", info.getMethodKey());
+            return result == NULL_VALUE ? null : result;
+        }
+
+        long generation = methodCache.generation.get();
+        result = NativeQueryResults.unmodifiable(query.get());
+        LOGGER.debug("caching the result of method {}", info.getMethodKey());
+        cache.put(key, Objects.requireNonNullElse(result, NULL_VALUE));
+        if (methodCache.generation.get() != generation) {
+            LOGGER.debug("tables of method {} were written while the query was running, discarding the result", info.getMethodKey());
+            cache.invalidate(key);
+        }
+        return result;
+    }
+
+    /**
+     * Evicts the cached results of every method that reads one of the given tables.
+     *
+     * @param tables The written tables.
+     */
+    static void evict(Collection<String> tables) {
+        for (String table : tables) {
+            Set<MethodCache> methodCaches = CACHES_BY_TABLE.get(normalize(table));
+            if (methodCaches != null) {
+                LOGGER.debug("evicting the cached results reading table {}", table);
+                methodCaches.forEach(MethodCache::invalidateAll);
+            }
+        }
+    }
+
+    private static MethodCache create(String methodKey, NativeQueryCacheable cacheable) {
+        Cache<NativeQueryResultKey, Object> cache = Caffeine.newBuilder()
+                .maximumSize(cacheable.maximumSize())
+                .expireAfterWrite(Duration.ofNanos(cacheable.timeUnit().toNanos(cacheable.ttl())))
+                .recordStats()
+                .build();
+        MethodCache methodCache = new MethodCache(cache);
+        for (String table : cacheable.tables()) {
+            CACHES_BY_TABLE.computeIfAbsent(normalize(table), k -> ConcurrentHashMap.newKeySet()).add(methodCache);
+        }
+        BINDERS.forEach(binder -> binder.accept(methodKey, cache));
+        return methodCache;
+    }
+
+    /**
+     * Calls a binder with the cache of every cached method, those created so far and those
+     * created afterwards, for instance to record their statistics.
+     *
+     * @param binder Receives the {@link NativeQueryInfo#getMethodKey() method key} and the cache of a method.
+     * @return Removes the binder, so that it is not called with the caches created afterwards.
+     */
+    static Runnable bind(BiConsumer<String, Cache<NativeQueryResultKey, Object>> binder) {
+        BINDERS.add(binder);
+        CACHES.forEach((methodKey, methodCache) -> binder.accept(methodKey, methodCache.cache));
+        return () -> BINDERS.remove(binder);
+    }
+
+    private static String normalize(String table) {
+        return table.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the statistics of the result cache of every cached method.
+     *
+     * @return The statistics, keyed by {@link NativeQueryInfo#getMethodKey() method key}.
+     */
+    public static Map<String, Statistics> getStatistics() {
+        Map<String, Statistics> statistics = new TreeMap<>();
+        CACHES.forEach((methodKey, methodCache) -> {
+            Cache<NativeQueryResultKey, Object> cache = methodCache.cache;
+            CacheStats stats = cache.stats();
+            statistics.put(methodKey, new Statistics(
+                    cache.estimatedSize(),
+                    stats.hitCount(),
+                    stats.missCount(),
+                    stats.evictionCount()
+            ));
+        });
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * The statistics of the result cache of a method.
+     *
+     * @param size          The approximate number of cached entries.
+     * @param hitCount      The number of lookups that found a cached result.
+     * @param missCount     The number of lookups that executed the query.
+     * @param evictionCount The number of entries evicted because of the size limit or of the time to live.
+     */
+    public record Statistics(long size, long hitCount, long missCount, long evictionCount) {
+
+        /**
+         * Returns the ratio of lookups that found a cached result.
+         *
+         * @return The hit ratio, or {@code 1.0} when there was no lookup.
+         */
+        public double hitRatio() {
+            long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+        }
+
+    }
+
+    private static class MethodCache {
+
+        final Cache<NativeQueryResultKey, Object> cache;
+
+        final AtomicLong generation = new AtomicLong();
+
+        MethodCache(Cache<NativeQueryResultKey, Object> cache) {
+            this.cache = cache;
+        }
+
+        void invalidateAll() {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package io.github.gasparbarancelli;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Records the statistics of the {@linkplain NativeQueryResultCache result caches} in a
+ * Micrometer {@link MeterRegistry}.
+ *
+ * <p>The cache of every {@link NativeQueryCacheable} method is monitored with
+ * {@link CaffeineCacheMetrics}, under the name of the {@link NativeQueryInfo#getMethodKey()
+ * method key}, as soon as it is created. The hits, the misses, the evictions and the size are
+ * therefore recorded as the {@code cache.gets}, {@code cache.evictions} and {@code cache.size}
+ * meters, tagged with the {@code cache} name.</p>
+ *
+ * <p>Closing the instance stops monitoring the caches created afterwards.</p>
+ *
+ * @see NativeQueryMetricsAutoConfiguration
+ */
+public class NativeQueryResultCacheMetrics implements AutoCloseable {
+
+    private final Runnable unbind;
+
+    /**
+     * Creates an instance recording in the given registry.
+     *
+     * @param registry The registry of the meters.
+     */
+    public NativeQueryResultCacheMetrics(MeterRegistry registry) {
+        this.unbind = NativeQueryResultCache.bind((methodKey, cache) ->
+                CaffeineCacheMetrics.monitor(registry, cache, methodKey, Tags.empty()));
+    }
+
+    @Override
+    public void close() {
+        unbind.run();
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.github.gasparbarancelli;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identifies the result of a query by what is actually sent to the database.
+ *
+ * <p>The key is made of the processed SQL, the values of the parameters bound to it and the
+ * requested page, if any. Parameters that are not referenced by the SQL do not take part in
+ * the key, so invocations that differ only by unused arguments share the same key.</p>
+ *
+ * <p>The same SQL reads different rows depending on where it runs, so the key also holds the
+ * {@linkplain NativeQueryInfo#getConnectionSchema() schema set on the connection} of the
+ * {@link NativeQueryTenantSchema} methods, the {@linkplain NativeQueryInfo#getDataSourceTenant()
+ * tenant} of the {@link NativeQueryTenantDataSource} methods and the
+ * {@linkplain NativeQueryInfo#getShardKey() shard key} of the {@link NativeQuerySharded} methods,
+ * which does not have to be referenced by the SQL.</p>
+ *
+ * @see NativeQueryResultCache
+ */
+final class NativeQueryResultKey {
+
+    private final String sql;
+
+    private final Map<String, Object> parameters;
+
+    private final int firstResult;
+
+    private final int maxResult;
+
+    private final String schema;
+
+    private final String tenant;
+
+    private final Object shardKey;
+
+    private final int hashCode;
+
+    private NativeQueryResultKey(String sql, Map<String, Object> parameters, int firstResult, int maxResult,
+                                 String schema, String tenant, Object shardKey) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.firstResult = firstResult;
+        this.maxResult = maxResult;
+        this.schema = schema;
+        this.tenant = tenant;
+        this.shardKey = shardKey;
+        this.hashCode = Objects.hash(sql, parameters, firstResult, maxResult, schema, tenant, shardKey);
+    }
+
+    /**
+     * Creates the key of the query described by the given information.
+     *
+     * @param info The information of the invoked method, with its parameters set.
+     * @return The key of the query.
+     */
+    static NativeQueryResultKey of(NativeQueryInfo info) {
+        boolean pagination = info.hasPagination();
+        return new NativeQueryResultKey(
+                info.getSql(),
+                info.getBoundParameters(),
+                pagination ? info.getFirstResult() : -1,
+                pagination ? info.getMaxResult() : -1,
+                info.getConnectionSchema(),
+                info.getDataSourceTenant(),
+                info.isSharded() ? info.getShardKey() : null
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NativeQueryResultKey that = (NativeQueryResultKey) o;
+        return firstResult == that.firstResult &&
+                maxResult == that.maxResult &&
+                Objects.equals(sql, that.sql) &&
+                Objects.equals(parameters, that.parameters) &&
+                Objects.equals(schema, that.schema) &&
+                Objects.equals(tenant, that.tenant) &&
+                Objects.equals(shardKey, that.shardKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "NativeQueryResultKey{"
+                + "sql='" + sql + "'" +
+                ", parameters=" + parameters +
+                ", firstResult=" + firstResult +
+                ", maxResult=" + maxResult +
+                ", schema=" + schema +
+                ", tenant=" + tenant +
+                ", shardKey=" + shardKey +
+                '}';
+    }
+
+}
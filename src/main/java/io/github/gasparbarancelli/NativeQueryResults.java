@@ -0,0 +1,67 @@
+package io.github.gasparbarancelli;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Utility methods for query results that are shared between several callers.
+ *
+ * @see NativeQueryResultCache
+ */
+final class NativeQueryResults {
+
+    private NativeQueryResults() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns an unmodifiable copy of the containers returned by a query.
+     *
+     * <p>Lists and the content of pages are copied into unmodifiable lists, so that a caller
+     * cannot change the result seen by the others. Any other value is returned as is.</p>
+     *
+     * @param result The result of a query.
+     * @return The unmodifiable result.
+     */
+    static Object unmodifiable(Object result) {
+        if (result instanceof Page<?> page) {
+            return new PageImpl<>(Collections.unmodifiableList(new ArrayList<>(page.getContent())), page.getPageable(), page.getTotalElements());
+        }
+        if (result instanceof List<?> list) {
+            return Collections.unmodifiableList(new ArrayList<>(list));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of rows of a query result.
+     *
+     * @param info   The information of the invoked method.
+     * @param result The result of the query.
+     * @return The number of rows, or {@code -1} if unknown, as for updates and reactive results.
+     */
+    static int rows(NativeQueryInfo info, Object result) {
+        if (info != null && (info.getReturnType() == Void.TYPE || info.isReactive())) {
+            return -1;
+        }
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Page<?> page) {
+            return page.getNumberOfElements();
+        }
+        if (result instanceof List<?> list) {
+            return list.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.github.gasparbarancelli;
+
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerProcessorSql;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Registers the hints a GraalVM native image needs to run the {@link NativeQuery} interfaces.
+ *
+ * <p>The hints common to every application, the build-time index and the SQL files, are
+ * registered through {@link NativeQueryAutoConfiguration}. The hints of each interface, its JDK
+ * proxy or generated implementation, its SQL file, the DTOs its results are mapped to and the filter objects whose children
+ * are bound as parameters, are registered by {@link NativeQueryAotProcessor} for the interfaces
+ * found while the application is processed ahead of time.</p>
+ *
+ * @see NativeQueryAotProcessor
+ * @see RuntimeHintsRegistrar
+ */
+public class NativeQueryRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final BindingReflectionHintsRegistrar BINDING_HINTS = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern(NativeQueryIndex.LOCATION);
+        hints.resources().registerPattern(NativeQueryIndex.TEMPLATES_LOCATION);
+        String sqlDirectory = NativeQueryAutoConfiguration.getSqlDirectory();
+        hints.resources().registerPattern((sqlDirectory != null ? sqlDirectory : "nativeQuery") + "/**/*.sql");
+    }
+
+    /**
+     * Registers the hints of a {@link NativeQuery} interface.
+     *
+     * @param hints  The hints of the application.
+     * @param classe The {@code NativeQuery} interface.
+     */
+    public static void registerHints(RuntimeHints hints, Class<? extends NativeQuery> classe) {
+        hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(classe, NativeQuery.class));
+        hints.reflection().registerType(classe, MemberCategory.INVOKE_PUBLIC_METHODS);
+        String implementationName = NativeQueryMethodPlan.implementationName(classe.getName());
+        if (ClassUtils.isPresent(implementationName, classe.getClassLoader())) {
+            hints.reflection().registerType(TypeReference.of(implementationName), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+
+        for (Method method : classe.getMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            NativeQueryInfo info = NativeQueryInfo.of(classe, method);
+            if (!method.isAnnotationPresent(NativeQuerySql.class)) {
+                hints.resources().registerPattern(info.getFile().replace('\\', '/'));
+            }
+            for (Class<? extends ProcessorSql> processor : info.getProcessorSqlList()) {
+                if (processor != FreemarkerProcessorSql.class) {
+                    hints.reflection().registerType(processor, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+                }
+            }
+            if (!info.isJavaObject()) {
+                BINDING_HINTS.registerReflectionHints(hints.reflection(), info.getAliasToBean());
+                hints.reflection().registerType(info.getAliasToBean(), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.ACCESS_DECLARED_FIELDS);
+            }
+            for (Parameter parameter : method.getParameters()) {
+                NativeQueryParam param = parameter.getAnnotation(NativeQueryParam.class);
+                if (param != null && param.addChildren()) {
+                    registerFilterHints(hints, parameter.getType(), new HashSet<>());
+                }
+            }
+        }
+    }
+
+    private static void registerFilterHints(RuntimeHints hints, Class<?> classe, Set<Class<?>> visited) {
+        if (!visited.add(classe)) {
+            return;
+        }
+        hints.reflection().registerType(classe, MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.ACCESS_DECLARED_FIELDS);
+        NativeQueryCache.getFieldInfo(classe).values().stream()
+                .filter(fieldInfo -> fieldInfo.getParam() != null && fieldInfo.getParam().addChildren())
+                .forEach(fieldInfo -> registerFilterHints(hints, fieldInfo.getType(), visited));
+    }
+
+}
@@ -0,0 +1,294 @@
+package io.github.gasparbarancelli;
+
+import jakarta.persistence.NoResultException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Scatters the queries of the {@link NativeQuerySharded} methods invoked without a shard key to
+ * all the shards of a {@link NativeQueryShardRouter}, and gathers their results.
+ *
+ * <p>The shards are queried in parallel, each on a connection of its own, on the threads of
+ * {@link NativeQueryExecutors#pool()} or on the calling thread when they are all busy. When the invocation
+ * fetches a page, each shard returns the rows up to the end of that page, which are merged in the
+ * order of the {@code Sort} with a k-way merge before the page is cut, and the totals of the
+ * shards are summed. The rows are compared by the properties of their class named after the
+ * sorted columns, with the {@code name} or {@code alias.name} of the column, in snake case or in
+ * camel case.</p>
+ *
+ * @see NativeQuerySharded
+ * @see NativeQueryMethodInterceptorImpl
+ */
+final class NativeQueryScatterGather {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryScatterGather.class);
+
+    private static final Object NO_RESULT = new Object();
+
+    private NativeQueryScatterGather() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Executes a query on every shard and gathers the results.
+     *
+     * @param info     The information of the invoked method, with its parameters set.
+     * @param router   The router of the shards.
+     * @param executor Executes a query on the template of a shard.
+     * @return The gathered result.
+     */
+    static Object execute(NativeQueryInfo info, NativeQueryShardRouter router,
+                          BiFunction<NativeQueryInfo, NamedParameterJdbcTemplate, Object> executor) {
+        Pageable pageable = info.getPageable();
+        boolean paged = pageable != null && pageable.isPaged();
+        // the rows before the page may come from any shard, so each shard returns them all
+        NativeQueryInfo shardInfo = info.forShard(paged
+                ? PageRequest.of(0, Math.toIntExact(pageable.getOffset() + pageable.getPageSize()), pageable.getSort())
+                : pageable);
+
+        LOGGER.debug("scattering the query of method {} to {} shards", info.getMethodKey(), router.size());
+        List<Object> results = gather(info, router, executor, shardInfo);
+
+        if (info.getReturnType() == Void.TYPE) {
+            return null;
+        }
+        Sort sort = info.getSort();
+        if (info.isPagination()) {
+            List<List<?>> contents = new ArrayList<>();
+            long total = 0;
+            for (Object result : results) {
+                Page<?> page = (Page<?>) result;
+                contents.add(page.getContent());
+                total += page.getTotalElements();
+            }
+            List<Object> rows = merge(info, contents, sort, pageable, paged);
+            return new PageImpl<>(rows, paged ? pageable : Pageable.unpaged(), total);
+        }
+        if (info.isSingleResult()) {
+            return single(info, results);
+        }
+        List<List<?>> lists = new ArrayList<>();
+        for (Object result : results) {
+            lists.add((List<?>) result);
+        }
+        return merge(info, lists, sort, pageable, paged);
+    }
+
+    private static List<Object> gather(NativeQueryInfo info, NativeQueryShardRouter router,
+                                       BiFunction<NativeQueryInfo, NamedParameterJdbcTemplate, Object> executor,
+                                       NativeQueryInfo shardInfo) {
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (int shard = 0; shard < router.size(); shard++) {
+            NamedParameterJdbcTemplate jdbcTemplate = router.getJdbcTemplate(shard);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return executor.apply(shardInfo, jdbcTemplate);
+                } catch (NoResultException | EmptyResultDataAccessException e) {
+                    if (info.isSingleResult() && !info.isPagination()) {
+                        return NO_RESULT;
+                    }
+                    throw e;
+                }
+            }, NativeQueryExecutors.callerRunsWhenBusy()));
+        }
+
+        List<Object> results = new ArrayList<>();
+        RuntimeException failure = null;
+        for (CompletableFuture<Object> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException runtimeException
+                        ? runtimeException
+                        : new IllegalStateException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static Object single(NativeQueryInfo info, List<Object> results) {
+        List<Object> found = new ArrayList<>();
+        for (Object result : results) {
+            Object value = result instanceof Optional<?> optional ? optional.orElse(null) : result;
+            if (value != null && value != NO_RESULT) {
+                found.add(value);
+            }
+        }
+        if (found.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException("Method " + info.getMethodKey()
+                    + " found a result on " + found.size() + " shards", 1, found.size());
+        }
+        Object value = found.isEmpty() ? null : found.get(0);
+        if (info.returnTypeIsOptional()) {
+            return Optional.ofNullable(value);
+        }
+        if (value == null && results.contains(NO_RESULT)) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return value;
+    }
+
+    /**
+     * Merges the rows of the shards in the order of the sort, and cuts the page.
+     */
+    private static List<Object> merge(NativeQueryInfo info, List<List<?>> lists, Sort sort, Pageable pageable, boolean paged) {
+        long offset = paged ? pageable.getOffset() : 0;
+        long end = paged ? offset + pageable.getPageSize() : Long.MAX_VALUE;
+        Comparator<Object> comparator = sort != null && sort.isSorted() ? comparator(info, sort) : null;
+
+        List<Object> rows = new ArrayList<>();
+        long position = 0;
+        if (comparator == null) {
+            for (List<?> list : lists) {
+                for (Object row : list) {
+                    if (position >= end) {
+                        return rows;
+                    }
+                    if (position++ >= offset) {
+                        rows.add(row);
+                    }
+                }
+            }
+            return rows;
+        }
+
+        PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> {
+            int compare = comparator.compare(a.head, b.head);
+            return compare != 0 ? compare : Integer.compare(a.shard, b.shard);
+        });
+        for (int shard = 0; shard < lists.size(); shard++) {
+            Cursor cursor = new Cursor(shard, lists.get(shard));
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        while (!queue.isEmpty() && position < end) {
+            Cursor cursor = queue.poll();
+            if (position++ >= offset) {
+                rows.add(cursor.head);
+            }
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return rows;
+    }
+
+    private static Comparator<Object> comparator(NativeQueryInfo info, Sort sort) {
+        Comparator<Object> comparator = null;
+        for (Sort.Order order : sort) {
+            Function<Object, Object> property = info.isJavaObject()
+                    ? Function.identity()
+                    : propertyReader(info.getAliasToBean(), order.getProperty());
+            Comparator<Object> next = Comparator.comparing(property, valueComparator(order));
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Object> valueComparator(Sort.Order order) {
+        Comparator<Object> values = (a, b) -> order.isIgnoreCase() && a instanceof String first && b instanceof String second
+                ? String.CASE_INSENSITIVE_ORDER.compare(first, second)
+                : ((Comparable) a).compareTo(b);
+        if (order.isDescending()) {
+            values = values.reversed();
+        }
+        return switch (order.getNullHandling()) {
+            case NULLS_FIRST -> Comparator.nullsFirst(values);
+            case NULLS_LAST -> Comparator.nullsLast(values);
+            // nulls sort as the largest values, as in PostgreSQL and Oracle
+            case NATIVE -> order.isAscending() ? Comparator.nullsLast(values) : Comparator.nullsFirst(values);
+        };
+    }
+
+    private static Function<Object, Object> propertyReader(Class<?> type, String column) {
+        String name = column.substring(column.lastIndexOf('.') + 1);
+        for (String candidate : List.of(name, camelCase(name))) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, candidate);
+            if (descriptor != null && descriptor.getReadMethod() != null) {
+                return row -> ReflectionUtils.invokeMethod(descriptor.getReadMethod(), row);
+            }
+            Field field = ReflectionUtils.findField(type, candidate);
+            if (field != null) {
+                ReflectionUtils.makeAccessible(field);
+                return row -> ReflectionUtils.getField(field, row);
+            }
+        }
+        throw new IllegalStateException("Rows of type " + type.getName() + " cannot be sorted by " + column
+                + " across the shards, they have no such property");
+    }
+
+    private static String camelCase(String name) {
+        StringBuilder camelCase = new StringBuilder();
+        boolean upper = false;
+        for (char c : name.toCharArray()) {
+            if (c == '_') {
+                upper = !camelCase.isEmpty();
+            } else {
+                camelCase.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return camelCase.toString();
+    }
+
+    /**
+     * The position of the merge in the rows of a shard.
+     */
+    private static final class Cursor {
+
+        private final int shard;
+
+        private final List<?> rows;
+
+        private int index;
+
+        private Object head;
+
+        private Cursor(int shard, List<?> rows) {
+            this.shard = shard;
+            this.rows = rows;
+        }
+
+        private boolean advance() {
+            if (index >= rows.size()) {
+                return false;
+            }
+            head = rows.get(index++);
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package io.github.gasparbarancelli;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Routes the queries of the {@link NativeQuerySharded} methods to the databases the data is
+ * partitioned across.
+ *
+ * <p>The shard of a key is given by a function of the key, by default the hash code of the key
+ * modulo the number of shards, so that the keys of every type are spread evenly. An application
+ * partitioning its data otherwise, for example by ranges of identifiers, registers a router of its
+ * own with another function.</p>
+ *
+ * <p>The router is registered by {@link NativeQueryAutoConfiguration} when the
+ * {@code native-query.shards.data-sources} property lists the names of the shard
+ * {@code DataSource} beans, in the order of the shards:</p>
+ * <pre>{@code
+ * native-query.shards.data-sources=shard0DataSource,shard1DataSource
+ * }</pre>
+ *
+ * @see NativeQuerySharded
+ * @see NativeQueryScatterGather
+ */
+public class NativeQueryShardRouter {
+
+    private final NamedParameterJdbcTemplate[] shards;
+
+    private final ToIntFunction<Object> shardFunction;
+
+    /**
+     * Creates a router choosing the shard of a key by its hash code.
+     *
+     * @param shards The data sources of the shards.
+     */
+    public NativeQueryShardRouter(List<DataSource> shards) {
+        this(shards, null);
+    }
+
+    /**
+     * Creates a router choosing the shard of a key with a function.
+     *
+     * @param shards        The data sources of the shards.
+     * @param shardFunction Returns the index of the shard of a key, in the order of the data sources,
+     *                      or {@code null} to use the hash code of the key.
+     */
+    public NativeQueryShardRouter(List<DataSource> shards, ToIntFunction<Object> shardFunction) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = shards.stream().map(NamedParameterJdbcTemplate::new).toArray(NamedParameterJdbcTemplate[]::new);
+        this.shardFunction = shardFunction != null ? shardFunction : key -> Math.floorMod(key.hashCode(), this.shards.length);
+    }
+
+    /**
+     * Returns the shard of a key.
+     *
+     * @param key The shard key.
+     * @return The index of the shard, in the order of the data sources.
+     * @throws IllegalStateException If the function returns an index out of range.
+     */
+    public int shardOf(Object key) {
+        int shard = shardFunction.applyAsInt(key);
+        if (shard < 0 || shard >= shards.length) {
+            throw new IllegalStateException("Shard " + shard + " of key " + key + " does not exist");
+        }
+        return shard;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The number of shards.
+     */
+    public int size() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the template running the queries on a shard.
+     *
+     * @param shard The index of the shard.
+     * @return The template of the shard.
+     */
+    NamedParameterJdbcTemplate getJdbcTemplate(int shard) {
+        return shards[shard];
+    }
+
+}
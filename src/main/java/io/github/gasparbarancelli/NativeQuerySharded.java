@@ -0,0 +1,45 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation marking the queries of a {@link NativeQuery} interface, or of one of its methods,
+ * as running on the shards of the {@link NativeQueryShardRouter}.
+ *
+ * <p>A method with a {@linkplain NativeQueryParam#shardKey() shard key}, declared on one of its
+ * parameters or on a field of its filter, runs on the shard of that key. A method without a shard
+ * key, or invoked with a {@code null} key, is scattered to all the shards in parallel and their
+ * results are gathered:</p>
+ * <ul>
+ *   <li>lists are merged in the order of the {@code Sort} or {@code Pageable} argument, or
+ *       concatenated in the order of the shards when there is none;</li>
+ *   <li>pages are cut from the merged rows of every shard, and their totals are summed;</li>
+ *   <li>single results are the result of the only shard that finds one;</li>
+ *   <li>updates run on every shard.</li>
+ * </ul>
+ *
+ * <p>The scattered queries run on their own connections, outside the transaction of the caller.
+ * Methods returning a {@code Flux} or a {@code Mono} must have a shard key.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQuerySharded
+ * public interface CustomerNativeQuery extends NativeQuery {
+ *
+ *     Optional<CustomerResult> findCustomer(@NativeQueryParam(value = "id", shardKey = true) Long id);
+ *
+ *     Page<CustomerResult> findCustomers(Pageable pageable);
+ *
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryShardRouter
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQuerySharded {
+
+}
@@ -0,0 +1,33 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that coalesces identical concurrent executions of a native query method.
+ *
+ * <p>When several threads invoke the annotated method at the same time and render the same SQL
+ * with the same bound values, only the first one executes the query. The others wait for it and
+ * share its result, so a traffic spike on a popular query costs a single round trip to the
+ * database instead of one per caller. Unlike {@link NativeQueryCacheable}, nothing is kept once
+ * the query completes.</p>
+ *
+ * <p>Shared lists and pages are unmodifiable; the objects they contain are shared between callers
+ * and must not be modified. Invocations made inside a read-write transaction are never coalesced,
+ * since they must see the writes of their own transaction.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQuerySingleFlight
+ * List<SaleCustomerResult> findTopCustomers();
+ * }</pre>
+ *
+ * @see NativeQueryCoalescer
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQuerySingleFlight {
+
+}
@@ -0,0 +1,181 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link NativeQueryListener} that logs the invocations lasting longer than a threshold.
+ *
+ * <p>Each slow invocation is logged at the {@code WARN} level with its interface and method,
+ * the template of its SQL, the {@linkplain NativeQueryStringUtils#fingerprint(String) fingerprint}
+ * of the rendered SQL, the names and types of the bound parameters and the duration of every
+ * phase. The values of the parameters are only logged when explicitly enabled, as they may hold
+ * personal data.</p>
+ *
+ * <p>A fingerprint is logged at most once per rate limit interval, the invocations skipped in
+ * between are counted and reported with the next message.</p>
+ *
+ * <p>When a {@link NativeQueryExplainer} is given, the plan of the logged queries is captured
+ * in the background and logged in a second message with the same fingerprint.</p>
+ *
+ * <p>The listener is registered by {@link NativeQueryAutoConfiguration} when the
+ * {@code native-query.slow-query.threshold} property is set:</p>
+ * <pre>{@code
+ * native-query.slow-query.threshold=500ms
+ * native-query.slow-query.rate-limit=1m
+ * native-query.slow-query.log-values=false
+ * native-query.slow-query.explain.enabled=true
+ * native-query.slow-query.explain.sample-rate=0.1
+ * }</pre>
+ *
+ * @see NativeQueryListener
+ */
+public class NativeQuerySlowQueryListener implements NativeQueryListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQuerySlowQueryListener.class);
+
+    private static final int MAX_TRACKED_FINGERPRINTS = 10_000;
+
+    private final long thresholdNanos;
+
+    private final long rateLimitNanos;
+
+    private final boolean logValues;
+
+    private final NativeQueryExplainer explainer;
+
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a listener logging the invocations slower than the given threshold.
+     *
+     * @param threshold The duration above which an invocation is logged.
+     * @param rateLimit The minimum interval between two messages for the same fingerprint.
+     * @param logValues Whether the values of the parameters are logged.
+     */
+    public NativeQuerySlowQueryListener(Duration threshold, Duration rateLimit, boolean logValues) {
+        this(threshold, rateLimit, logValues, null);
+    }
+
+    /**
+     * Creates a listener logging the invocations slower than the given threshold, along with their plan.
+     *
+     * @param threshold The duration above which an invocation is logged.
+     * @param rateLimit The minimum interval between two messages for the same fingerprint.
+     * @param logValues Whether the values of the parameters are logged.
+     * @param explainer Captures the plan of the logged queries, or {@code null} to not capture them.
+     */
+    public NativeQuerySlowQueryListener(Duration threshold, Duration rateLimit, boolean logValues, NativeQueryExplainer explainer) {
+        this.thresholdNanos = threshold.toNanos();
+        this.rateLimitNanos = rateLimit.toNanos();
+        this.logValues = logValues;
+        this.explainer = explainer;
+    }
+
+    @Override
+    public void onCompleted(NativeQueryExecution execution, long durationNanos, Throwable error) {
+        if (durationNanos < thresholdNanos || !LOGGER.isWarnEnabled()) {
+            return;
+        }
+        NativeQueryInfo info = execution.getInfo();
+        String fingerprint = info == null ? null : NativeQueryStringUtils.fingerprint(info.getRenderedSql());
+        long skipped = acquire(fingerprint == null ? execution.getMethod().toString() : fingerprint);
+        if (skipped < 0) {
+            return;
+        }
+        LOGGER.warn("slow native query {}.{} took {} ms{}: template={}, sql=[{}], parameters={}, phases={}, rows={}, skipped={}",
+                execution.getNativeQueryInterface().getSimpleName(),
+                execution.getMethod().getName(),
+                Duration.ofNanos(durationNanos).toMillis(),
+                error == null ? "" : " and failed with " + error.getClass().getSimpleName(),
+                info == null ? null : info.getTemplate(),
+                fingerprint,
+                fingerprint == null ? "{}" : parameters(info),
+                phases(execution),
+                execution.getRows(),
+                skipped);
+        if (explainer != null && fingerprint != null) {
+            String method = execution.getNativeQueryInterface().getSimpleName() + "." + execution.getMethod().getName();
+            explainer.explain(info.getRenderedSql(), info.getBoundParameters(), execution.getDataSource(), execution.getSchema(), plan ->
+                    LOGGER.warn("plan of slow native query {}: sql=[{}]{}{}", method, fingerprint, System.lineSeparator(), plan));
+        }
+    }
+
+    /**
+     * Checks the rate limit of a fingerprint.
+     *
+     * @return The number of invocations skipped since the last message, or {@code -1} if this one must be skipped.
+     */
+    private long acquire(String fingerprint) {
+        if (rateLimits.size() >= MAX_TRACKED_FINGERPRINTS) {
+            rateLimits.clear();
+        }
+        long now = System.nanoTime();
+        RateLimit rateLimit = rateLimits.computeIfAbsent(fingerprint, k -> new RateLimit(now - rateLimitNanos));
+        synchronized (rateLimit) {
+            if (now - rateLimit.lastLoggedNanos < rateLimitNanos) {
+                rateLimit.skipped++;
+                return -1;
+            }
+            long skipped = rateLimit.skipped;
+            rateLimit.lastLoggedNanos = now;
+            rateLimit.skipped = 0;
+            return skipped;
+        }
+    }
+
+    private String parameters(NativeQueryInfo info) {
+        StringJoiner parameters = new StringJoiner(", ", "{", "}");
+        info.getBoundParameters().forEach((name, value) -> {
+            String type = typeName(value);
+            parameters.add(logValues ? name + ":" + type + "=" + value : name + ":" + type);
+        });
+        return parameters.toString();
+    }
+
+    private static String typeName(Object value) {
+        if (value instanceof List<?> list) {
+            return "List[" + list.size() + "]";
+        }
+        if (value instanceof Set<?> set) {
+            return "Set[" + set.size() + "]";
+        }
+        if (value instanceof Collection<?> collection) {
+            return "Collection[" + collection.size() + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private static String phases(NativeQueryExecution execution) {
+        StringJoiner phases = new StringJoiner(", ", "{", "}");
+        for (NativeQueryPhase phase : NativeQueryPhase.values()) {
+            long nanos = execution.getPhaseNanos(phase);
+            if (nanos > 0) {
+                phases.add(phase.getTagValue() + "=" + String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0) + "ms");
+            }
+        }
+        return phases.toString();
+    }
+
+    private static class RateLimit {
+
+        long lastLoggedNanos;
+
+        long skipped;
+
+        RateLimit(long lastLoggedNanos) {
+            this.lastLoggedNanos = lastLoggedNanos;
+        }
+
+    }
+
+}
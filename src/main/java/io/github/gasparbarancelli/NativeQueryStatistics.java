@@ -0,0 +1,89 @@
+package io.github.gasparbarancelli;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link NativeQueryListener} that keeps the call count, error count and latency distribution
+ * of every {@link NativeQuery} method.
+ *
+ * <p>The counters are {@link LongAdder}s and the latencies are kept in a lock-free histogram,
+ * so recording an invocation never blocks the threads executing queries. The statistics are
+ * exposed by the {@link NativeQueryEndpoint}.</p>
+ *
+ * @see NativeQueryEndpoint
+ */
+public class NativeQueryStatistics implements NativeQueryListener {
+
+    private final Map<MethodKey, MethodStatistics> methods = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCompleted(NativeQueryExecution execution, long durationNanos, Throwable error) {
+        MethodStatistics statistics = methods.computeIfAbsent(
+                new MethodKey(execution.getNativeQueryInterface(), execution.getMethod()),
+                k -> new MethodStatistics()
+        );
+        statistics.calls.increment();
+        if (error != null) {
+            statistics.errors.increment();
+        }
+        statistics.latency.record(durationNanos);
+    }
+
+    /**
+     * Returns the statistics of a method.
+     *
+     * @param nativeQueryInterface The {@link NativeQuery} interface.
+     * @param method               The method.
+     * @return The statistics of the method, all zero if it was never invoked.
+     */
+    public Snapshot get(Class<? extends NativeQuery> nativeQueryInterface, Method method) {
+        MethodStatistics statistics = methods.get(new MethodKey(nativeQueryInterface, method));
+        if (statistics == null) {
+            return new Snapshot(0, 0, 0, 0, 0, 0);
+        }
+        NativeQueryLatencyHistogram latency = statistics.latency;
+        return new Snapshot(
+                statistics.calls.sum(),
+                statistics.errors.sum(),
+                toMillis(latency.percentile(0.5)),
+                toMillis(latency.percentile(0.95)),
+                toMillis(latency.percentile(0.99)),
+                toMillis(latency.getMax())
+        );
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * The statistics of a method at a point in time.
+     *
+     * @param calls     The number of invocations.
+     * @param errors    The number of invocations that threw an exception.
+     * @param p50Millis The estimated median latency, in milliseconds.
+     * @param p95Millis The estimated 95th percentile latency, in milliseconds.
+     * @param p99Millis The estimated 99th percentile latency, in milliseconds.
+     * @param maxMillis The longest latency, in milliseconds.
+     */
+    public record Snapshot(long calls, long errors, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+
+    private record MethodKey(Class<?> nativeQueryInterface, Method method) {
+    }
+
+    private static class MethodStatistics {
+
+        final LongAdder calls = new LongAdder();
+
+        final LongAdder errors = new LongAdder();
+
+        final NativeQueryLatencyHistogram latency = new NativeQueryLatencyHistogram();
+
+    }
+
+}
@@ -25,4 +25,59 @@ public class NativeQueryStringUtils {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns the fingerprint of a SQL statement, that is, the statement with its literals
+     * replaced by {@code ?} and its whitespace collapsed.
+     *
+     * <p>Statements that differ only by the values written in them share the same fingerprint,
+     * so it can be used to group the executions of a query. Named parameters, identifiers and
+     * comments other than the whitespace are kept as is.</p>
+     *
+     * @param sql The SQL statement.
+     * @return The fingerprint of the statement, or the original string if it is null or empty.
+     */
+    public static String fingerprint(String sql) {
+        if (sql == null || sql.isEmpty()) {
+            return sql;
+        }
+        StringBuilder fingerprint = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < length && (sql.charAt(i) != '\'' || (i + 1 < length && sql.charAt(i + 1) == '\''))) {
+                    i += sql.charAt(i) == '\'' ? 2 : 1;
+                }
+                i++;
+                fingerprint.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (!fingerprint.isEmpty() && i < length) {
+                    fingerprint.append(' ');
+                }
+            } else if (Character.isDigit(c) && !isIdentifierPart(fingerprint)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                fingerprint.append('?');
+            } else {
+                fingerprint.append(c);
+                i++;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static boolean isIdentifierPart(StringBuilder fingerprint) {
+        if (fingerprint.isEmpty()) {
+            return false;
+        }
+        char previous = fingerprint.charAt(fingerprint.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == ':' || previous == '$';
+    }
+
+}
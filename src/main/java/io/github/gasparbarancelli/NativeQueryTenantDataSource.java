@@ -0,0 +1,38 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation running the queries of a {@link NativeQuery} interface, or of one of its methods,
+ * on the {@code DataSource} of the current tenant.
+ *
+ * <p>The tenant is returned by the {@link NativeQueryTenantNamedParameterJdbcTemplateInterceptor},
+ * and its data source is taken from the {@link NativeQueryTenantDataSources}, which creates a
+ * connection pool per tenant. A tenant running many or slow queries then only exhausts its own
+ * pool, instead of the pool shared by every tenant.</p>
+ *
+ * <p>The annotation applies to both the Hibernate and the {@code JdbcTemplate} engines; Hibernate
+ * queries run in a session of their own, on a connection of the pool of the tenant, outside the
+ * transaction of the caller. It can be combined with {@link NativeQueryTenantSchema} when the
+ * databases of the tenants also have a schema per tenant. Methods returning a {@code Flux} or a
+ * {@code Mono} are not supported, since they would use the pool after the call.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryTenantDataSource
+ * public interface InvoiceNativeQuery extends NativeQuery {
+ *     List<InvoiceResult> findInvoices();
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryTenantDataSources
+ * @see NativeQueryTenantDataSourceFactory
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryTenantDataSource {
+
+}
@@ -0,0 +1,40 @@
+package io.github.gasparbarancelli;
+
+import javax.sql.DataSource;
+
+/**
+ * Creates the {@code DataSource}, and so the connection pool, of a tenant, for the methods
+ * annotated with {@link NativeQueryTenantDataSource}.
+ *
+ * <p>When a bean implementing this interface is present, {@link NativeQueryAutoConfiguration}
+ * registers the {@link NativeQueryTenantDataSources} that create the pools lazily, on the first
+ * query of each tenant, and close them when they are evicted. A pool that implements
+ * {@link AutoCloseable}, such as a {@code HikariDataSource}, is closed on eviction.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @Bean
+ * public NativeQueryTenantDataSourceFactory tenantDataSourceFactory(TenantDirectory directory) {
+ *     return tenant -> {
+ *         HikariDataSource dataSource = new HikariDataSource();
+ *         dataSource.setJdbcUrl(directory.getJdbcUrl(tenant));
+ *         dataSource.setMaximumPoolSize(5);
+ *         return dataSource;
+ *     };
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryTenantDataSources
+ */
+@FunctionalInterface
+public interface NativeQueryTenantDataSourceFactory {
+
+    /**
+     * Creates the data source of a tenant.
+     *
+     * @param tenant The tenant, as returned by {@link NativeQueryTenantNamedParameterJdbcTemplateInterceptor#getTenant()}.
+     * @return The data source of the tenant.
+     */
+    DataSource create(String tenant);
+
+}
@@ -0,0 +1,261 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The connection pools of the tenants, for the methods annotated with {@link NativeQueryTenantDataSource}.
+ *
+ * <p>The pool of a tenant is created by the {@link NativeQueryTenantDataSourceFactory} on the
+ * first query of that tenant. The number of pools is capped: when the cap is reached, the pool
+ * that was used the longest time ago and that is not running a query is evicted to make room for
+ * the new one. The pools that run no query for the idle timeout are evicted as well. An evicted
+ * pool that implements {@link AutoCloseable} is closed, and is created again on the next query of
+ * its tenant.</p>
+ *
+ * <p>The pools are registered by {@link NativeQueryAutoConfiguration} when a
+ * {@link NativeQueryTenantDataSourceFactory} bean is present, and configured with the following
+ * properties:</p>
+ * <pre>{@code
+ * native-query.tenant-data-sources.max-pools=50
+ * native-query.tenant-data-sources.idle-timeout=10m
+ * }</pre>
+ *
+ * @see NativeQueryTenantDataSource
+ * @see NativeQueryMethodInterceptorImpl
+ */
+public class NativeQueryTenantDataSources implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryTenantDataSources.class);
+
+    private final NativeQueryTenantDataSourceFactory factory;
+
+    private final int maxPools;
+
+    private final long idleTimeoutNanos;
+
+    private final Map<String, Pool> pools = new HashMap<>();
+
+    private final ScheduledFuture<?> sweeper;
+
+    /**
+     * Creates the pools of the tenants.
+     *
+     * @param factory     Creates the data source of a tenant.
+     * @param maxPools    The maximum number of pools open at the same time.
+     * @param idleTimeout The time after which a pool that runs no query is evicted.
+     */
+    public NativeQueryTenantDataSources(NativeQueryTenantDataSourceFactory factory, int maxPools, Duration idleTimeout) {
+        if (maxPools < 1) {
+            throw new IllegalArgumentException("At least one pool is required");
+        }
+        this.factory = factory;
+        this.maxPools = maxPools;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        long period = Math.max(TimeUnit.SECONDS.toNanos(1), idleTimeoutNanos / 2);
+        this.sweeper = SweeperHolder.SWEEPER.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes the pool of a tenant, creating it if needed, which counts as in use until the lease is closed.
+     *
+     * @param tenant The tenant.
+     * @return The lease of the pool.
+     * @throws DataAccessResourceFailureException If the cap is reached and every pool is in use.
+     */
+    Lease acquire(String tenant) {
+        Pool pool;
+        Pool evicted = null;
+        synchronized (this) {
+            pool = pools.get(tenant);
+            if (pool == null) {
+                if (pools.size() >= maxPools) {
+                    evicted = leastRecentlyUsedIdlePool();
+                    if (evicted == null) {
+                        throw new DataAccessResourceFailureException("The " + maxPools
+                                + " pools of the tenants are all in use, the pool of tenant " + tenant + " cannot be created");
+                    }
+                    pools.remove(evicted.tenant);
+                }
+                pool = new Pool(tenant);
+                pools.put(tenant, pool);
+            }
+            pool.inFlight++;
+            pool.lastUsed = System.nanoTime();
+        }
+        if (evicted != null) {
+            LOGGER.debug("evicting the pool of tenant {} to make room for tenant {}", evicted.tenant, tenant);
+            evicted.close();
+        }
+        return new Lease(pool);
+    }
+
+    private Pool leastRecentlyUsedIdlePool() {
+        Pool leastRecentlyUsed = null;
+        for (Pool pool : pools.values()) {
+            if (pool.inFlight == 0 && (leastRecentlyUsed == null || pool.lastUsed - leastRecentlyUsed.lastUsed < 0)) {
+                leastRecentlyUsed = pool;
+            }
+        }
+        return leastRecentlyUsed;
+    }
+
+    /**
+     * Evicts the pools that ran no query for the idle timeout.
+     */
+    void evictIdle() {
+        List<Pool> evicted = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            Iterator<Pool> iterator = pools.values().iterator();
+            while (iterator.hasNext()) {
+                Pool pool = iterator.next();
+                if (pool.inFlight == 0 && now - pool.lastUsed >= idleTimeoutNanos) {
+                    iterator.remove();
+                    evicted.add(pool);
+                }
+            }
+        }
+        for (Pool pool : evicted) {
+            LOGGER.debug("evicting the idle pool of tenant {}", pool.tenant);
+            pool.close();
+        }
+    }
+
+    /**
+     * Returns the number of pools open.
+     *
+     * @return The number of pools.
+     */
+    public synchronized int size() {
+        return pools.size();
+    }
+
+    /**
+     * Closes all the pools.
+     */
+    @Override
+    public void close() {
+        sweeper.cancel(false);
+        List<Pool> closed;
+        synchronized (this) {
+            closed = new ArrayList<>(pools.values());
+            pools.clear();
+        }
+        closed.forEach(Pool::close);
+    }
+
+    /**
+     * The pool of a tenant, whose data source is created on first use, outside the lock of the pools.
+     */
+    private final class Pool {
+
+        private final String tenant;
+
+        private int inFlight;
+
+        private long lastUsed;
+
+        private volatile NamedParameterJdbcTemplate jdbcTemplate;
+
+        private boolean closed;
+
+        private Pool(String tenant) {
+            this.tenant = tenant;
+        }
+
+        private NamedParameterJdbcTemplate getJdbcTemplate() {
+            NamedParameterJdbcTemplate template = jdbcTemplate;
+            if (template == null) {
+                synchronized (this) {
+                    if (closed) {
+                        throw new IllegalStateException("The pool of tenant " + tenant + " is closed");
+                    }
+                    if (jdbcTemplate == null) {
+                        LOGGER.debug("creating the pool of tenant {}", tenant);
+                        jdbcTemplate = new NamedParameterJdbcTemplate(factory.create(tenant));
+                    }
+                    template = jdbcTemplate;
+                }
+            }
+            return template;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            NamedParameterJdbcTemplate template = jdbcTemplate;
+            if (template != null && template.getJdbcTemplate().getDataSource() instanceof AutoCloseable dataSource) {
+                try {
+                    dataSource.close();
+                } catch (Exception e) {
+                    LOGGER.warn("the pool of tenant {} could not be closed", tenant, e);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The pool of a tenant taken by a query.
+     */
+    final class Lease implements AutoCloseable {
+
+        private final Pool pool;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Pool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Returns the template running the queries on the pool of the tenant.
+         */
+        NamedParameterJdbcTemplate getJdbcTemplate() {
+            return pool.getJdbcTemplate();
+        }
+
+        /**
+         * Ends the query, and the pool is no longer in use.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                synchronized (NativeQueryTenantDataSources.this) {
+                    pool.inFlight--;
+                    pool.lastUsed = System.nanoTime();
+                }
+            }
+        }
+
+    }
+
+    private static class SweeperHolder {
+
+        private static final ScheduledThreadPoolExecutor SWEEPER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "native-query-tenant-pools");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            SWEEPER.setRemoveOnCancelPolicy(true);
+        }
+
+    }
+
+}
@@ -13,7 +13,10 @@ package io.github.gasparbarancelli;
  * value returned by the {@link #getTenant()} method.</p>
  *
  * <p>This feature is only active when using {@link NativeQueryUseJdbcTemplate} with
- * the {@code useTenant} attribute set to {@code true}.</p>
+ * the {@code useTenant} attribute set to {@code true}. Alternatively, the methods annotated with
+ * {@link NativeQueryTenantSchema}, with either engine, keep their SQL unchanged and run with the
+ * schema of the tenant set on the connection, and the methods annotated with
+ * {@link NativeQueryTenantDataSource} run on the connection pool of the tenant.</p>
  *
  * <p>Example usage:</p>
  * <pre>{@code
@@ -29,6 +32,8 @@ package io.github.gasparbarancelli;
  * }</pre>
  *
  * @see NativeQueryUseJdbcTemplate
+ * @see NativeQueryTenantSchema
+ * @see NativeQueryTenantDataSource
  */
 public interface NativeQueryTenantNamedParameterJdbcTemplateInterceptor {
 
@@ -0,0 +1,44 @@
+package io.github.gasparbarancelli;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation running the queries of a {@link NativeQuery} interface, or of one of its methods,
+ * in the schema of the current tenant, set on the connection instead of in the SQL.
+ *
+ * <p>With {@link NativeQueryUseJdbcTemplate#useTenant()}, the {@code :SCHEMA} placeholder is
+ * replaced in the SQL, so each tenant executes a different SQL string, which multiplies the
+ * entries of the Hibernate query plan cache and of the statement caches of the driver and of the
+ * database by the number of tenants. With this annotation, the SQL references the tables without
+ * schema, and the schema returned by the
+ * {@link NativeQueryTenantNamedParameterJdbcTemplateInterceptor} is set on the connection with
+ * {@link java.sql.Connection#setSchema(String)}, which sets the {@code search_path} on
+ * PostgreSQL, for the duration of the call. The previous schema is restored afterwards. The SQL,
+ * its prepared statements and its plans are then shared by all the tenants.</p>
+ *
+ * <p>The annotation applies to both the Hibernate and the {@code JdbcTemplate} engines. Outside a
+ * transaction, the {@code JdbcTemplate} queries of a call share a single connection, so that they
+ * all see the schema. Methods returning a {@code Flux} or a {@code Mono} are not supported, since
+ * they run after the call.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * @NativeQueryTenantSchema
+ * public interface UserNativeQuery extends NativeQuery {
+ *
+ *     @NativeQuerySql("select id, name from users")
+ *     List<UserResult> findUsers();
+ *
+ * }
+ * }</pre>
+ *
+ * @see NativeQueryTenantNamedParameterJdbcTemplateInterceptor
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeQueryTenantSchema {
+
+}
@@ -0,0 +1,147 @@
+package io.github.gasparbarancelli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepares every method of the registered {@link NativeQuery} interfaces once the application
+ * context is refreshed, so that their first invocations do not pay for it.
+ *
+ * <p>For each method, the warm-up builds and caches its {@link NativeQueryInfo}, loads and parses
+ * its SQL template, and resolves the mapping metadata of its result DTO and of its filter
+ * parameters. The methods are prepared in parallel on a bounded pool of threads, which is
+ * discarded afterwards. The refresh waits for the warm-up to complete, so the application is
+ * reported ready only once every method is prepared. A method that cannot be prepared is logged
+ * and left to fail on its first invocation.</p>
+ *
+ * <p>The warm-up is registered by {@link NativeQueryAutoConfiguration} when enabled:</p>
+ * <pre>{@code
+ * native-query.warm-up.enabled=true
+ * native-query.warm-up.parallelism=4
+ * }</pre>
+ *
+ * @see NativeQueryCache
+ */
+public class NativeQueryWarmUp implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeQueryWarmUp.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int parallelism;
+
+    private volatile boolean completed;
+
+    /**
+     * Creates a warm-up.
+     *
+     * @param parallelism The maximum number of methods prepared at the same time.
+     */
+    public NativeQueryWarmUp(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!completed && event.getApplicationContext().getParent() == null) {
+            warmUp(NativeQueryRegistryImpl.getRegisteredInterfaces());
+        }
+    }
+
+    /**
+     * Prepares the methods of the given interfaces, returning once all of them are prepared.
+     *
+     * @param interfaces The {@link NativeQuery} interfaces.
+     * @return The number of methods that could not be prepared.
+     */
+    int warmUp(Set<Class<? extends NativeQuery>> interfaces) {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "native-query-warm-up-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (Class<? extends NativeQuery> classe : interfaces) {
+                for (Method method : classe.getMethods()) {
+                    if (method.isDefault() || Modifier.isStatic(method.getModifiers())) {
+                        continue;
+                    }
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            warmUp(classe, method);
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                            LOGGER.warn("could not warm up the method {}", NativeQueryInfo.methodKey(classe, method), e);
+                        }
+                    }, executor));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            LOGGER.info("warmed up {} native query methods in {} ms", futures.size() - failures.get(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            executor.shutdown();
+            completed = true;
+        }
+        return failures.get();
+    }
+
+    private static void warmUp(Class<? extends NativeQuery> classe, Method method) {
+        NativeQueryInfo info = NativeQueryCache.getInfo(classe, method);
+        info.precompileTemplate();
+
+        if (!info.isJavaObject() && !info.isEntity()) {
+            if (info.isUseJdbcTemplate()) {
+                // primes the introspection cache read by the DataClassRowMapper
+                BeanUtils.getPropertyDescriptors(info.getAliasToBean());
+            } else if (info.isUseHibernateTypes()) {
+                HibernateTypesMapper.getTypes(info.getAliasToBean());
+            }
+        }
+
+        for (Parameter parameter : method.getParameters()) {
+            NativeQueryParam param = parameter.getAnnotation(NativeQueryParam.class);
+            if (param != null && param.addChildren()) {
+                warmUpFilter(parameter.getType(), new HashSet<>());
+            }
+        }
+    }
+
+    private static void warmUpFilter(Class<?> classe, Set<Class<?>> visited) {
+        if (!visited.add(classe)) {
+            return;
+        }
+        NativeQueryCache.getAccessMethods(classe);
+        NativeQueryCache.getFieldInfo(classe).values().stream()
+                .filter(fieldInfo -> fieldInfo.getParam() != null && fieldInfo.getParam().addChildren())
+                .forEach(fieldInfo -> warmUpFilter(fieldInfo.getType(), visited));
+    }
+
+    /**
+     * Indicates whether the warm-up has run.
+     *
+     * @return {@code true} once every method was prepared, or failed to.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+}
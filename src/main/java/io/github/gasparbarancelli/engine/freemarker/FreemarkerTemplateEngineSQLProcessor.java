@@ -4,9 +4,13 @@ import freemarker.template.*;
 import io.github.gasparbarancelli.engine.TemplateEngineSQLProcessor;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link TemplateEngineSQLProcessor} that uses Freemarker to process SQL templates.
@@ -17,7 +21,9 @@ import java.util.Map;
  * into the SQL.</p>
  *
  * <p>The Freemarker configuration is optimized for performance and security, with features
- * like exception re-throwing and disabled caching.</p>
+ * like exception re-throwing. Each template is parsed once and kept, and the
+ * {@linkplain #isStatic(String) static} templates, free of any Freemarker syntax, are not
+ * rendered at all since their output is their source.</p>
  *
  * @see TemplateEngineSQLProcessor
  * @see Configuration
@@ -26,6 +32,12 @@ public class FreemarkerTemplateEngineSQLProcessor extends TemplateEngineSQLProce
 
     private static final Configuration freemarkerConfiguration;
 
+    private static final List<String> TEMPLATE_MARKERS = List.of("<#", "</#", "<@", "</@", "[#", "[@", "${", "#{");
+
+    private static final Map<String, CompiledTemplate> FILE_TEMPLATES = new ConcurrentHashMap<>();
+
+    private static final Map<String, CompiledTemplate> INLINE_TEMPLATES = new ConcurrentHashMap<>();
+
     static {
         freemarkerConfiguration = new Configuration(new Version("2.3.34"));
         freemarkerConfiguration.setDefaultEncoding("UTF-8");
@@ -46,7 +58,7 @@ public class FreemarkerTemplateEngineSQLProcessor extends TemplateEngineSQLProce
      */
     @Override
     protected String processInline(String sql) {
-        return render(new StringReader(sql));
+        return INLINE_TEMPLATES.computeIfAbsent(sql, source -> compile("inline", source)).render(getParameters());
     }
 
     /**
@@ -58,45 +70,129 @@ public class FreemarkerTemplateEngineSQLProcessor extends TemplateEngineSQLProce
      */
     @Override
     protected String processFile(String classpathTemplate) {
-        try {
-            Template template = freemarkerConfiguration.getTemplate(classpathTemplate);
-            return render(template);
-        } catch (IOException e) {
-            throw new RuntimeException("Error loading Freemarker template", e);
-        }
+        return compileFile(classpathTemplate).render(getParameters());
+    }
+
+    /**
+     * Loads and parses a SQL template file ahead of its first use.
+     *
+     * @param classpathTemplate The path to the template file on the classpath.
+     * @throws RuntimeException if the template file cannot be loaded or parsed.
+     */
+    public static void precompile(String classpathTemplate) {
+        compileFile(classpathTemplate);
     }
 
     /**
-     * Renders a Freemarker template from a {@link StringReader}.
+     * Parses an inline SQL template ahead of its first use.
      *
-     * @param reader The reader containing the template content.
-     * @return The rendered SQL string.
-     * @throws RuntimeException if the template cannot be created.
+     * @param sql The inline SQL template string.
+     * @throws RuntimeException if the template cannot be parsed.
      */
-    private String render(StringReader reader) {
+    public static void precompileInline(String sql) {
+        INLINE_TEMPLATES.computeIfAbsent(sql, source -> compile("inline", source));
+    }
+
+    /**
+     * Parses a SQL template with the configuration used to render it, without keeping it.
+     *
+     * @param name   The name of the template, reported in the parse errors.
+     * @param source The source of the template.
+     * @throws IOException if the template is not valid, as a {@link freemarker.core.ParseException}.
+     */
+    public static void parse(String name, String source) throws IOException {
+        new Template(name, new StringReader(source), freemarkerConfiguration);
+    }
+
+    /**
+     * Indicates whether a template renders to its own source whatever the parameters, that is,
+     * whether it is free of any Freemarker directive, macro call or interpolation.
+     *
+     * @param source The source of the template.
+     * @return {@code true} if the template is static.
+     */
+    public static boolean isStatic(String source) {
+        return TEMPLATE_MARKERS.stream().noneMatch(source::contains);
+    }
+
+    /**
+     * Returns the number of SQL template files loaded and kept.
+     *
+     * @return The number of file templates.
+     */
+    public static int getFileTemplateCount() {
+        return FILE_TEMPLATES.size();
+    }
+
+    /**
+     * Returns the number of inline SQL templates parsed and kept.
+     *
+     * @return The number of inline templates.
+     */
+    public static int getInlineTemplateCount() {
+        return INLINE_TEMPLATES.size();
+    }
+
+    private static CompiledTemplate compileFile(String classpathTemplate) {
+        return FILE_TEMPLATES.computeIfAbsent(classpathTemplate, path -> {
+            String resource = path.startsWith("/") ? path.substring(1) : path;
+            try (InputStream inputStream = FreemarkerTemplateEngineSQLProcessor.class.getClassLoader().getResourceAsStream(resource)) {
+                if (inputStream == null) {
+                    throw new TemplateNotFoundException(path, null, "Template not found for name \"" + path + "\".");
+                }
+                return compile(path, new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new RuntimeException("Error loading Freemarker template", e);
+            }
+        });
+    }
+
+    /**
+     * Parses a template, unless it is static.
+     *
+     * @param name   The name of the template.
+     * @param source The source of the template.
+     * @return The compiled template.
+     * @throws RuntimeException if the template cannot be parsed.
+     */
+    private static CompiledTemplate compile(String name, String source) {
+        if (isStatic(source)) {
+            return new CompiledTemplate(source, null);
+        }
         try {
-            Template template = new Template("inline", reader, freemarkerConfiguration);
-            return render(template);
+            return new CompiledTemplate(null, new Template(name, new StringReader(source), freemarkerConfiguration));
         } catch (IOException e) {
             throw new RuntimeException("Error creating Freemarker template", e);
         }
     }
 
     /**
-     * Renders a given Freemarker {@link Template} with the current query parameters.
+     * A parsed template, or the source of a static template.
      *
-     * @param template The template to be processed.
-     * @return The final SQL string after rendering.
-     * @throws RuntimeException if an error occurs during template processing.
+     * @param staticSql The source of the template if it is static, {@code null} otherwise.
+     * @param template  The parsed template if it is not static, {@code null} otherwise.
      */
-    private String render(Template template) {
-        try (StringWriter writer = new StringWriter()) {
-            Map<String, Object> params = getParameters();
-            template.process(params, writer);
-            return writer.toString();
-        } catch (TemplateException | IOException e) {
-            throw new RuntimeException("Error rendering Freemarker template", e);
+    private record CompiledTemplate(String staticSql, Template template) {
+
+        /**
+         * Renders the template with the query parameters.
+         *
+         * @param params The query parameters.
+         * @return The final SQL string after rendering.
+         * @throws RuntimeException if an error occurs during template processing.
+         */
+        String render(Map<String, Object> params) {
+            if (staticSql != null) {
+                return staticSql;
+            }
+            try (StringWriter writer = new StringWriter()) {
+                template.process(params, writer);
+                return writer.toString();
+            } catch (TemplateException | IOException e) {
+                throw new RuntimeException("Error rendering Freemarker template", e);
+            }
         }
+
     }
 
-}
\ No newline at end of file
+}
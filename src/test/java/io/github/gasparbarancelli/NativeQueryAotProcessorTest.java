@@ -0,0 +1,144 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.javapoet.ClassName;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryAotProcessorTest {
+
+    interface AotNativeQuery extends NativeQuery {
+
+        List<UserDto> findUsers(@NativeQueryParam(value = "filter", addChildren = true) UserFilter filter);
+
+        @NativeQuerySql("select name from user")
+        List<String> findNames();
+
+    }
+
+    public static class UserDto {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    public static class UserFilter {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    @BeforeAll
+    static void setUp() {
+        new NativeQueryAutoConfiguration().beanFactoryPostProcessor("io.github.gasparbarancelli", "nativeQuery", false, NativeQueryExecutors.DEFAULT_MAX_THREADS, Optional.empty());
+    }
+
+    @Test
+    void testRegisterHints_CoversTheProxyTheTemplateTheDtoAndTheFilter() {
+        RuntimeHints hints = new RuntimeHints();
+
+        NativeQueryRuntimeHints.registerHints(hints, AotNativeQuery.class);
+
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(AotNativeQuery.class, NativeQuery.class,
+                SpringProxy.class, Advised.class, DecoratingProxy.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("nativeQuery/findUsers.sql").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(UserDto.class)
+                .withMemberCategories(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(UserFilter.class)
+                .withMemberCategories(MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.ACCESS_DECLARED_FIELDS).test(hints));
+        assertFalse(RuntimeHintsPredicates.resource().forResource("nativeQuery/findNames.sql").test(hints));
+    }
+
+    @Test
+    void testRegisterHints_CoversTheIndexAndTheSqlDirectory() {
+        RuntimeHints hints = new RuntimeHints();
+
+        new NativeQueryRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.resource().forResource(NativeQueryIndex.LOCATION).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource(NativeQueryIndex.TEMPLATES_LOCATION).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("nativeQuery/user/findUsers.sql").test(hints));
+    }
+
+    @Test
+    void testIsExcludedFromAotProcessing_ExcludesOnlyTheNativeQueryBeans() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(AotNativeQuery.class));
+        beanFactory.registerBeanDefinition("userDto", new RootBeanDefinition(UserDto.class));
+        NativeQueryAotProcessor processor = new NativeQueryAotProcessor();
+
+        assertTrue(processor.isExcludedFromAotProcessing(RegisteredBean.of(beanFactory, "aotNativeQuery")));
+        assertFalse(processor.isExcludedFromAotProcessing(RegisteredBean.of(beanFactory, "userDto")));
+        assertNull(processor.processAheadOfTime(new DefaultListableBeanFactory()));
+    }
+
+    @Test
+    void testProcessAheadOfTime_GeneratesTheRegistrationOfTheInterfaces() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        new NativeQueryRegistryImpl(context).registry(Set.of(AotNativeQuery.class));
+        InMemoryGeneratedFiles generatedFiles = new InMemoryGeneratedFiles();
+        DefaultGenerationContext generationContext = new DefaultGenerationContext(
+                new ClassNameGenerator(ClassName.get("com.example", "AotApplication")), generatedFiles);
+
+        new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext);
+        generationContext.writeGeneratedContent();
+
+        String code = String.join("\n", generatedFiles.getGeneratedFiles(GeneratedFiles.Kind.SOURCE).values().stream()
+                .map(source -> {
+                    try (var input = source.getInputStream()) {
+                        return new String(input.readAllBytes());
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList());
+        assertTrue(code.contains("NativeQueryAotProcessor.registerNativeQueries(beanFactory, \""
+                + AotNativeQuery.class.getName() + "\")"), code);
+        assertFalse(code.contains("aotNativeQuery"), code);
+        assertTrue(RuntimeHintsPredicates.resource().forResource("nativeQuery/findUsers.sql")
+                .test(generationContext.getRuntimeHints()));
+    }
+
+    @Test
+    void testRegisterNativeQueries_RegistersTheInterfacesByName() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+        NativeQueryAotProcessor.registerNativeQueries(beanFactory, AotNativeQuery.class.getName());
+
+        assertInstanceOf(AotNativeQuery.class, beanFactory.getBean("aotNativeQuery"));
+    }
+
+}
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class NativeQueryAutoConfigurationTest {
@@ -21,6 +22,8 @@ class NativeQueryAutoConfigurationTest {
         var postProcessor = autoConfig.beanFactoryPostProcessor(
                 "io.github.gasparbarancelli",
                 "nativeQuery",
+                false,
+                NativeQueryExecutors.DEFAULT_MAX_THREADS,
                 Optional.of(config)
         );
 
@@ -37,6 +40,8 @@ class NativeQueryAutoConfigurationTest {
         var postProcessor = autoConfig.beanFactoryPostProcessor(
                 "io.github.gasparbarancelli",
                 "nativeQuery",
+                false,
+                NativeQueryExecutors.DEFAULT_MAX_THREADS,
                 Optional.empty()
         );
 
@@ -44,6 +49,20 @@ class NativeQueryAutoConfigurationTest {
         postProcessor.postProcessBeanFactory(beanFactory);
 
         assertEquals("nativeQuery", NativeQueryAutoConfiguration.getSqlDirectory());
+        assertEquals(NativeQueryExecutors.DEFAULT_MAX_THREADS, NativeQueryExecutors.pool().getMaximumPoolSize());
+    }
+
+    @Test
+    void testBeanFactoryPostProcessor_ConfiguresTheMaxThreadsOfTheExecutor() {
+        try {
+            new NativeQueryAutoConfiguration().beanFactoryPostProcessor("io.github.gasparbarancelli", "nativeQuery", false, 4, Optional.empty());
+
+            assertEquals(4, NativeQueryExecutors.pool().getMaximumPoolSize());
+            assertThrows(IllegalArgumentException.class,
+                    () -> new NativeQueryAutoConfiguration().beanFactoryPostProcessor("io.github.gasparbarancelli", "nativeQuery", false, 0, Optional.empty()));
+        } finally {
+            NativeQueryExecutors.setMaxThreads(NativeQueryExecutors.DEFAULT_MAX_THREADS);
+        }
     }
 
 }
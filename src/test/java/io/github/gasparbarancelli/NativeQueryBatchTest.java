@@ -0,0 +1,208 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryBatchTest {
+
+    interface StalledNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select cast(count(*) as varchar) from system_range(1, 5000) where spin(1) + x > 0")
+        String countSlowly();
+
+    }
+
+    public static class Functions {
+
+        public static int spin(int millis) {
+            // ignores the interruptions, as a driver blocked on the network does
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return 0;
+        }
+
+    }
+
+    @Test
+    void testExecute_ReturnsResultsInInvocationOrder() {
+        List<Object> results = NativeQueryBatch.of(
+                () -> sleepAndReturn(50, "slow"),
+                () -> "fast",
+                () -> null
+        ).execute();
+
+        assertEquals(3, results.size());
+        assertEquals("slow", results.get(0));
+        assertEquals("fast", results.get(1));
+        assertNull(results.get(2));
+    }
+
+    @Test
+    void testExecute_RunsInvocationsConcurrently() {
+        CountDownLatch latch = new CountDownLatch(2);
+        Supplier<Object> invocation = () -> {
+            latch.countDown();
+            try {
+                return latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        List<Object> results = NativeQueryBatch.of(invocation, invocation).execute();
+
+        assertEquals(List.of(true, true), results);
+    }
+
+    @Test
+    void testExecute_RespectsParallelism() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Supplier<Object> invocation = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleepAndReturn(20, null);
+            return running.decrementAndGet();
+        };
+
+        NativeQueryBatch.of(invocation, invocation, invocation, invocation, invocation)
+                .parallelism(2)
+                .execute();
+
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void testExecute_FailsFastWithTheInvocationException() {
+        IllegalArgumentException failure = new IllegalArgumentException("boom");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> NativeQueryBatch.of(
+                () -> sleepAndReturn(5_000, "slow"),
+                () -> {
+                    throw failure;
+                }
+        ).execute());
+
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void testExecute_ThrowsWhenTheDeadlineExpires() {
+        NativeQueryBatch batch = NativeQueryBatch.of(() -> sleepAndReturn(5_000, "slow"))
+                .timeout(Duration.ofMillis(50));
+
+        assertThrows(QueryTimeoutException.class, batch::execute);
+    }
+
+    @Test
+    void testExecute_CancelsTheRunningStatementsWhenAnInvocationFails() throws InterruptedException {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:batch_cancel;DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute("create alias if not exists spin for \"" + Functions.class.getName() + ".spin\"");
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+        new NativeQueryRegistryImpl(context).registry(Set.of(StalledNativeQuery.class));
+        context.refresh();
+        StalledNativeQuery nativeQuery = context.getBean(StalledNativeQuery.class);
+        CountDownLatch ended = new CountDownLatch(1);
+        ApplicationContext previous = ApplicationContextProvider.getApplicationContext();
+        new ApplicationContextProvider().setApplicationContext(context);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> NativeQueryBatch.of(
+                    () -> {
+                        try {
+                            return nativeQuery.countSlowly();
+                        } finally {
+                            ended.countDown();
+                        }
+                    },
+                    () -> {
+                        sleepAndReturn(100, null);
+                        throw new IllegalArgumentException("boom");
+                    }
+            ).execute());
+
+            assertTrue(ended.await(2, TimeUnit.SECONDS), "the statement was not cancelled");
+        } finally {
+            new ApplicationContextProvider().setApplicationContext(previous);
+        }
+    }
+
+    @Test
+    void testExecute_RunsOnTheCallingThreadOutsideItsTransactionWhenThePoolIsBusy() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:batch_saturated;DB_CLOSE_DELAY=-1");
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // the threads still running the queries of the other tests are busy too
+            for (int i = 0; i < NativeQueryExecutors.pool().getMaximumPoolSize(); i++) {
+                NativeQueryExecutors.pool().execute(() -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        } catch (RejectedExecutionException e) {
+            // every thread of the pool is busy
+        }
+        try {
+            Thread caller = Thread.currentThread();
+            AtomicInteger started = new AtomicInteger();
+
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+                List<Object> results = NativeQueryBatch.of(
+                        () -> Thread.currentThread() == caller,
+                        () -> TransactionSynchronizationManager.hasResource(dataSource)
+                                || TransactionSynchronizationManager.isActualTransactionActive()
+                ).execute();
+                assertEquals(List.of(true, false), results);
+                assertTrue(TransactionSynchronizationManager.hasResource(dataSource));
+                assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+
+                assertThrows(IllegalArgumentException.class, () -> NativeQueryBatch.of(
+                        () -> {
+                            started.incrementAndGet();
+                            throw new IllegalArgumentException("boom");
+                        },
+                        () -> started.incrementAndGet()
+                ).execute());
+            });
+
+            assertEquals(1, started.get(), "an invocation started after the batch failed");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static Object sleepAndReturn(long millis, Object value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,81 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryBeansTest {
+
+    interface PersonNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate(useTenant = true)
+        @NativeQuerySql("select name from :SCHEMA.person order by name")
+        List<String> findNames();
+
+    }
+
+    @NativeQueryBeans(jdbcTemplateRef = "reportingJdbcTemplate", tenantInterceptorRef = "reportingTenant")
+    interface ReportingPersonNativeQuery extends PersonNativeQuery {
+    }
+
+    private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+    @BeforeEach
+    void setUp() {
+        beanFactory.registerSingleton("jdbcTemplate", jdbcTemplate("primary", "john"));
+        beanFactory.registerSingleton("reportingJdbcTemplate", jdbcTemplate("reporting", "mary"));
+        beanFactory.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) () -> "PUBLIC");
+        beanFactory.registerSingleton("reportingTenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) () -> "REPORTING");
+    }
+
+    private static NamedParameterJdbcTemplate jdbcTemplate(String database, String name) {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:beans_" + database + ";DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.getJdbcTemplate().execute("create schema if not exists reporting");
+        for (String schema : List.of("public", "reporting")) {
+            jdbcTemplate.getJdbcTemplate().execute("drop table if exists " + schema + ".person");
+            jdbcTemplate.getJdbcTemplate().execute("create table " + schema + ".person (name varchar(100))");
+            jdbcTemplate.getJdbcTemplate().update("insert into " + schema + ".person values (?)", schema + " " + name);
+        }
+        return jdbcTemplate;
+    }
+
+    @Test
+    void testRegistry_RunsEachInterfaceWithTheBeansItChooses() {
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(ReportingPersonNativeQuery.class));
+
+        ReportingPersonNativeQuery reporting = beanFactory.getBean(ReportingPersonNativeQuery.class);
+
+        assertEquals(List.of("reporting mary"), reporting.findNames());
+    }
+
+    @Test
+    void testRegistry_LooksTheBeansUpOnlyOnce() {
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(ReportingPersonNativeQuery.class));
+        ReportingPersonNativeQuery reporting = beanFactory.getBean(ReportingPersonNativeQuery.class);
+        assertEquals(List.of("reporting mary"), reporting.findNames());
+
+        beanFactory.destroySingleton("reportingJdbcTemplate");
+        beanFactory.destroySingleton("reportingTenant");
+
+        assertEquals(List.of("reporting mary"), reporting.findNames());
+    }
+
+    @Test
+    void testInterceptor_LooksTheBeansUpByTypeWithoutNames() {
+        DefaultListableBeanFactory single = new DefaultListableBeanFactory();
+        single.registerSingleton("jdbcTemplate", jdbcTemplate("single", "paul"));
+        single.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) () -> "PUBLIC");
+        new NativeQueryRegistryImpl(single).registry(Set.of(PersonNativeQuery.class));
+
+        assertEquals(List.of("public paul"), single.getBean(PersonNativeQuery.class).findNames());
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NativeQueryCoalescerTest {
+
+    private interface SingleFlightNativeQuery extends NativeQuery {
+
+        @NativeQuerySingleFlight
+        @NativeQuerySql("select name from user where id = :id")
+        List<String> findNames(@NativeQueryParam("id") Integer id);
+
+    }
+
+    @Test
+    void testExecute_ConcurrentCallersShareTheResultOfTheFirstOne() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> NativeQueryCoalescer.execute(info(1), () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return List.of("a");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = new CompletableFuture<>();
+        Thread secondCaller = new Thread(() -> second.complete(NativeQueryCoalescer.execute(info(1), () -> {
+            executions.incrementAndGet();
+            return List.of("b");
+        })));
+        secondCaller.start();
+        while (secondCaller.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertEquals(List.of("a"), first.get(5, TimeUnit.SECONDS));
+        assertSame(first.get(), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_SequentialCallersExecuteTheQueryAgain() {
+        AtomicInteger executions = new AtomicInteger();
+
+        NativeQueryCoalescer.execute(info(2), () -> List.of(executions.incrementAndGet()));
+        NativeQueryCoalescer.execute(info(2), () -> List.of(executions.incrementAndGet()));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testExecute_FailureIsPropagatedAndReleasesTheKey() {
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> NativeQueryCoalescer.execute(info(3), () -> {
+            throw failure;
+        })));
+        assertEquals(List.of("a"), NativeQueryCoalescer.execute(info(3), () -> List.of("a")));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static NativeQueryInfo info(Integer id) {
+        try {
+            MethodInvocation invocation = mock(MethodInvocation.class);
+            when(invocation.getMethod()).thenReturn(SingleFlightNativeQuery.class.getMethod("findNames", Integer.class));
+            when(invocation.getArguments()).thenReturn(new Object[]{id});
+            NativeQueryInfo info = NativeQueryInfo.of(SingleFlightNativeQuery.class, invocation);
+            NativeQueryInfo.setParameters(info, invocation);
+            return info;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
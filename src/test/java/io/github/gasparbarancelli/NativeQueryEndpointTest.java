@@ -0,0 +1,83 @@
+package io.github.gasparbarancelli;
+
+import io.github.gasparbarancelli.engine.freemarker.FreemarkerTemplateEngineSQLProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class NativeQueryEndpointTest {
+
+    interface DescribedNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from user")
+        List<String> findNames();
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from user <#if id??>where id = :id</#if>")
+        List<String> findNamesById(@NativeQueryParam("id") Integer id);
+
+    }
+
+    @Test
+    void testNativeQuery_DescribesTheRegisteredMethodsAndTheirStatistics() throws NoSuchMethodException {
+        new NativeQueryRegistryImpl(mock(BeanDefinitionRegistry.class)).registry(Set.of(DescribedNativeQuery.class));
+        NativeQueryStatistics statistics = new NativeQueryStatistics();
+        NativeQueryExecution.setListeners(List.of(statistics));
+        try {
+            NativeQueryExecution execution = NativeQueryExecution.start(DescribedNativeQuery.class, DescribedNativeQuery.class.getMethod("findNames"));
+            execution.run(List::of);
+        } finally {
+            NativeQueryExecution.setListeners(List.of());
+        }
+
+        NativeQueryEndpoint.NativeQueryDescriptor descriptor = new NativeQueryEndpoint(statistics).nativeQuery();
+
+        NativeQueryEndpoint.InterfaceDescriptor described = descriptor.interfaces().stream()
+                .filter(i -> i.name().equals(DescribedNativeQuery.class.getName()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, described.methods().size());
+        NativeQueryEndpoint.MethodDescriptor findNames = described.methods().get(0);
+        assertEquals(DescribedNativeQuery.class.getName() + "#findNames()", findNames.key());
+        assertEquals("hibernate", findNames.engine());
+        assertEquals("inline", findNames.template());
+        assertTrue(findNames.staticTemplate());
+        assertEquals(1, findNames.statistics().calls());
+        assertNull(findNames.resultCache());
+        NativeQueryEndpoint.MethodDescriptor findNamesById = described.methods().get(1);
+        assertEquals("jdbc", findNamesById.engine());
+        assertFalse(findNamesById.staticTemplate());
+        assertEquals(0, findNamesById.statistics().calls());
+    }
+
+    @Test
+    void testNativeQuery_ReportsTheSizesOfTheTemplateCaches() {
+        FreemarkerTemplateEngineSQLProcessor.precompileInline("select name from user where id = :endpointId");
+
+        NativeQueryEndpoint.NativeQueryDescriptor descriptor = new NativeQueryEndpoint(new NativeQueryStatistics()).nativeQuery();
+
+        assertTrue(descriptor.inlineTemplateCacheSize() >= 1);
+        assertEquals(FreemarkerTemplateEngineSQLProcessor.getFileTemplateCount(), descriptor.fileTemplateCacheSize());
+    }
+
+    @Test
+    void testAutoConfiguration_RegistersTheStatisticsOnlyWhenTheEndpointIsExposed() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(NativeQueryEndpointAutoConfiguration.class));
+
+        runner.run(context -> assertTrue(context.getBeansOfType(NativeQueryStatistics.class).isEmpty()));
+        runner.withPropertyValues("management.endpoints.web.exposure.include=nativequery")
+                .run(context -> {
+                    assertEquals(1, context.getBeansOfType(NativeQueryStatistics.class).size());
+                    assertEquals(1, context.getBeansOfType(NativeQueryEndpoint.class).size());
+                });
+    }
+
+}
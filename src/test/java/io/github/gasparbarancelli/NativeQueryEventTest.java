@@ -0,0 +1,72 @@
+package io.github.gasparbarancelli;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NativeQueryEventTest {
+
+    private interface RecordedNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from user where id = :id and active = 1")
+        List<String> findNames(@NativeQueryParam("id") Integer id);
+
+    }
+
+    @Test
+    void testEvents_AreRecordedWithTheTemplateAndTheSqlFingerprint() throws Exception {
+        NativeQueryInfo info = info();
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("io.github.gasparbarancelli.NativeQueryRender");
+            recording.enable("io.github.gasparbarancelli.NativeQueryExecute");
+            recording.start();
+
+            NativeQueryExecuteEvent event = new NativeQueryExecuteEvent();
+            event.begin();
+            info.getSql();
+            event.complete(info, List.of("a", "b"));
+
+            recording.stop();
+            Path file = Files.createTempFile("native-query", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        }
+
+        RecordedEvent render = find(events, "io.github.gasparbarancelli.NativeQueryRender");
+        assertEquals(info.getMethodKey(), render.getString("method"));
+        assertEquals("inline", render.getString("template"));
+        RecordedEvent execute = find(events, "io.github.gasparbarancelli.NativeQueryExecute");
+        assertEquals("hibernate", execute.getString("engine"));
+        assertEquals("select name from user where id = :id and active = ?", execute.getString("fingerprint"));
+        assertEquals(2, execute.getInt("rows"));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(name + " was not recorded"));
+    }
+
+    private static NativeQueryInfo info() throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(RecordedNativeQuery.class.getMethod("findNames", Integer.class));
+        when(invocation.getArguments()).thenReturn(new Object[]{1});
+        NativeQueryInfo info = NativeQueryInfo.of(RecordedNativeQuery.class, invocation);
+        NativeQueryInfo.setParameters(info, invocation);
+        return info;
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryExplainerTest {
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:explainer;DB_CLOSE_DELAY=-1");
+
+    private NativeQueryExplainer explainer;
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(dataSource).execute("create table if not exists person (id int primary key, name varchar(100))");
+        explainer = new NativeQueryExplainer(dataSource, List.of(), 1.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        explainer.shutdown();
+    }
+
+    @Test
+    void testExplain_CapturesThePlanWithTheBoundParameters() throws Exception {
+        CompletableFuture<String> plan = new CompletableFuture<>();
+
+        explainer.explain("select name from person where id = :id", Map.of("id", 1), plan::complete);
+
+        String captured = plan.get(5, TimeUnit.SECONDS);
+        assertTrue(captured.toUpperCase().contains("PERSON"), captured);
+        assertTrue(captured.toUpperCase().contains("PRIMARY_KEY"), captured);
+    }
+
+    @Test
+    void testExplain_UsesTheCustomDialectsFirst() throws Exception {
+        NativeQueryExplainer custom = new NativeQueryExplainer(dataSource, List.of(NativeQueryExplainDialect.of("H2", "EXPLAIN ANALYZE ")), 1.0);
+        try {
+            CompletableFuture<String> plan = new CompletableFuture<>();
+
+            custom.explain("select name from person", Map.of(), plan::complete);
+
+            assertTrue(plan.get(5, TimeUnit.SECONDS).contains("scanCount"));
+        } finally {
+            custom.shutdown();
+        }
+    }
+
+    @Test
+    void testExplain_RunsOnTheDataSourceOfTheQuery() throws Exception {
+        DriverManagerDataSource otherDataSource = new DriverManagerDataSource("jdbc:h2:mem:explainer_other;DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(otherDataSource).execute("create table if not exists invoice (id int primary key)");
+        CompletableFuture<String> plan = new CompletableFuture<>();
+
+        explainer.explain("select id from invoice where id = :id", Map.of("id", 1), otherDataSource, null, plan::complete);
+
+        String captured = plan.get(5, TimeUnit.SECONDS);
+        assertTrue(captured.contains("\"PUBLIC\".\"INVOICE\""), captured);
+    }
+
+    @Test
+    void testExplain_RunsInTheSchemaOfTheQuery() throws Exception {
+        DriverManagerDataSource tenantDataSource = new DriverManagerDataSource("jdbc:h2:mem:explainer_tenant;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(tenantDataSource);
+        jdbcTemplate.execute("create schema if not exists tenant_a");
+        jdbcTemplate.execute("create table if not exists tenant_a.invoice (id int primary key)");
+        CompletableFuture<String> plan = new CompletableFuture<>();
+
+        explainer.explain("select id from invoice where id = :id", Map.of("id", 1), tenantDataSource, "TENANT_A", plan::complete);
+
+        String captured = plan.get(5, TimeUnit.SECONDS);
+        assertTrue(captured.contains("\"TENANT_A\".\"INVOICE\""), captured);
+    }
+
+    @Test
+    void testExplain_IgnoresStatementsThatAreNotQueries() throws Exception {
+        CompletableFuture<String> plan = new CompletableFuture<>();
+
+        explainer.explain("delete from person", Map.of(), plan::complete);
+        explainer.explain("select name from person", Map.of(), plan::complete);
+
+        assertFalse(plan.get(5, TimeUnit.SECONDS).toLowerCase().contains("delete"));
+    }
+
+}
@@ -0,0 +1,146 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryHedgingTest {
+
+    @NativeQueryReadOnly
+    interface HedgedNativeQuery extends NativeQuery {
+
+        @NativeQueryHedged(delay = 50)
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findDatabase();
+
+        @NativeQueryHedged(delay = 50)
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name where name = :name")
+        Optional<String> findDatabase(@NativeQueryParam("name") String name);
+
+    }
+
+    interface InvalidNativeQuery extends NativeQuery {
+
+        @NativeQueryHedged
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findDatabase();
+
+    }
+
+    public static class Functions {
+
+        public static int pause(int millis) throws InterruptedException {
+            Thread.sleep(millis);
+            return 0;
+        }
+
+    }
+
+    private static DataSource database(String name, boolean stalled) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:hedging_" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop all objects");
+        if (stalled) {
+            // answers after 2000 rows of a millisecond each, unless the statement is cancelled
+            jdbcTemplate.execute("create alias pause for \"" + Functions.class.getName() + ".pause\"");
+            jdbcTemplate.execute("create view database_name as select '" + name + "' name from system_range(1, 2000) where pause(1) + x = 2000");
+        } else {
+            jdbcTemplate.execute("create table database_name (name varchar(100))");
+            jdbcTemplate.update("insert into database_name values (?)", name);
+        }
+        return dataSource;
+    }
+
+    private static HedgedNativeQuery nativeQuery(NativeQueryReplicaRouter router) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(database("primary", false)));
+        beanFactory.registerSingleton("replicaRouter", router);
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(HedgedNativeQuery.class));
+        return beanFactory.getBean(HedgedNativeQuery.class);
+    }
+
+    @Test
+    void testQuery_ReturnsTheHedgedResultAndCancelsTheStalledReplica() {
+        NativeQueryReplicaRouter router = new NativeQueryReplicaRouter(
+                List.of(database("stalled", true), database("fast", false)), NativeQueryReplicaRouter.Balancing.ROUND_ROBIN);
+        HedgedNativeQuery nativeQuery = nativeQuery(router);
+
+        long start = System.nanoTime();
+        String database = nativeQuery.findDatabase();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("fast", database);
+        assertTrue(elapsed < 1000, "the stalled query was not cancelled after " + elapsed + " ms");
+        assertEquals(0, router.getInFlight(0));
+    }
+
+    @Test
+    void testQuery_RecordsTheLatencyOfTheFirstAttemptWhenTheHedgeWins() throws NoSuchMethodException {
+        NativeQueryReplicaRouter router = new NativeQueryReplicaRouter(
+                List.of(database("stalled", true), database("fast", false)), NativeQueryReplicaRouter.Balancing.ROUND_ROBIN);
+        HedgedNativeQuery nativeQuery = nativeQuery(router);
+        String methodKey = NativeQueryCache.getInfo(HedgedNativeQuery.class, HedgedNativeQuery.class.getMethod("findDatabase")).getMethodKey();
+
+        assertEquals("fast", nativeQuery.findDatabase());
+
+        NativeQueryLatencyHistogram latencies = NativeQueryHedging.getLatencies(methodKey);
+        assertEquals(1, latencies.getCount());
+        assertTrue(latencies.getMax() >= TimeUnit.MILLISECONDS.toNanos(50), String.valueOf(latencies.getMax()));
+    }
+
+    @Test
+    void testQuery_DoesNotHedgeTheQueriesReturningWithinTheDelay() {
+        NativeQueryReplicaRouter router = new NativeQueryReplicaRouter(
+                List.of(database("first", false), database("second", true)), NativeQueryReplicaRouter.Balancing.ROUND_ROBIN);
+        HedgedNativeQuery nativeQuery = nativeQuery(router);
+
+        assertEquals(Optional.of("first"), nativeQuery.findDatabase("first"));
+        assertEquals(0, router.getInFlight(0) + router.getInFlight(1));
+    }
+
+    @Test
+    void testDelay_UsesThePercentileOfTheLatenciesOnceEnoughAreObserved() {
+        NativeQueryHedged hedged = HedgedNativeQuery.class.getMethods()[0].getAnnotation(NativeQueryHedged.class);
+        NativeQueryLatencyHistogram latencies = new NativeQueryLatencyHistogram();
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), NativeQueryHedging.delay(hedged, latencies));
+
+        for (int i = 1; i <= NativeQueryHedging.MIN_SAMPLES; i++) {
+            latencies.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        long delay = NativeQueryHedging.delay(hedged, latencies);
+        assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(95) && delay <= TimeUnit.MILLISECONDS.toNanos(100), String.valueOf(delay));
+    }
+
+    @Test
+    void testGetInfo_RejectsTheMethodsThatAreNotReadOnly() {
+        assertThrows(IllegalStateException.class,
+                () -> NativeQueryCache.getInfo(InvalidNativeQuery.class, InvalidNativeQuery.class.getMethod("findDatabase")));
+    }
+
+    @Test
+    void testAcquire_AvoidsTheExcludedReplica() {
+        NativeQueryReplicaRouter router = new NativeQueryReplicaRouter(
+                List.of(database("a", false), database("b", false), database("c", false)), NativeQueryReplicaRouter.Balancing.ROUND_ROBIN);
+
+        for (int i = 0; i < 6; i++) {
+            try (NativeQueryReplicaRouter.Lease lease = router.acquire(1)) {
+                assertNotEquals(1, lease.getIndex());
+            }
+        }
+    }
+
+}
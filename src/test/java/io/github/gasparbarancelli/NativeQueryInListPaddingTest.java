@@ -0,0 +1,96 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryInListPaddingTest {
+
+    interface PersonNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from person where id in (:ids) order by id")
+        List<String> findNames(@NativeQueryParam("ids") List<Long> ids);
+
+    }
+
+    private static void configure(boolean inListPadding) {
+        new NativeQueryAutoConfiguration().beanFactoryPostProcessor("io.github.gasparbarancelli", "nativeQuery", inListPadding, NativeQueryExecutors.DEFAULT_MAX_THREADS, Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        configure(false);
+    }
+
+    @Test
+    void testPadded_RoundsTheCollectionsUpToAPowerOfTwoWithTheLastValue() {
+        assertEquals(List.of(1, 2, 3, 3), NativeQueryInfo.padded(List.of(1, 2, 3)));
+        assertEquals(List.of(1, 2, 3, 4, 5, 5, 5, 5), NativeQueryInfo.padded(List.of(1, 2, 3, 4, 5)));
+        assertEquals(List.of(1, 2, 3, 4), NativeQueryInfo.padded(List.of(1, 2, 3, 4)));
+        assertEquals(List.of(1), NativeQueryInfo.padded(List.of(1)));
+        assertEquals(Collections.emptyList(), NativeQueryInfo.padded(Collections.emptyList()));
+        assertEquals("value", NativeQueryInfo.padded("value"));
+    }
+
+    @Test
+    void testPadded_CapsTheLastBucketAtTheLargestInList() {
+        assertEquals(512, ((List<?>) NativeQueryInfo.padded(IntStream.range(0, 300).boxed().toList())).size());
+        List<Integer> powerOfTwo = IntStream.range(0, 512).boxed().toList();
+        assertSame(powerOfTwo, NativeQueryInfo.padded(powerOfTwo));
+        assertEquals(1000, ((List<?>) NativeQueryInfo.padded(IntStream.range(0, 513).boxed().toList())).size());
+        List<?> large = (List<?>) NativeQueryInfo.padded(IntStream.range(0, 600).boxed().toList());
+        assertEquals(NativeQueryInfo.MAX_PADDED_SIZE, large.size());
+        assertEquals(599, large.get(NativeQueryInfo.MAX_PADDED_SIZE - 1));
+        List<Integer> largest = IntStream.range(0, 1000).boxed().toList();
+        assertSame(largest, NativeQueryInfo.padded(largest));
+        List<Integer> tooLarge = IntStream.range(0, 1200).boxed().toList();
+        assertSame(tooLarge, NativeQueryInfo.padded(tooLarge));
+    }
+
+    @Test
+    void testGetBoundParameters_PadsTheCollectionsOnlyWhenEnabled() throws NoSuchMethodException {
+        Method method = PersonNativeQuery.class.getMethod("findNames", List.class);
+
+        configure(false);
+        NativeQueryInfo info = NativeQueryCache.get(NativeQueryCache.getInfo(PersonNativeQuery.class, method),
+                method.getParameters(), new Object[]{List.of(1L, 2L, 3L)});
+        assertEquals(List.of(1L, 2L, 3L), info.getBoundParameters().get("ids"));
+
+        configure(true);
+        info = NativeQueryCache.get(NativeQueryCache.getInfo(PersonNativeQuery.class, method),
+                method.getParameters(), new Object[]{List.of(1L, 2L, 3L)});
+        assertEquals(List.of(1L, 2L, 3L, 3L), info.getBoundParameters().get("ids"));
+    }
+
+    @Test
+    void testInterceptor_ReturnsTheSameRowsWithPaddedLists() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:in_list_padding;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists person");
+        jdbcTemplate.execute("create table person (id bigint, name varchar(100))");
+        for (long id = 1; id <= 6; id++) {
+            jdbcTemplate.update("insert into person values (?, ?)", id, "person " + id);
+        }
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(PersonNativeQuery.class));
+        configure(true);
+
+        assertEquals(List.of("person 1", "person 4", "person 5"),
+                beanFactory.getBean(PersonNativeQuery.class).findNames(List.of(5L, 1L, 4L)));
+    }
+
+}
@@ -0,0 +1,323 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryIndexProcessorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testProcess_IndexesTheNativeQueryInterfacesIncludingNestedOnes() throws Exception {
+        compile("com.example.UserNativeQuery", """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                    interface Nested extends UserNativeQuery {
+                    }
+                }
+                """);
+        compile("com.example.UserService", """
+                package com.example;
+                public class UserService {
+                }
+                """);
+
+        assertEquals(List.of("com.example.UserNativeQuery", "com.example.UserNativeQuery$Nested"), Files.readAllLines(index()));
+    }
+
+    @Test
+    void testProcess_KeepsTheInterfacesOfPreviousCompilations() throws Exception {
+        compile("com.example.UserNativeQuery", """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                }
+                """);
+        compile("com.example.OrderNativeQuery", """
+                package com.example;
+                public interface OrderNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                }
+                """);
+
+        assertEquals(List.of("com.example.OrderNativeQuery", "com.example.UserNativeQuery"), Files.readAllLines(index()));
+    }
+
+    @Test
+    void testProcess_WritesNoIndexWithoutNativeQueryInterfaces() throws Exception {
+        compile("com.example.UserService", """
+                package com.example;
+                public class UserService {
+                }
+                """);
+
+        assertFalse(Files.exists(index()));
+    }
+
+    @Test
+    void testProcess_ClassifiesTheTemplatesOfTheMethods() throws Exception {
+        template("nativeQuery/user/findAllUsers.sql", "SELECT id FROM USER");
+        template("nativeQuery/user/findByName.sql", "SELECT id FROM USER <#if name??>WHERE name = :name</#if>");
+        compile("com.example.UserNativeQuery", """
+                package com.example;
+                import io.github.gasparbarancelli.*;
+                @NativeQueryFolder("user")
+                public interface UserNativeQuery extends NativeQuery {
+                    @NativeQueryFileName("findAllUsers")
+                    java.util.List<Object> findAll();
+                    java.util.List<Object> findByName(String name);
+                    @NativeQuerySql("SELECT id FROM USER")
+                    java.util.List<Object> findInline();
+                    default java.util.List<Object> findDefault() {
+                        return findAll();
+                    }
+                }
+                """);
+
+        assertEquals(List.of(
+                "static nativeQuery/user" + File.separator + "findAllUsers.sql",
+                "dynamic nativeQuery/user" + File.separator + "findByName.sql"
+        ), Files.readAllLines(directory.resolve(NativeQueryIndex.TEMPLATES_LOCATION)));
+    }
+
+    @Test
+    void testProcess_FailsWhenATemplateIsMissing() throws Exception {
+        String output = tryCompile("com.example.UserNativeQuery", """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                    java.util.List<Object> findUsers();
+                }
+                """);
+
+        assertTrue(output.contains("error: the SQL file nativeQuery/findUsers.sql of findUsers was not found"), output);
+        assertFalse(Files.exists(directory.resolve("com/example/UserNativeQuery.class")));
+    }
+
+    @Test
+    void testProcess_WarnsWhenATemplateIsMissingAndTheBuildOptsOut() throws Exception {
+        String output = tryCompile("com.example.UserNativeQuery", """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                    java.util.List<Object> findUsers();
+                }
+                """, "-A" + NativeQueryIndexProcessor.VALIDATE_OPTION + "=warn");
+
+        assertTrue(output.contains("warning: the SQL file nativeQuery/findUsers.sql of findUsers was not found"), output);
+        assertTrue(Files.exists(directory.resolve("com/example/UserNativeQuery.class")));
+        assertEquals(List.of("com.example.UserNativeQuery"), Files.readAllLines(index()));
+    }
+
+    @Test
+    void testProcess_FailsWhenATemplateIsNotValid() throws Exception {
+        template("nativeQuery/findUsers.sql", "SELECT id FROM USER <#if name??>WHERE name = :name");
+        String output = tryCompile("com.example.UserNativeQuery", """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                    java.util.List<Object> findUsers();
+                    @io.github.gasparbarancelli.NativeQuerySql("SELECT id FROM ${")
+                    java.util.List<Object> findInline();
+                }
+                """);
+
+        assertTrue(output.contains("the SQL template nativeQuery/findUsers.sql is not valid"), output);
+        assertTrue(output.contains("the SQL template inline SQL of findInline is not valid"), output);
+    }
+
+    @Test
+    void testProcess_SkipsTheParsingWithoutFreemarkerOnTheProcessorPath() throws Exception {
+        template("nativeQuery/findUsers.sql", "SELECT id FROM USER");
+        Path file = directory.resolve("src/com/example/UserNativeQuery.java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                    java.util.List<Object> findUsers();
+                    java.util.List<Object> findMissing();
+                    @io.github.gasparbarancelli.NativeQuerySql("SELECT id FROM USER")
+                    java.util.List<Object> findInline();
+                }
+                """);
+
+        // a compiler of its own, whose processor class loader cannot see the Freemarker of the tests
+        Process javac = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "javac").toString(),
+                "-classpath", System.getProperty("java.class.path") + File.pathSeparator + directory,
+                "-processorpath", Path.of(NativeQueryIndexProcessor.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString(),
+                "-processor", NativeQueryIndexProcessor.class.getName(),
+                "-A" + NativeQueryIndexProcessor.VALIDATE_OPTION + "=warn",
+                "-d", directory.toString(),
+                file.toString())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(javac.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+        assertEquals(0, javac.waitFor(), output);
+        assertTrue(output.contains("warning: Freemarker is not on the annotation processor path"), output);
+        assertTrue(output.contains("the SQL file nativeQuery/findMissing.sql of findMissing was not found"), output);
+        assertEquals(List.of("com.example.UserNativeQuery"), Files.readAllLines(index()));
+        assertFalse(Files.exists(directory.resolve(NativeQueryIndex.TEMPLATES_LOCATION)));
+    }
+
+    @Test
+    void testProcess_UsesTheConfiguredSqlDirectoryAndCanSkipTheValidation() throws Exception {
+        Path file = directory.resolve("src/com/example/UserNativeQuery.java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                    java.util.List<Object> findUsers();
+                }
+                """);
+        template("queries/findUsers.sql", "SELECT id FROM USER");
+
+        int status = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", NativeQueryIndexProcessor.class.getName(),
+                "-AnativeQuery.sqlDirectory=queries",
+                "-d", directory.toString(),
+                file.toString());
+        assertEquals(0, status);
+        assertEquals(List.of("static queries/findUsers.sql"), Files.readAllLines(directory.resolve(NativeQueryIndex.TEMPLATES_LOCATION)));
+
+        Files.delete(directory.resolve("queries/findUsers.sql"));
+        Files.delete(directory.resolve(NativeQueryIndex.TEMPLATES_LOCATION));
+        status = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", NativeQueryIndexProcessor.class.getName(),
+                "-AnativeQuery.validateTemplates=false",
+                "-d", directory.toString(),
+                file.toString());
+        assertEquals(0, status);
+        assertFalse(Files.exists(directory.resolve(NativeQueryIndex.TEMPLATES_LOCATION)));
+    }
+
+    @Test
+    void testProcess_GeneratesImplementationsCallingTheMethodPlans() throws Exception {
+        String output = tryCompile("com.example.UserNativeQuery", """
+                package com.example;
+                import io.github.gasparbarancelli.*;
+                import java.util.List;
+                public interface UserNativeQuery extends NativeQuery {
+                    @NativeQuerySql("select name from user where id = :id")
+                    String findName(@NativeQueryParam("id") int id);
+                    @NativeQuerySql("select count(*) from user")
+                    long count();
+                    @NativeQuerySql("delete from user where name in (:names)")
+                    void delete(@NativeQueryParam("names") String... names);
+                    default String describe() {
+                        return "users";
+                    }
+                    interface Generic<T> extends NativeQuery {
+                        @NativeQuerySql("select * from user")
+                        List<T> findAll();
+                    }
+                }
+                """, "-A" + NativeQueryIndexProcessor.GENERATE_OPTION + "=true");
+        assertFalse(output.contains("error"), output);
+        assertFalse(Files.exists(directory.resolve("com/example/UserNativeQuery_Generic_NativeQueryImpl.class")));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<? extends NativeQuery> classe = classLoader.loadClass("com.example.UserNativeQuery").asSubclass(NativeQuery.class);
+            List<NativeQueryInfo> executed = new ArrayList<>();
+            NativeQueryMethodInterceptor interceptor = info -> {
+                executed.add(info);
+                return switch (info.getMethodName()) {
+                    case "findName" -> "john";
+                    case "count" -> 3L;
+                    default -> null;
+                };
+            };
+
+            Object nativeQuery = new NativeQueryProxyFactoryImpl(interceptor).create(classe);
+
+            assertEquals("com.example.UserNativeQuery_NativeQueryImpl", nativeQuery.getClass().getName());
+            assertEquals("john", classe.getMethod("findName", int.class).invoke(nativeQuery, 1));
+            assertEquals(3L, classe.getMethod("count").invoke(nativeQuery));
+            classe.getMethod("delete", String[].class).invoke(nativeQuery, (Object) new String[]{"john", "mary"});
+            assertEquals("users", classe.getMethod("describe").invoke(nativeQuery));
+            assertEquals("NativeQuery Implementation", nativeQuery.toString());
+
+            assertEquals(List.of("findName", "count", "delete"), executed.stream().map(NativeQueryInfo::getMethodName).toList());
+            assertEquals("id", executed.get(0).getParameterList().get(0).getName());
+            assertEquals(1, executed.get(0).getParameterList().get(0).getValue());
+            assertArrayEquals(new String[]{"john", "mary"}, (Object[]) executed.get(2).getParameterList().get(0).getValue());
+        }
+    }
+
+    @Test
+    void testLoad_ReturnsTheIndexedInterfacesWithinThePackage() throws Exception {
+        compile("com.example.UserNativeQuery", """
+                package com.example;
+                public interface UserNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                }
+                """);
+        compile("org.example.OrderNativeQuery", """
+                package org.example;
+                public interface OrderNativeQuery extends io.github.gasparbarancelli.NativeQuery {
+                }
+                """);
+        Files.writeString(index(), "com.example.MissingNativeQuery\n", StandardOpenOption.APPEND);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+            Set<Class<? extends NativeQuery>> nativeQueryList = NativeQueryIndex.load(classLoader, "com.example");
+
+            assertNotNull(nativeQueryList);
+            assertEquals(List.of("com.example.UserNativeQuery"), nativeQueryList.stream().map(Class::getName).toList());
+        }
+    }
+
+    @Test
+    void testLoad_ReturnsNullWithoutIndex() throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, null)) {
+            assertNull(NativeQueryIndex.load(classLoader, "com.example"));
+        }
+    }
+
+    private Path index() {
+        return directory.resolve(NativeQueryIndex.LOCATION);
+    }
+
+    private void compile(String className, String source) throws IOException {
+        String output = tryCompile(className, source);
+        assertEquals("", output);
+    }
+
+    private String tryCompile(String className, String source, String... options) throws IOException {
+        Path file = directory.resolve("src").resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        List<String> arguments = new ArrayList<>(List.of(
+                "-classpath", System.getProperty("java.class.path") + File.pathSeparator + directory,
+                "-processor", NativeQueryIndexProcessor.class.getName(),
+                "-d", directory.toString()));
+        arguments.addAll(List.of(options));
+        arguments.add(file.toString());
+        compiler.run(null, null, errors, arguments.toArray(String[]::new));
+        return errors.toString(StandardCharsets.UTF_8);
+    }
+
+    private void template(String path, String source) throws IOException {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+    }
+
+}
@@ -0,0 +1,64 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryLatencyHistogramTest {
+
+    @Test
+    void testIndex_BucketsAreContiguousAndBoundTheirValues() {
+        for (long value = 0; value < 100_000; value++) {
+            int index = NativeQueryLatencyHistogram.index(value);
+            assertTrue(value <= NativeQueryLatencyHistogram.upperBound(index), "value " + value);
+            assertTrue(index == 0 || value > NativeQueryLatencyHistogram.upperBound(index - 1), "value " + value);
+        }
+        assertTrue(NativeQueryLatencyHistogram.index(Long.MAX_VALUE) < 256);
+    }
+
+    @Test
+    void testPercentile_IsEstimatedWithinTheBucketError() {
+        NativeQueryLatencyHistogram histogram = new NativeQueryLatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_000, histogram.percentile(0.5), 125_000);
+        assertEquals(990_000, histogram.percentile(0.99), 247_500);
+        assertEquals(1_000_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    void testPercentile_OnlyCoversTheDurationsOfTheLastWindow() throws InterruptedException {
+        NativeQueryLatencyHistogram histogram = new NativeQueryLatencyHistogram(Duration.ofMillis(200));
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000_000L);
+        }
+
+        Thread.sleep(250);
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000L);
+        }
+        assertEquals(200, histogram.getCount());
+        assertEquals(1_000_000, histogram.percentile(0.99));
+
+        Thread.sleep(250);
+        histogram.record(1_000L);
+        assertEquals(101, histogram.getCount());
+        assertEquals(1_000, histogram.percentile(0.99), 250);
+        assertEquals(1_000, histogram.getMax());
+
+        Thread.sleep(500);
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    void testPercentile_EmptyHistogram() {
+        assertEquals(0, new NativeQueryLatencyHistogram().percentile(0.99));
+    }
+
+}
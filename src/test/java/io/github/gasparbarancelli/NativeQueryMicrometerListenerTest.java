@@ -0,0 +1,98 @@
+package io.github.gasparbarancelli;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryMicrometerListenerTest {
+
+    private interface MeteredNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from user")
+        List<String> findNames();
+
+    }
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        NativeQueryExecution.setListeners(List.of(new NativeQueryMicrometerListener(registry)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        NativeQueryExecution.setListeners(List.of());
+    }
+
+    @Test
+    void testRun_RecordsTheInvocationThePhasesAndTheRows() throws NoSuchMethodException {
+        NativeQueryExecution execution = NativeQueryExecution.start(MeteredNativeQuery.class, findNames());
+
+        Object result = execution.run(() -> execution.phase(NativeQueryPhase.EXECUTE, () -> {
+            execution.accumulate(NativeQueryPhase.MAP, 1_000);
+            execution.accumulate(NativeQueryPhase.MAP, 2_000);
+            return List.of("a", "b", "c");
+        }));
+
+        assertEquals(3, ((List<?>) result).size());
+        Timer invocation = registry.get("native.query")
+                .tags("interface", "MeteredNativeQuery", "method", "findNames", "engine", "hibernate", "outcome", "success")
+                .timer();
+        assertEquals(1, invocation.count());
+        assertEquals(1, registry.get("native.query.phase").tag("phase", "execute").timer().count());
+        Timer map = registry.get("native.query.phase").tag("phase", "map").timer();
+        assertEquals(1, map.count());
+        assertEquals(3_000, map.totalTime(TimeUnit.NANOSECONDS));
+        DistributionSummary rows = registry.get("native.query.rows").summary();
+        assertEquals(3, rows.totalAmount());
+    }
+
+    @Test
+    void testRun_CountsTheErrors() throws NoSuchMethodException {
+        NativeQueryExecution execution = NativeQueryExecution.start(MeteredNativeQuery.class, findNames());
+
+        assertThrows(IllegalStateException.class, () -> execution.run(() -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1, registry.get("native.query").tag("outcome", "error").timer().count());
+        assertEquals(1, registry.get("native.query.errors").tag("exception", "IllegalStateException").counter().count());
+        assertEquals(0, registry.get("native.query.rows").summary().count());
+    }
+
+    @Test
+    void testRun_WithoutListenersDoesNotTime() throws NoSuchMethodException {
+        NativeQueryExecution.setListeners(List.of());
+        NativeQueryExecution execution = NativeQueryExecution.start(MeteredNativeQuery.class, findNames());
+
+        execution.run(() -> execution.phase(NativeQueryPhase.EXECUTE, List::of));
+
+        assertFalse(execution.isEnabled());
+        assertEquals(0, execution.getPhaseNanos(NativeQueryPhase.EXECUTE));
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    void testIsObserved_IsFalseWithoutListeners() {
+        assertTrue(NativeQueryExecution.isObserved());
+
+        NativeQueryExecution.setListeners(List.of());
+
+        assertFalse(NativeQueryExecution.isObserved());
+    }
+
+    private static Method findNames() throws NoSuchMethodException {
+        return MeteredNativeQuery.class.getMethod("findNames");
+    }
+
+}
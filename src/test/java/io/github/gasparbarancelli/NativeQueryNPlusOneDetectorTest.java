@@ -0,0 +1,94 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NativeQueryNPlusOneDetectorTest {
+
+    private interface LoopedNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from user where id = :id")
+        List<String> findNames(@NativeQueryParam("id") Integer id);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        NativeQueryExecution.setListeners(List.of());
+    }
+
+    @Test
+    void testOnCompleted_FailsWithTheCallSiteWhenTheThresholdIsCrossedInAScope() throws NoSuchMethodException {
+        NativeQueryExecution.setListeners(List.of(new NativeQueryNPlusOneDetector(2, true)));
+
+        try (NativeQueryNPlusOneDetector.Scope scope = NativeQueryNPlusOneDetector.openScope()) {
+            invoke(1);
+            invoke(2);
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () -> invoke(3));
+            assertTrue(exception.getMessage().contains("findNames(Integer) was invoked more than 2 times in the same scope"), exception.getMessage());
+            assertTrue(exception.getMessage().contains("NativeQueryNPlusOneDetectorTest"), exception.getMessage());
+            invoke(4);
+        }
+    }
+
+    @Test
+    void testOnCompleted_CountsPerTransaction() throws Exception {
+        NativeQueryExecution.setListeners(List.of(new NativeQueryNPlusOneDetector(1, true)));
+
+        inTransaction(() -> invoke(1));
+        inTransaction(() -> invoke(1));
+        assertThrows(IllegalStateException.class, () -> inTransaction(() -> {
+            invoke(1);
+            invoke(2);
+        }));
+    }
+
+    @Test
+    void testOnCompleted_IgnoresInvocationsOutsideOfAnyScope() throws NoSuchMethodException {
+        NativeQueryExecution.setListeners(List.of(new NativeQueryNPlusOneDetector(1, true)));
+
+        invoke(1);
+        invoke(2);
+    }
+
+    private interface Work {
+
+        void run() throws Exception;
+
+    }
+
+    private static void inTransaction(Work work) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            work.run();
+        } finally {
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(0));
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void invoke(Integer id) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(LoopedNativeQuery.class.getMethod("findNames", Integer.class));
+        when(invocation.getArguments()).thenReturn(new Object[]{id});
+        NativeQueryExecution execution = NativeQueryExecution.start(LoopedNativeQuery.class, invocation.getMethod());
+        NativeQueryInfo info = NativeQueryInfo.of(LoopedNativeQuery.class, invocation);
+        NativeQueryInfo.setParameters(info, invocation);
+        info.setExecution(execution);
+        execution.run(() -> {
+            info.getBoundParameters();
+            return List.of("a");
+        });
+    }
+
+}
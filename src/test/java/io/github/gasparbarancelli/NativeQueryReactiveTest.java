@@ -0,0 +1,152 @@
+package io.github.gasparbarancelli;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NativeQueryReactiveTest {
+
+    private interface ReactiveNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from user")
+        Flux<String> findNames();
+
+        @NativeQuerySql("select name from user where id = 1")
+        Mono<String> findName();
+
+    }
+
+    @Test
+    void testOf_FluxEmitsEveryRowAndClosesTheStream() throws NoSuchMethodException {
+        NativeQueryInfo info = info("findNames");
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Object result = NativeQueryReactive.of(info, () -> Stream.of("a", "b", "c").onClose(() -> closed.set(true)));
+
+        assertTrue(info.isReactive());
+        assertEquals(String.class, info.getAliasToBean());
+        assertInstanceOf(Flux.class, result);
+        assertEquals(List.of("a", "b", "c"), ((Flux<?>) result).collectList().block());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testOf_StreamIsOnlyOpenedOnSubscription() throws NoSuchMethodException {
+        AtomicBoolean opened = new AtomicBoolean();
+
+        Object result = NativeQueryReactive.of(info("findNames"), () -> {
+            opened.set(true);
+            return Stream.empty();
+        });
+
+        assertFalse(opened.get());
+        ((Flux<?>) result).blockLast();
+        assertTrue(opened.get());
+    }
+
+    @Test
+    void testOf_MonoEmitsTheSingleRow() throws NoSuchMethodException {
+        NativeQueryInfo info = info("findName");
+
+        Object result = NativeQueryReactive.of(info, () -> Stream.of("a"));
+
+        assertTrue(info.returnTypeIsMono());
+        assertEquals("a", ((Mono<?>) result).block());
+    }
+
+    @Test
+    void testCursor_FetchesTheRowsByBatchesInATransaction() throws SQLException {
+        Connection connection = spy(new DriverManagerDataSource("jdbc:h2:mem:reactive_cursor").getConnection());
+        AtomicReference<PreparedStatement> statement = new AtomicReference<>();
+        doAnswer(invocation -> {
+            PreparedStatement prepared = spy((PreparedStatement) invocation.callRealMethod());
+            statement.set(prepared);
+            return prepared;
+        }).when(connection).prepareStatement(anyString());
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        try (Stream<?> rows = NativeQueryReactive.cursor(new NamedParameterJdbcTemplate(dataSource),
+                "select x from system_range(1, 3)", Map.of(), new SingleColumnRowMapper<>(Long.class))) {
+            assertFalse(connection.getAutoCommit());
+            assertEquals(List.of(1L, 2L, 3L), rows.toList());
+        }
+
+        verify(statement.get()).setFetchSize(NativeQueryReactive.DEFAULT_FETCH_SIZE);
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+        verify(connection).close();
+    }
+
+    @Test
+    void testInterceptor_RollsBackTheTransactionWhenTheQueryCannotBeStreamed() throws NoSuchMethodException {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        EntityManager entityManager = mock(EntityManager.class);
+        Session session = mock(Session.class);
+        Transaction transaction = mock(Transaction.class);
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.beginTransaction()).thenReturn(transaction);
+        when(session.getTransaction()).thenReturn(transaction);
+        when(transaction.isActive()).thenReturn(true);
+        when(session.createNativeQuery(anyString())).thenThrow(new IllegalStateException("boom"));
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("entityManagerFactory", entityManagerFactory);
+        context.refresh();
+        ApplicationContext previous = ApplicationContextProvider.getApplicationContext();
+        new ApplicationContextProvider().setApplicationContext(context);
+        try {
+            MethodInvocation invocation = mock(MethodInvocation.class);
+            when(invocation.getMethod()).thenReturn(ReactiveNativeQuery.class.getMethod("findNames"));
+            when(invocation.getArguments()).thenReturn(new Object[0]);
+            NativeQueryInfo info = NativeQueryInfo.of(ReactiveNativeQuery.class, invocation);
+            NativeQueryInfo.setParameters(info, invocation);
+
+            Object names = new NativeQueryMethodInterceptorImpl().executeQuery(info);
+
+            assertThrows(IllegalStateException.class, ((Flux<?>) names)::blockLast);
+            InOrder inOrder = inOrder(transaction, entityManager);
+            inOrder.verify(transaction).rollback();
+            inOrder.verify(entityManager).close();
+        } finally {
+            new ApplicationContextProvider().setApplicationContext(previous);
+        }
+    }
+
+    private NativeQueryInfo info(String methodName) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(ReactiveNativeQuery.class.getMethod(methodName));
+        return NativeQueryInfo.of(ReactiveNativeQuery.class, invocation);
+    }
+
+}
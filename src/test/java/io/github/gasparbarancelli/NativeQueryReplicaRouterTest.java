@@ -0,0 +1,154 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryReplicaRouterTest {
+
+    @NativeQueryReadOnly
+    interface DatabaseNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findDatabase();
+
+        @NativeQueryReadOnly(false)
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findDatabaseOnPrimary();
+
+        @NativeQueryDataSource("reportingDataSource")
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findDatabaseOnReporting();
+
+    }
+
+    interface ReportingNativeQuery extends NativeQuery {
+
+        @NativeQueryDataSource("reportingDataSource")
+        @NativeQuerySql("update database_name set name = :name")
+        void rename(@NativeQueryParam("name") String name);
+
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:replica_" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists database_name");
+        jdbcTemplate.execute("create table database_name (name varchar(100))");
+        jdbcTemplate.update("insert into database_name values (?)", name);
+        return dataSource;
+    }
+
+    @Test
+    void testAcquire_RoundRobinSendsEachQueryToTheNextReplica() {
+        NativeQueryReplicaRouter router = new NativeQueryReplicaRouter(
+                List.of(database("a"), database("b")), NativeQueryReplicaRouter.Balancing.ROUND_ROBIN);
+
+        List<Integer> replicas = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            try (NativeQueryReplicaRouter.Lease lease = router.acquire()) {
+                replicas.add(lease.getIndex());
+            }
+        }
+
+        assertEquals(List.of(0, 1, 0, 1), replicas);
+    }
+
+    @Test
+    void testAcquire_LeastInFlightAvoidsTheBusyReplicas() {
+        NativeQueryReplicaRouter router = new NativeQueryReplicaRouter(
+                List.of(database("a"), database("b"), database("c")), NativeQueryReplicaRouter.Balancing.of("least-in-flight"));
+
+        NativeQueryReplicaRouter.Lease first = router.acquire();
+        NativeQueryReplicaRouter.Lease second = router.acquire();
+        NativeQueryReplicaRouter.Lease third = router.acquire();
+
+        assertEquals(Set.of(0, 1, 2), Set.of(first.getIndex(), second.getIndex(), third.getIndex()));
+
+        second.close();
+        second.close();
+        try (NativeQueryReplicaRouter.Lease fourth = router.acquire()) {
+            assertEquals(second.getIndex(), fourth.getIndex());
+            assertEquals(1, router.getInFlight(fourth.getIndex()));
+        }
+        first.close();
+        third.close();
+        assertEquals(0, router.getInFlight(0) + router.getInFlight(1) + router.getInFlight(2));
+    }
+
+    @Test
+    void testInterceptor_RoutesEachMethodToItsDatabase() {
+        DataSource primary = database("primary");
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(primary));
+        beanFactory.registerSingleton("reportingDataSource", database("reporting"));
+        beanFactory.registerSingleton("replicaRouter", new NativeQueryReplicaRouter(
+                List.of(database("replica1"), database("replica2")), NativeQueryReplicaRouter.Balancing.ROUND_ROBIN));
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(DatabaseNativeQuery.class));
+        DatabaseNativeQuery nativeQuery = beanFactory.getBean(DatabaseNativeQuery.class);
+
+        Set<String> replicas = new HashSet<>(List.of(nativeQuery.findDatabase(), nativeQuery.findDatabase()));
+
+        assertEquals(Set.of("replica1", "replica2"), replicas);
+        assertEquals("primary", nativeQuery.findDatabaseOnPrimary());
+        assertEquals("reporting", nativeQuery.findDatabaseOnReporting());
+        assertEquals("primary", new TransactionTemplate(new DataSourceTransactionManager(primary))
+                .execute(status -> nativeQuery.findDatabase()));
+    }
+
+    @Test
+    void testInterceptor_RunsTheRoutedUpdatesOfHibernateInTheTransactionOfTheirDatabase() {
+        DataSource reporting = database("reporting_update");
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(database("primary_update"));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(ReportingNativeQuery.class.getPackageName() + ".entity");
+        factoryBean.afterPropertiesSet();
+        try {
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            beanFactory.registerSingleton("entityManagerFactory", factoryBean.getObject());
+            beanFactory.registerSingleton("reportingDataSource", reporting);
+            new NativeQueryRegistryImpl(beanFactory).registry(Set.of(ReportingNativeQuery.class));
+            ReportingNativeQuery nativeQuery = beanFactory.getBean(ReportingNativeQuery.class);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(reporting);
+
+            nativeQuery.rename("renamed");
+            assertEquals("renamed", jdbcTemplate.queryForObject("select name from database_name", String.class));
+
+            new TransactionTemplate(new DataSourceTransactionManager(reporting)).executeWithoutResult(status -> {
+                nativeQuery.rename("rolled back");
+                status.setRollbackOnly();
+            });
+            assertEquals("renamed", jdbcTemplate.queryForObject("select name from database_name", String.class));
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    @Test
+    void testInterceptor_RunsReadOnlyMethodsOnThePrimaryWithoutReplicas() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(database("alone")));
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(DatabaseNativeQuery.class));
+
+        assertEquals("alone", beanFactory.getBean(DatabaseNativeQuery.class).findDatabase());
+    }
+
+}
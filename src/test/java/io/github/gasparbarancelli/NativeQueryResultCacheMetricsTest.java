@@ -0,0 +1,49 @@
+package io.github.gasparbarancelli;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NativeQueryResultCacheMetricsTest {
+
+    private interface MeteredNativeQuery extends NativeQuery {
+
+        @NativeQueryCacheable(tables = "user")
+        @NativeQuerySql("select name from user")
+        List<String> findNames();
+
+    }
+
+    @Test
+    void testGet_RecordsTheHitsAndTheMissesOfTheCacheOfTheMethod() throws NoSuchMethodException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NativeQueryInfo info = info();
+
+        try (NativeQueryResultCacheMetrics ignored = new NativeQueryResultCacheMetrics(registry)) {
+            NativeQueryResultCache.get(info, () -> List.of("a"));
+            NativeQueryResultCache.get(info(), () -> List.of("a"));
+        }
+
+        String cache = info.getMethodKey();
+        assertEquals(1, registry.get("cache.gets").tags("cache", cache, "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", cache, "result", "miss").functionCounter().count());
+        assertEquals(0, registry.get("cache.evictions").tag("cache", cache).functionCounter().count());
+        assertEquals(1, registry.get("cache.size").tag("cache", cache).gauge().value());
+    }
+
+    private NativeQueryInfo info() throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(MeteredNativeQuery.class.getMethod("findNames"));
+        when(invocation.getArguments()).thenReturn(new Object[0]);
+        NativeQueryInfo info = NativeQueryInfo.of(MeteredNativeQuery.class, invocation);
+        NativeQueryInfo.setParameters(info, invocation);
+        return info;
+    }
+
+}
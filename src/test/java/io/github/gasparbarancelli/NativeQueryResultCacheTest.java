@@ -0,0 +1,149 @@
+package io.github.gasparbarancelli;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NativeQueryResultCacheTest {
+
+    private interface CachedNativeQuery extends NativeQuery {
+
+        @NativeQueryCacheable(tables = "USER")
+        @NativeQuerySql("select name from user where id = :id")
+        List<String> findNames(@NativeQueryParam("id") Integer id, @NativeQueryParam("unused") String unused);
+
+    }
+
+    interface CityNativeQuery extends NativeQuery {
+
+        @NativeQueryCacheable
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from city order by name")
+        List<String> findCities();
+
+    }
+
+    @Test
+    void testGet_ExecutesTheQueryOncePerSqlAndBoundValues() throws NoSuchMethodException {
+        AtomicInteger executions = new AtomicInteger();
+        String methodKey = info(1, "a").getMethodKey();
+        NativeQueryResultCache.get(info(0, null), () -> names(executions));
+        NativeQueryResultCache.Statistics before = NativeQueryResultCache.getStatistics().get(methodKey);
+
+        NativeQueryResultCache.get(info(1, "a"), () -> names(executions));
+        NativeQueryResultCache.get(info(1, "b"), () -> names(executions));
+        NativeQueryResultCache.get(info(2, "a"), () -> names(executions));
+
+        NativeQueryResultCache.Statistics after = NativeQueryResultCache.getStatistics().get(methodKey);
+        assertEquals(1, after.hitCount() - before.hitCount());
+        assertEquals(2, after.missCount() - before.missCount());
+    }
+
+    @Test
+    void testGet_ReturnsUnmodifiableResults() throws NoSuchMethodException {
+        Object result = NativeQueryResultCache.get(info(3, null), () -> names(new AtomicInteger()));
+
+        assertEquals(List.of("a", "b"), result);
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) result).clear());
+    }
+
+    @Test
+    void testGet_BypassesTheCacheInsideReadWriteTransactions() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:result_cache;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists city");
+        jdbcTemplate.execute("create table city (name varchar(100))");
+        jdbcTemplate.update("insert into city values ('Lisbon')");
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+        new NativeQueryRegistryImpl(context).registry(Set.of(CityNativeQuery.class));
+        context.refresh();
+        CityNativeQuery nativeQuery = context.getBean(CityNativeQuery.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        ApplicationContext previous = ApplicationContextProvider.getApplicationContext();
+        new ApplicationContextProvider().setApplicationContext(context);
+        try {
+            assertEquals(List.of("Lisbon"), nativeQuery.findCities());
+            List<String> citiesInTransaction = transactionTemplate.execute(status -> {
+                jdbcTemplate.update("insert into city values ('Porto')");
+                List<String> cities = nativeQuery.findCities();
+                status.setRollbackOnly();
+                return cities;
+            });
+
+            assertEquals(List.of("Lisbon", "Porto"), citiesInTransaction);
+            assertEquals(List.of("Lisbon"), nativeQuery.findCities());
+        } finally {
+            new ApplicationContextProvider().setApplicationContext(previous);
+        }
+    }
+
+    @Test
+    void testCheckResultCache_FailsWhenCaffeineIsMissing() {
+        NativeQueryRegistryImpl.checkResultCache(CityNativeQuery.class, true);
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> NativeQueryRegistryImpl.checkResultCache(CityNativeQuery.class, false));
+
+        assertTrue(thrown.getMessage().contains("findCities"));
+        assertTrue(thrown.getMessage().contains("com.github.ben-manes.caffeine:caffeine"));
+    }
+
+    @Test
+    void testEvict_EvictsOnlyTheResultsOfTheWrittenTables() throws NoSuchMethodException {
+        AtomicInteger executions = new AtomicInteger();
+        NativeQueryResultCache.get(info(4, null), () -> names(executions));
+
+        NativeQueryResultCache.evict(List.of("sale"));
+        NativeQueryResultCache.get(info(4, null), () -> names(executions));
+        assertEquals(1, executions.get());
+
+        NativeQueryResultCache.evict(List.of("user"));
+        NativeQueryResultCache.get(info(4, null), () -> names(executions));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testGet_DoesNotCacheResultsReadBeforeAnEviction() throws NoSuchMethodException {
+        AtomicInteger executions = new AtomicInteger();
+        NativeQueryResultCache.get(info(5, null), () -> {
+            NativeQueryResultCache.evict(List.of("user"));
+            return names(executions);
+        });
+
+        NativeQueryResultCache.get(info(5, null), () -> names(executions));
+
+        assertEquals(2, executions.get());
+    }
+
+    private static List<String> names(AtomicInteger executions) {
+        executions.incrementAndGet();
+        return new ArrayList<>(List.of("a", "b"));
+    }
+
+    private NativeQueryInfo info(Integer id, String unused) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(CachedNativeQuery.class.getMethod("findNames", Integer.class, String.class));
+        when(invocation.getArguments()).thenReturn(new Object[]{id, unused});
+        NativeQueryInfo info = NativeQueryInfo.of(CachedNativeQuery.class, invocation);
+        NativeQueryInfo.setParameters(info, invocation);
+        return info;
+    }
+
+}
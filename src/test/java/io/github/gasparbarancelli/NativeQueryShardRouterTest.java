@@ -0,0 +1,231 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryShardRouterTest {
+
+    @NativeQuerySharded
+    interface CustomerNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from customer where id = :id")
+        Optional<CustomerResult> findCustomer(@NativeQueryParam(value = "id", shardKey = true) Long id);
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from customer where id = :filterId")
+        List<CustomerResult> findCustomers(@NativeQueryParam(value = "filter", addChildren = true) CustomerFilter filter);
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from customer")
+        List<CustomerResult> findCustomers(Sort sort);
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from customer")
+        List<CustomerResult> findCustomers(Pageable pageable);
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from customer")
+        Page<CustomerResult> findCustomerPage(Pageable pageable);
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from customer where name like :name")
+        Optional<CustomerResult> findCustomerByName(@NativeQueryParam("name") String name);
+
+        @NativeQueryCacheable(tables = "customer")
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select cast(min(id) as varchar) from customer")
+        String findFirstId(@NativeQueryParam(value = "shard", shardKey = true) Long shard);
+
+    }
+
+    @NativeQuerySharded
+    interface CustomerUpdateNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("update customer set name = :name")
+        void renameAll(@NativeQueryParam("name") String name);
+
+    }
+
+    public static class CustomerResult {
+
+        private Long id;
+
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    public static class CustomerFilter {
+
+        @NativeQueryParam(value = "id", shardKey = true)
+        private final Long id;
+
+        public CustomerFilter(Long id) {
+            this.id = id;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+    }
+
+    private final List<DataSource> shards = new ArrayList<>();
+
+    private CustomerNativeQuery nativeQuery;
+
+    @BeforeEach
+    void setUp() {
+        shards.clear();
+        for (int shard = 0; shard < 3; shard++) {
+            DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:shard_" + shard + ";DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("drop table if exists customer");
+            jdbcTemplate.execute("create table customer (id bigint, name varchar(100))");
+            shards.add(dataSource);
+        }
+        // each customer is stored in the shard of its id, its hash code modulo the number of shards
+        for (long id = 1; id <= 9; id++) {
+            new JdbcTemplate(shards.get((int) (id % 3))).update("insert into customer values (?, ?)", id, "customer " + (char) ('a' + 9 - id));
+        }
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(shards.get(0)));
+        beanFactory.registerSingleton("shardRouter", new NativeQueryShardRouter(shards));
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(CustomerNativeQuery.class));
+        nativeQuery = beanFactory.getBean(CustomerNativeQuery.class);
+    }
+
+    private static List<Long> ids(List<CustomerResult> customers) {
+        return customers.stream().map(CustomerResult::getId).toList();
+    }
+
+    @Test
+    void testShardOf_UsesTheHashCodeOrTheFunctionOfTheKey() {
+        assertEquals(2, new NativeQueryShardRouter(shards).shardOf(5L));
+        assertEquals(0, new NativeQueryShardRouter(shards, key -> ((Long) key) < 100 ? 0 : 1).shardOf(5L));
+        assertThrows(IllegalStateException.class, () -> new NativeQueryShardRouter(shards, key -> 3).shardOf(5L));
+    }
+
+    @Test
+    void testInterceptor_RoutesTheQueriesWithAShardKeyToTheirShard() {
+        assertEquals("customer e", nativeQuery.findCustomer(5L).map(CustomerResult::getName).orElseThrow());
+        assertEquals(List.of(7L), ids(nativeQuery.findCustomers(new CustomerFilter(7L))));
+
+        NativeQueryShardRouter misrouted = new NativeQueryShardRouter(shards, key -> 0);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("shardRouter", misrouted);
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(CustomerNativeQuery.class));
+        assertEquals(Optional.empty(), beanFactory.getBean(CustomerNativeQuery.class).findCustomer(5L));
+    }
+
+    @Test
+    void testResultCache_KeepsTheResultsOfEachShardApartWhenTheShardKeyIsNotReferenced() {
+        assertEquals("3", nativeQuery.findFirstId(0L));
+        assertEquals("1", nativeQuery.findFirstId(1L));
+        assertEquals("2", nativeQuery.findFirstId(2L));
+    }
+
+    @Test
+    void testInterceptor_ScattersTheUpdatesOfHibernateMethodsToEveryShard() {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(shards.get(0));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(CustomerUpdateNativeQuery.class.getPackageName() + ".entity");
+        factoryBean.afterPropertiesSet();
+        try {
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            beanFactory.registerSingleton("entityManagerFactory", factoryBean.getObject());
+            beanFactory.registerSingleton("shardRouter", new NativeQueryShardRouter(shards));
+            new NativeQueryRegistryImpl(beanFactory).registry(Set.of(CustomerUpdateNativeQuery.class));
+
+            beanFactory.getBean(CustomerUpdateNativeQuery.class).renameAll("renamed");
+
+            for (DataSource shard : shards) {
+                assertEquals(List.of("renamed"), new JdbcTemplate(shard).queryForList("select distinct name from customer", String.class));
+            }
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    @Test
+    void testInterceptor_ScattersTheQueriesWithoutShardKeyAndMergesThemInOrder() {
+        assertEquals(List.of(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), ids(nativeQuery.findCustomers(Sort.by("name"))));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), ids(nativeQuery.findCustomers(Sort.by(Sort.Direction.DESC, "customer.name"))));
+        assertEquals(List.of(6L, 5L, 4L), ids(nativeQuery.findCustomers(PageRequest.of(1, 3, Sort.by("id").descending()))));
+        assertEquals(9, nativeQuery.findCustomers((Sort) null).size());
+    }
+
+    @Test
+    void testInterceptor_GathersTheSingleResultOfTheOnlyShardFindingOne() {
+        assertEquals(Optional.of(3L), nativeQuery.findCustomerByName("customer g").map(CustomerResult::getId));
+        assertEquals(Optional.empty(), nativeQuery.findCustomerByName("nobody"));
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> nativeQuery.findCustomerByName("customer%"));
+    }
+
+    @Test
+    void testExecute_CutsThePageFromTheMergedRowsAndSumsTheTotals() throws NoSuchMethodException {
+        NativeQueryInfo info = NativeQueryCache.get(
+                NativeQueryCache.getInfo(CustomerNativeQuery.class, CustomerNativeQuery.class.getMethod("findCustomerPage", Pageable.class)),
+                CustomerNativeQuery.class.getMethod("findCustomerPage", Pageable.class).getParameters(),
+                new Object[]{PageRequest.of(1, 2, Sort.by("id"))});
+        NativeQueryShardRouter router = new NativeQueryShardRouter(shards);
+        Map<NamedParameterJdbcTemplate, List<Long>> rows = Map.of(
+                router.getJdbcTemplate(0), List.of(3L, 6L, 9L),
+                router.getJdbcTemplate(1), List.of(1L, 4L, 7L),
+                router.getJdbcTemplate(2), List.of(2L, 5L, 8L));
+
+        Page<?> page = (Page<?>) NativeQueryScatterGather.execute(info, router, (shardInfo, jdbcTemplate) -> {
+            assertEquals(PageRequest.of(0, 4, Sort.by("id")), shardInfo.getPageable());
+            List<CustomerResult> content = rows.get(jdbcTemplate).stream().limit(4).map(id -> {
+                CustomerResult customer = new CustomerResult();
+                customer.setId(id);
+                return customer;
+            }).toList();
+            return new PageImpl<>(content, shardInfo.getPageable(), 3);
+        });
+
+        assertEquals(List.of(3L, 4L), page.getContent().stream().map(customer -> ((CustomerResult) customer).getId()).toList());
+        assertEquals(9, page.getTotalElements());
+        assertEquals(PageRequest.of(1, 2, Sort.by("id")), page.getPageable());
+    }
+
+}
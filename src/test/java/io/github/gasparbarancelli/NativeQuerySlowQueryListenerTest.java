@@ -0,0 +1,85 @@
+package io.github.gasparbarancelli;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NativeQuerySlowQueryListenerTest {
+
+    private interface SlowNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from user where id in (:ids) and code = 'A1'")
+        List<String> findNames(@NativeQueryParam("ids") List<Integer> ids);
+
+    }
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(NativeQuerySlowQueryListener.class);
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        NativeQueryExecution.setListeners(List.of());
+    }
+
+    @Test
+    void testOnCompleted_LogsTheShapeOfTheQueryWithoutTheValues() throws NoSuchMethodException {
+        NativeQueryExecution.setListeners(List.of(new NativeQuerySlowQueryListener(Duration.ZERO, Duration.ofMinutes(1), false)));
+
+        invoke(List.of(1, 2, 3));
+        invoke(List.of(4));
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("slow native query SlowNativeQuery.findNames took"), message);
+        assertTrue(message.contains("template=inline"), message);
+        assertTrue(message.contains("sql=[select name from user where id in (:ids) and code = ?]"), message);
+        assertTrue(message.contains("parameters={ids:List[3]}"), message);
+        assertTrue(message.contains("render="), message);
+        assertTrue(message.contains("rows=1"), message);
+        assertFalse(message.contains("1, 2, 3"), message);
+    }
+
+    @Test
+    void testOnCompleted_IgnoresFastInvocations() throws NoSuchMethodException {
+        NativeQueryExecution.setListeners(List.of(new NativeQuerySlowQueryListener(Duration.ofMinutes(1), Duration.ZERO, true)));
+
+        invoke(List.of(1));
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    private static void invoke(List<Integer> ids) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(SlowNativeQuery.class.getMethod("findNames", List.class));
+        when(invocation.getArguments()).thenReturn(new Object[]{ids});
+        NativeQueryExecution execution = NativeQueryExecution.start(SlowNativeQuery.class, invocation.getMethod());
+        NativeQueryInfo info = NativeQueryInfo.of(SlowNativeQuery.class, invocation);
+        NativeQueryInfo.setParameters(info, invocation);
+        info.setExecution(execution);
+        execution.run(() -> {
+            info.getBoundParameters();
+            return List.of("a");
+        });
+    }
+
+}
@@ -20,4 +20,13 @@ class NativeQueryStringUtilsTest {
         assertEquals("T", NativeQueryStringUtils.capitalize("t"));
     }
 
+    @Test
+    void testFingerprint_ReplacesLiteralsAndCollapsesWhitespace() {
+        assertEquals(
+                "select * from user_2 where id = ? and name = ? and code = :code1 and rate > ?",
+                NativeQueryStringUtils.fingerprint("select *\n  from user_2\twhere id = 10 and name = 'O''Brien' and code = :code1 and rate > 1.5 ")
+        );
+        assertNull(NativeQueryStringUtils.fingerprint(null));
+    }
+
 }
@@ -0,0 +1,178 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryTenantDataSourcesTest {
+
+    @NativeQueryTenantDataSource
+    interface DatabaseNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findDatabase();
+
+        @NativeQueryCacheable(tables = "database_name")
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from database_name")
+        String findCachedDatabase();
+
+    }
+
+    @NativeQueryTenantDataSource
+    interface DatabaseUpdateNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("update database_name set name = :name")
+        void rename(@NativeQueryParam("name") String name);
+
+    }
+
+    static class TenantDataSource extends DriverManagerDataSource implements AutoCloseable {
+
+        private boolean closed;
+
+        TenantDataSource(String tenant) {
+            super("jdbc:h2:mem:tenant_" + tenant + ";DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(this);
+            jdbcTemplate.execute("drop table if exists database_name");
+            jdbcTemplate.execute("create table database_name (name varchar(100))");
+            jdbcTemplate.update("insert into database_name values (?)", tenant);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+    }
+
+    private final Map<String, TenantDataSource> created = new ConcurrentHashMap<>();
+
+    private NativeQueryTenantDataSources tenantDataSources(int maxPools, Duration idleTimeout) {
+        return new NativeQueryTenantDataSources(tenant -> {
+            TenantDataSource dataSource = new TenantDataSource(tenant);
+            created.put(tenant, dataSource);
+            return dataSource;
+        }, maxPools, idleTimeout);
+    }
+
+    @Test
+    void testInterceptor_RunsTheQueriesOnThePoolOfTheTenant() {
+        AtomicReference<String> tenant = new AtomicReference<>();
+        NativeQueryTenantDataSources tenantDataSources = tenantDataSources(10, Duration.ofMinutes(10));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) tenant::get);
+        beanFactory.registerSingleton("tenantDataSources", tenantDataSources);
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(DatabaseNativeQuery.class));
+        DatabaseNativeQuery nativeQuery = beanFactory.getBean(DatabaseNativeQuery.class);
+
+        tenant.set("a");
+        assertEquals("a", nativeQuery.findDatabase());
+        tenant.set("b");
+        assertEquals("b", nativeQuery.findDatabase());
+        tenant.set("a");
+        assertEquals("a", nativeQuery.findDatabase());
+
+        assertEquals(2, tenantDataSources.size());
+        assertEquals(Set.of("a", "b"), created.keySet());
+        tenantDataSources.close();
+        assertTrue(created.get("a").closed && created.get("b").closed);
+    }
+
+    @Test
+    void testResultCache_KeepsTheResultsOfEachTenantApart() {
+        AtomicReference<String> tenant = new AtomicReference<>();
+        NativeQueryTenantDataSources tenantDataSources = tenantDataSources(10, Duration.ofMinutes(10));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) tenant::get);
+        beanFactory.registerSingleton("tenantDataSources", tenantDataSources);
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(DatabaseNativeQuery.class));
+        DatabaseNativeQuery nativeQuery = beanFactory.getBean(DatabaseNativeQuery.class);
+
+        tenant.set("cache_a");
+        assertEquals("cache_a", nativeQuery.findCachedDatabase());
+        tenant.set("cache_b");
+        assertEquals("cache_b", nativeQuery.findCachedDatabase());
+        tenant.set("cache_a");
+        assertEquals("cache_a", nativeQuery.findCachedDatabase());
+        tenantDataSources.close();
+    }
+
+    @Test
+    void testInterceptor_RunsTheUpdatesOfHibernateMethodsOnThePoolOfTheTenant() {
+        AtomicReference<String> tenant = new AtomicReference<>();
+        NativeQueryTenantDataSources tenantDataSources = tenantDataSources(10, Duration.ofMinutes(10));
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new TenantDataSource("update_default"));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(DatabaseUpdateNativeQuery.class.getPackageName() + ".entity");
+        factoryBean.afterPropertiesSet();
+        try {
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            beanFactory.registerSingleton("entityManagerFactory", factoryBean.getObject());
+            beanFactory.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) tenant::get);
+            beanFactory.registerSingleton("tenantDataSources", tenantDataSources);
+            new NativeQueryRegistryImpl(beanFactory).registry(Set.of(DatabaseUpdateNativeQuery.class));
+
+            tenant.set("update_a");
+            beanFactory.getBean(DatabaseUpdateNativeQuery.class).rename("renamed");
+
+            assertEquals("renamed", new JdbcTemplate(created.get("update_a")).queryForObject("select name from database_name", String.class));
+        } finally {
+            factoryBean.destroy();
+            tenantDataSources.close();
+        }
+    }
+
+    @Test
+    void testAcquire_EvictsTheLeastRecentlyUsedIdlePoolWhenTheCapIsReached() {
+        NativeQueryTenantDataSources tenantDataSources = tenantDataSources(2, Duration.ofMinutes(10));
+        try (NativeQueryTenantDataSources.Lease a = tenantDataSources.acquire("cap_a")) {
+            a.getJdbcTemplate();
+        }
+        NativeQueryTenantDataSources.Lease b = tenantDataSources.acquire("cap_b");
+        b.getJdbcTemplate();
+
+        try (NativeQueryTenantDataSources.Lease c = tenantDataSources.acquire("cap_c")) {
+            c.getJdbcTemplate();
+            assertTrue(created.get("cap_a").closed);
+            assertFalse(created.get("cap_b").closed);
+            assertThrows(DataAccessResourceFailureException.class, () -> tenantDataSources.acquire("cap_d"));
+        }
+        b.close();
+        assertEquals(2, tenantDataSources.size());
+        tenantDataSources.close();
+    }
+
+    @Test
+    void testEvictIdle_ClosesOnlyThePoolsWithoutQueries() {
+        NativeQueryTenantDataSources tenantDataSources = tenantDataSources(10, Duration.ZERO);
+        try (NativeQueryTenantDataSources.Lease idle = tenantDataSources.acquire("idle")) {
+            idle.getJdbcTemplate();
+        }
+        NativeQueryTenantDataSources.Lease busy = tenantDataSources.acquire("busy");
+        busy.getJdbcTemplate();
+
+        tenantDataSources.evictIdle();
+
+        assertTrue(created.get("idle").closed);
+        assertFalse(created.get("busy").closed);
+        assertEquals(1, tenantDataSources.size());
+        busy.close();
+        tenantDataSources.close();
+    }
+
+}
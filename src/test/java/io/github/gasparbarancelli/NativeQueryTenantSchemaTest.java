@@ -0,0 +1,161 @@
+package io.github.gasparbarancelli;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeQueryTenantSchemaTest {
+
+    @NativeQueryTenantSchema
+    interface PersonNativeQuery extends NativeQuery {
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from person order by name")
+        List<String> findNames();
+
+        @NativeQueryCacheable(tables = "person")
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from person order by name")
+        List<String> findCachedNames();
+
+    }
+
+    @NativeQueryTenantSchema
+    interface HibernatePersonNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select name from person order by name")
+        List<String> findNames();
+
+        @NativeQuerySql("update person set name = :name")
+        void rename(@NativeQueryParam("name") String name);
+
+    }
+
+    interface ReactiveNativeQuery extends NativeQuery {
+
+        @NativeQueryTenantSchema
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select name from person")
+        Flux<String> streamNames();
+
+    }
+
+    private final AtomicReference<String> tenant = new AtomicReference<>();
+
+    private SingleConnectionDataSource dataSource;
+
+    private PersonNativeQuery nativeQuery;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:tenant_schema;DB_CLOSE_DELAY=-1", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String schema : List.of("tenant_a", "tenant_b")) {
+            jdbcTemplate.execute("create schema if not exists " + schema);
+            jdbcTemplate.execute("drop table if exists " + schema + ".person");
+            jdbcTemplate.execute("create table " + schema + ".person (name varchar(100))");
+            jdbcTemplate.update("insert into " + schema + ".person values (?)", schema + " john");
+        }
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+        beanFactory.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) tenant::get);
+        new NativeQueryRegistryImpl(beanFactory).registry(Set.of(PersonNativeQuery.class));
+        nativeQuery = beanFactory.getBean(PersonNativeQuery.class);
+    }
+
+    private String schemaOfTheConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        return connection.getSchema();
+    }
+
+    @Test
+    void testInterceptor_SetsTheSchemaOfTheTenantOnTheConnectionAndRestoresIt() throws SQLException {
+        tenant.set("TENANT_A");
+        assertEquals(List.of("tenant_a john"), nativeQuery.findNames());
+        tenant.set("TENANT_B");
+        assertEquals(List.of("tenant_b john"), nativeQuery.findNames());
+
+        assertEquals("PUBLIC", schemaOfTheConnection());
+    }
+
+    @Test
+    void testInterceptor_SetsTheSchemaOnTheConnectionOfTheTransaction() throws SQLException {
+        tenant.set("TENANT_B");
+
+        List<String> names = new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .execute(status -> nativeQuery.findNames());
+
+        assertEquals(List.of("tenant_b john"), names);
+        assertEquals("PUBLIC", schemaOfTheConnection());
+    }
+
+    @Test
+    void testInterceptor_SetsTheSchemaOnTheConnectionOfTheSessionOutsideATransaction() {
+        // a new connection on every request, so that the schema is only seen when the query runs on the same connection
+        DataSource pool = new DriverManagerDataSource("jdbc:h2:mem:tenant_schema;DB_CLOSE_DELAY=-1");
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(pool);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(HibernatePersonNativeQuery.class.getPackageName() + ".entity");
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        try {
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            beanFactory.registerSingleton("entityManagerFactory", entityManagerFactory);
+            beanFactory.registerSingleton("entityManager", SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+            beanFactory.registerSingleton("tenant", (NativeQueryTenantNamedParameterJdbcTemplateInterceptor) tenant::get);
+            new NativeQueryRegistryImpl(beanFactory).registry(Set.of(HibernatePersonNativeQuery.class));
+            HibernatePersonNativeQuery hibernateNativeQuery = beanFactory.getBean(HibernatePersonNativeQuery.class);
+
+            tenant.set("TENANT_A");
+            assertEquals(List.of("tenant_a john"), hibernateNativeQuery.findNames());
+            tenant.set("TENANT_B");
+            assertEquals(List.of("tenant_b john"), hibernateNativeQuery.findNames());
+
+            hibernateNativeQuery.rename("tenant_b mary");
+            assertEquals(List.of("tenant_b mary"), hibernateNativeQuery.findNames());
+            tenant.set("TENANT_A");
+            assertEquals(List.of("tenant_a john"), hibernateNativeQuery.findNames());
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    @Test
+    void testResultCache_KeepsTheResultsOfEachTenantApart() {
+        tenant.set("TENANT_A");
+        assertEquals(List.of("tenant_a john"), nativeQuery.findCachedNames());
+        tenant.set("TENANT_B");
+        assertEquals(List.of("tenant_b john"), nativeQuery.findCachedNames());
+        tenant.set("TENANT_A");
+        assertEquals(List.of("tenant_a john"), nativeQuery.findCachedNames());
+    }
+
+    @Test
+    void testGetInfo_RejectsTheReactiveMethods() {
+        assertThrows(IllegalStateException.class,
+                () -> NativeQueryCache.getInfo(ReactiveNativeQuery.class, ReactiveNativeQuery.class.getMethod("streamNames")));
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.github.gasparbarancelli;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class NativeQueryWarmUpTest {
+
+    interface WarmedNativeQuery extends NativeQuery {
+
+        @NativeQuerySql("select id, name from user <#if filter.name??>where name = :filterName</#if>")
+        List<UserDto> findUsers(@NativeQueryParam(value = "filter", addChildren = true) UserFilter filter);
+
+        @NativeQueryUseJdbcTemplate
+        @NativeQuerySql("select id, name from user")
+        List<UserDto> findAllUsers();
+
+        @NativeQuerySql("select name from user <#if")
+        List<String> findBroken();
+
+        default List<UserDto> findDefault() {
+            return findAllUsers();
+        }
+
+    }
+
+    public static class UserDto {
+
+        private Integer id;
+
+        private String name;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    public static class UserFilter {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    @Test
+    void testWarmUp_PreparesEveryMethodAndReportsTheFailures() {
+        NativeQueryWarmUp warmUp = new NativeQueryWarmUp(2);
+        int cached = NativeQueryCache.size();
+
+        int failures = warmUp.warmUp(Set.of(WarmedNativeQuery.class));
+
+        assertEquals(1, failures);
+        assertTrue(warmUp.isCompleted());
+        assertEquals(cached + 3, NativeQueryCache.size());
+        assertEquals(Set.of("id", "name"), HibernateTypesMapper.getTypes(UserDto.class).keySet());
+    }
+
+    @Test
+    void testOnApplicationEvent_WarmsUpTheRegisteredInterfacesOnlyOnce() {
+        NativeQueryWarmUp warmUp = new NativeQueryWarmUp(1);
+        ApplicationContext context = mock(ApplicationContext.class);
+
+        warmUp.onApplicationEvent(new ContextRefreshedEvent(context));
+
+        assertTrue(warmUp.isCompleted());
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.gasparbarancelli.engine.freemarker;
+
+import io.github.gasparbarancelli.NativeQueryParameter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreemarkerTemplateEngineSQLProcessorTest {
+
+    @Test
+    void shouldClassifyTemplatesWithoutFreemarkerSyntaxAsStatic() {
+        assertTrue(FreemarkerTemplateEngineSQLProcessor.isStatic("SELECT id FROM USER WHERE id = :id"));
+        assertFalse(FreemarkerTemplateEngineSQLProcessor.isStatic("SELECT id FROM USER <#if id??>WHERE id = :id</#if>"));
+        assertFalse(FreemarkerTemplateEngineSQLProcessor.isStatic("SELECT id FROM ${table}"));
+        assertFalse(FreemarkerTemplateEngineSQLProcessor.isStatic("SELECT id FROM USER <@where/>"));
+    }
+
+    @Test
+    void shouldRenderInlineTemplatesWithTheParameters() {
+        String sql = "SELECT id FROM USER WHERE 1=1<#if name??> AND name = :name</#if>";
+
+        String withName = new FreemarkerTemplateEngineSQLProcessor()
+                .inline(true)
+                .setInlineTemplate(sql)
+                .setParameter(List.of(new NativeQueryParameter("name", "John")))
+                .getSql();
+        String withoutName = new FreemarkerTemplateEngineSQLProcessor()
+                .inline(true)
+                .setInlineTemplate(sql)
+                .setParameter(List.of())
+                .getSql();
+
+        assertEquals("SELECT id FROM USER WHERE 1=1 AND name = :name", withName);
+        assertEquals("SELECT id FROM USER WHERE 1=1", withoutName);
+    }
+
+    @Test
+    void shouldReturnStaticTemplatesAsIs() {
+        String sql = "SELECT id FROM USER WHERE id = :id -- comment";
+
+        String result = new FreemarkerTemplateEngineSQLProcessor()
+                .inline(true)
+                .setInlineTemplate(sql)
+                .setParameter(List.of(new NativeQueryParameter("id", 1)))
+                .getSql();
+
+        assertSame(sql, result);
+    }
+
+    @Test
+    void shouldFailToLoadMissingTemplateFiles() {
+        FreemarkerTemplateEngineSQLProcessor processor = new FreemarkerTemplateEngineSQLProcessor();
+        processor.setClasspathTemplate("nativeQuery/missing.sql").setParameter(List.of());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, processor::getSql);
+        assertEquals("Error loading Freemarker template", exception.getMessage());
+    }
+
+    @Test
+    void shouldReportTheSyntaxErrorsOfTemplates() {
+        IOException exception = assertThrows(IOException.class,
+                () -> FreemarkerTemplateEngineSQLProcessor.parse("broken", "SELECT id FROM USER <#if id??>WHERE id = :id"));
+        assertTrue(exception.getMessage().contains("broken"), exception.getMessage());
+    }
+
+}